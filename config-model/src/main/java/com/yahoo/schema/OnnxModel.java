@@ -24,6 +24,8 @@ public class OnnxModel extends DistributableResource {
     private String  statelessExecutionMode = null;
     private Integer statelessInterOpThreads = null;
     private Integer statelessIntraOpThreads = null;
+    private Integer statelessBatchingMaxSize = null;
+    private Double  statelessBatchingMaxDelay = null;
 
     public OnnxModel(String name) {
         super(name);
@@ -117,4 +119,25 @@ public class OnnxModel extends DistributableResource {
         return Optional.ofNullable(statelessIntraOpThreads);
     }
 
+    public void setStatelessBatchingMaxSize(int batchingMaxSize) {
+        if (batchingMaxSize >= 1) {
+            this.statelessBatchingMaxSize = batchingMaxSize;
+        }
+    }
+
+    public Optional<Integer> getStatelessBatchingMaxSize() {
+        return Optional.ofNullable(statelessBatchingMaxSize);
+    }
+
+    /** Sets the max time in seconds to wait for concurrent evaluations to batch */
+    public void setStatelessBatchingMaxDelay(double batchingMaxDelay) {
+        if (batchingMaxDelay >= 0) {
+            this.statelessBatchingMaxDelay = batchingMaxDelay;
+        }
+    }
+
+    public Optional<Double> getStatelessBatchingMaxDelay() {
+        return Optional.ofNullable(statelessBatchingMaxDelay);
+    }
+
 }
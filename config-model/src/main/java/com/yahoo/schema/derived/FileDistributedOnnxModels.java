@@ -51,6 +51,10 @@ public class FileDistributedOnnxModels {
                     modelBuilder.stateless_interop_threads(model.getStatelessInterOpThreads().get());
                 if (model.getStatelessIntraOpThreads().isPresent())
                     modelBuilder.stateless_intraop_threads(model.getStatelessIntraOpThreads().get());
+                if (model.getStatelessBatchingMaxSize().isPresent())
+                    modelBuilder.stateless_batching_max_size(model.getStatelessBatchingMaxSize().get());
+                if (model.getStatelessBatchingMaxDelay().isPresent())
+                    modelBuilder.stateless_batching_max_delay(model.getStatelessBatchingMaxDelay().get());
 
                 builder.model(modelBuilder);
             }
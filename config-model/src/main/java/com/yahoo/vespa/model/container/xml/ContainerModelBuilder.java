@@ -686,6 +686,8 @@ public class ContainerModelBuilder extends ConfigModelBuilder<ContainerModel> {
             onnxModel.setStatelessExecutionMode(getStringValue(modelElement, "execution-mode", null));
             onnxModel.setStatelessInterOpThreads(getIntValue(modelElement, "interop-threads", -1));
             onnxModel.setStatelessIntraOpThreads(getIntValue(modelElement, "intraop-threads", -1));
+            onnxModel.setStatelessBatchingMaxSize(getIntValue(modelElement, "batching-max-size", -1));
+            onnxModel.setStatelessBatchingMaxDelay(getDoubleValue(modelElement, "batching-max-delay", -1));
         }
 
         cluster.setModelEvaluation(new ContainerModelEvaluation(cluster, profiles));
@@ -701,6 +703,11 @@ public class ContainerModelBuilder extends ConfigModelBuilder<ContainerModel> {
         return (child != null) ? Integer.parseInt(child.getTextContent()) : defaultValue;
     }
 
+    private double getDoubleValue(Element element, String name, double defaultValue) {
+        Element child = XML.getChild(element, name);
+        return (child != null) ? Double.parseDouble(child.getTextContent()) : defaultValue;
+    }
+
     protected void addModelEvaluationBundles(ApplicationContainerCluster cluster) {
         /* These bundles are added to all application container clusters, even if they haven't
          * declared 'model-evaluation' in services.xml, because there are many public API packages
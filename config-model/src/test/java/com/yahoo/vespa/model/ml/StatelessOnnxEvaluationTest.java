@@ -129,6 +129,8 @@ public class StatelessOnnxEvaluationTest {
         assertEquals(2, mulModel.stateless_intraop_threads());
         assertEquals(-1, mulModel.stateless_interop_threads());
         assertEquals("", mulModel.stateless_execution_mode());
+        assertEquals(8, mulModel.stateless_batching_max_size());
+        assertEquals(0.005, mulModel.stateless_batching_max_delay(), 1e-9);
     }
 
 }
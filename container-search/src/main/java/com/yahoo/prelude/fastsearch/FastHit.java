@@ -42,6 +42,7 @@ public class FastHit extends Hit {
     private byte[] globalId;
 
     private transient byte[] sortData = null;
+    private transient long sortDataPrefix = 0;
     // TODO: I suspect this one can be dropped.
     private transient Sorting sortDataSorting = null;
 
@@ -137,6 +138,7 @@ public class FastHit extends Hit {
 
     public void setSortData(byte[] data, Sorting sorting) {
         this.sortData = data;
+        this.sortDataPrefix = LeanHit.sortDataPrefix(data);
         this.sortDataSorting = sorting;
     }
 
@@ -144,20 +146,20 @@ public class FastHit extends Hit {
     public int compareTo(Hit other) {
         int cmpRes = 0;
         if ((sortData != null) && (other instanceof FastHit) && hasSortData(((FastHit) other).sortDataSorting)) {
-            cmpRes =  SortDataHitSorter.getComparator(sortDataSorting, null).compare(this, other);
+            cmpRes = compareSortData(this, (FastHit) other, sortDataSorting);
         }
         return (cmpRes != 0) ? cmpRes : super.compareTo(other);
     }
 
     boolean hasSortData(Sorting sorting) {
-        return sortData != null && sortDataSorting != null && sortDataSorting.equals(sorting);
+        return sortData != null && sortDataSorting != null && (sortDataSorting == sorting || sortDataSorting.equals(sorting));
     }
 
     static int compareSortData(FastHit left, FastHit right, Sorting sorting) {
         if (!left.hasSortData(sorting) || !right.hasSortData(sorting)) {
             return 0; // cannot sort
         }
-        return LeanHit.compareData(left.sortData, right.sortData);
+        return LeanHit.compareSortData(left.sortDataPrefix, left.sortData, right.sortDataPrefix, right.sortData);
     }
 
     /** For internal use */
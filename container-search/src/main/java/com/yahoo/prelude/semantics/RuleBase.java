@@ -10,6 +10,7 @@ import com.yahoo.prelude.semantics.rule.SuperCondition;
 import com.yahoo.search.Query;
 import com.yahoo.prelude.querytransform.PhraseMatcher;
 import com.yahoo.prelude.semantics.engine.RuleEngine;
+import com.yahoo.prelude.semantics.engine.RuleIndex;
 import com.yahoo.prelude.semantics.parser.ParseException;
 import com.yahoo.protect.Validator;
 
@@ -50,6 +51,9 @@ public class RuleBase {
 
     private Map<String, NamedCondition> namedConditions = new java.util.LinkedHashMap<>();
 
+    /** The index of the rules of this by condition terms, or null if this is not initialized */
+    private RuleIndex ruleIndex = null;
+
     /** The analyzer used to do evaluations over this rule base */
     private final RuleEngine analyzer = new RuleEngine(this);
 
@@ -301,8 +305,15 @@ public class RuleBase {
     public void initialize() {
         inlineIncluded();
         makeReferences();
+        ruleIndex = new RuleIndex(productionRules);
     }
 
+    /**
+     * Returns the index of the rules of this by the terms required for them to match,
+     * or null if this is not initialized
+     */
+    public RuleIndex ruleIndex() { return ruleIndex; }
+
     /**
      * Analyzes a query over this rule base
      *
@@ -7,6 +7,7 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.RuleBaseException;
 import com.yahoo.prelude.semantics.rule.ProductionRule;
 
+import java.util.BitSet;
 import java.util.ListIterator;
 
 /**
@@ -32,19 +33,27 @@ public class RuleEngine {
      *         If there is an error, this query is destroyed (unusable)
      */
     public String evaluate(Query query, int traceLevel) {
-        // TODO: This is O(query size*rule base size). We'll eventually need to create indices
-        //       on rules to look up rule candidates per term to make it O(query size) instead
-        //       Probably create indices on the first term like Prolog implementations use to
-
         boolean matchedAnything = false;
         Evaluation evaluation = new Evaluation(query, rules, traceLevel);
         if (traceLevel >= 2)
             evaluation.trace(2,"Evaluating query '" + evaluation.getQuery().getModel().getQueryTree().getRoot() + "':");
+
+        // Only rules which may match some term in the query are evaluated. As a match rewrites the query,
+        // the candidates are looked up again after each match
+        RuleIndex index = rules.ruleIndex();
+        BitSet candidates = index == null ? null : index.candidates(evaluation.items());
         for (ListIterator<ProductionRule> i = rules.ruleIterator(); i.hasNext(); ) {
-            evaluation.reset();
+            int ruleIndex = i.nextIndex();
             ProductionRule rule = i.next();
+            if (candidates != null && ruleIndex < index.ruleCount() && ! candidates.get(ruleIndex)) continue;
+
+            evaluation.reset();
             boolean matched = matchRuleAtAllStartPoints(evaluation,rule);
             matchedAnything |= matched;
+            if (matched && index != null) {
+                evaluation.reset();
+                candidates = index.candidates(evaluation.items());
+            }
         }
 
         if ( ! matchedAnything) return null;
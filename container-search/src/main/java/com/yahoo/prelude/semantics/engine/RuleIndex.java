@@ -0,0 +1,167 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.engine;
+
+import com.yahoo.prelude.semantics.rule.ChoiceCondition;
+import com.yahoo.prelude.semantics.rule.CompositeCondition;
+import com.yahoo.prelude.semantics.rule.CompositeItemCondition;
+import com.yahoo.prelude.semantics.rule.Condition;
+import com.yahoo.prelude.semantics.rule.ConditionReference;
+import com.yahoo.prelude.semantics.rule.NamedCondition;
+import com.yahoo.prelude.semantics.rule.ProductionRule;
+import com.yahoo.prelude.semantics.rule.SequenceCondition;
+import com.yahoo.prelude.semantics.rule.SuperCondition;
+import com.yahoo.prelude.semantics.rule.TermCondition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index from condition terms to the production rules which can only match a query containing
+ * one of those terms. This is created once when a rule base is initialized, and lets the rule engine
+ * find the rules which are candidates for a query in a single pass over the query terms,
+ * instead of attempting to match every rule in the rule base.
+ *
+ * Rules where no such set of terms can be determined (e.g. those starting by an ellipsis
+ * or using automata, namespace or comparison conditions) are candidates for every query.
+ *
+ * This is immutable and thread safe.
+ *
+ * @author agent
+ */
+public class RuleIndex {
+
+    /** The number of rules indexed */
+    private final int ruleCount;
+
+    /** The indexes of the rules which are candidates for all queries, in increasing order */
+    private final int[] unindexedRules;
+
+    /**
+     * The indexes of the rules which are candidates for each (processed) term, in increasing order,
+     * for each of the linguistics instances used to process terms in rule conditions
+     */
+    private final Map<RuleBaseLinguistics, Map<String, int[]>> rulesByTerm;
+
+    public RuleIndex(List<ProductionRule> rules) {
+        this.ruleCount = rules.size();
+
+        List<Integer> unindexed = new ArrayList<>();
+        Map<RuleBaseLinguistics, Map<String, List<Integer>>> indexed = new IdentityHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            Map<RuleBaseLinguistics, Set<String>> terms = requiredTerms(rules.get(i).getCondition(), new HashSet<>());
+            if (terms == null) {
+                unindexed.add(i);
+                continue;
+            }
+            for (var linguisticsTerms : terms.entrySet()) {
+                Map<String, List<Integer>> termRules = indexed.computeIfAbsent(linguisticsTerms.getKey(), __ -> new HashMap<>());
+                for (String term : linguisticsTerms.getValue())
+                    termRules.computeIfAbsent(term, __ -> new ArrayList<>()).add(i);
+            }
+        }
+
+        this.unindexedRules = toArray(unindexed);
+        this.rulesByTerm = new IdentityHashMap<>();
+        for (var linguisticsTerms : indexed.entrySet()) {
+            Map<String, int[]> termRules = new HashMap<>(linguisticsTerms.getValue().size() * 2);
+            for (var termEntry : linguisticsTerms.getValue().entrySet())
+                termRules.put(termEntry.getKey(), toArray(termEntry.getValue()));
+            rulesByTerm.put(linguisticsTerms.getKey(), termRules);
+        }
+    }
+
+    /** Returns the number of rules in this which are candidates for every query */
+    public int unindexedRuleCount() { return unindexedRules.length; }
+
+    /** Returns the number of rules indexed by this */
+    public int ruleCount() { return ruleCount; }
+
+    /**
+     * Returns the indexes of the rules which may match a query consisting of the given items.
+     * Rules not in the returned set are guaranteed to not match.
+     */
+    public BitSet candidates(List<FlattenedItem> items) {
+        BitSet candidates = new BitSet(ruleCount);
+        for (int rule : unindexedRules)
+            candidates.set(rule);
+        if (rulesByTerm.isEmpty()) return candidates;
+
+        for (FlattenedItem item : items) {
+            String value = item.getItem().stringValue();
+            if (value == null) continue;
+            for (var linguisticsTerms : rulesByTerm.entrySet()) {
+                int[] rules = linguisticsTerms.getValue().get(linguisticsTerms.getKey().process(value));
+                if (rules == null) continue;
+                for (int rule : rules)
+                    candidates.set(rule);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns a set of terms, by the linguistics processing them, such that at least one of them must
+     * be present in the query for the given condition to match, or null if no such set can be determined.
+     */
+    private static Map<RuleBaseLinguistics, Set<String>> requiredTerms(Condition condition, Set<NamedCondition> visited) {
+        if (condition == null) return null;
+        if (condition.getNameSpace() != null) return null;
+
+        if (condition instanceof TermCondition) {
+            TermCondition term = (TermCondition)condition;
+            Map<RuleBaseLinguistics, Set<String>> terms = new IdentityHashMap<>();
+            terms.computeIfAbsent(term.linguistics(), __ -> new HashSet<>()).add(term.term());
+            return terms;
+        }
+        else if (condition instanceof ConditionReference) {
+            NamedCondition referenced = ((ConditionReference)condition).getNamedCondition();
+            if (referenced == null) return null; // automata lookup
+            if ( ! visited.add(referenced)) return null; // recursive reference
+            Map<RuleBaseLinguistics, Set<String>> terms = requiredTerms(referenced.getCondition(), visited);
+            visited.remove(referenced);
+            return terms;
+        }
+        else if (condition instanceof SuperCondition) {
+            return requiredTerms(((SuperCondition)condition).getCondition(), visited);
+        }
+        else if (condition instanceof ChoiceCondition) { // any alternative may match
+            Map<RuleBaseLinguistics, Set<String>> terms = new IdentityHashMap<>();
+            for (Condition alternative : ((CompositeCondition)condition).conditions()) {
+                Map<RuleBaseLinguistics, Set<String>> alternativeTerms = requiredTerms(alternative, visited);
+                if (alternativeTerms == null) return null;
+                for (var entry : alternativeTerms.entrySet())
+                    terms.computeIfAbsent(entry.getKey(), __ -> new HashSet<>()).addAll(entry.getValue());
+            }
+            return terms.isEmpty() ? null : terms;
+        }
+        else if (condition instanceof SequenceCondition || condition instanceof CompositeItemCondition) {
+            // all must match: Any one is sufficient as a requirement, so pick the most selective
+            Map<RuleBaseLinguistics, Set<String>> mostSelective = null;
+            for (Condition child : ((CompositeCondition)condition).conditions()) {
+                Map<RuleBaseLinguistics, Set<String>> childTerms = requiredTerms(child, visited);
+                if (childTerms == null) continue;
+                if (mostSelective == null || size(childTerms) < size(mostSelective))
+                    mostSelective = childTerms;
+            }
+            return mostSelective;
+        }
+        else { // may match without any particular term being present
+            return null;
+        }
+    }
+
+    private static int size(Map<RuleBaseLinguistics, Set<String>> terms) {
+        return terms.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+}
@@ -49,11 +49,19 @@ public class Dispatcher extends AbstractComponent {
 
     public static final String DISPATCH = "dispatch";
     private static final String TOP_K_PROBABILITY = "topKProbability";
+    private static final String MERGE_DIVERSITY_FEATURE = "mergeDiversityFeature";
+    private static final String MAX_HITS_PER_DIVERSITY_VALUE = "maxHitsPerDiversityValue";
     private static final int MAX_GROUP_SELECTION_ATTEMPTS = 3;
 
     /** If set will control computation of how many hits will be fetched from each partition.*/
     public static final CompoundName topKProbability = CompoundName.fromComponents(DISPATCH, TOP_K_PROBABILITY);
 
+    /** If set, the hits merged from the content nodes are diversified on the value of this match feature. */
+    public static final CompoundName mergeDiversityFeature = CompoundName.fromComponents(DISPATCH, MERGE_DIVERSITY_FEATURE);
+
+    /** The max number of merged hits having the same value of the merge diversity feature. Default is 1. */
+    public static final CompoundName maxHitsPerDiversityValue = CompoundName.fromComponents(DISPATCH, MAX_HITS_PER_DIVERSITY_VALUE);
+
     private final DispatchConfig dispatchConfig;
     private final RpcResourcePool rpcResourcePool;
     private final SearchCluster searchCluster;
@@ -76,6 +84,8 @@ public class Dispatcher extends AbstractComponent {
         argumentType.setStrict(true);
         argumentType.setBuiltin(true);
         argumentType.addField(new FieldDescription(TOP_K_PROBABILITY, FieldType.doubleType));
+        argumentType.addField(new FieldDescription(MERGE_DIVERSITY_FEATURE, FieldType.stringType));
+        argumentType.addField(new FieldDescription(MAX_HITS_PER_DIVERSITY_VALUE, FieldType.integerType));
         argumentType.freeze();
     }
 
@@ -168,6 +178,12 @@ public class Dispatcher extends AbstractComponent {
     }
 
     public SearchInvoker getSearchInvoker(Query query, VespaBackEndSearcher searcher) {
+        try {
+            MergeDiversity.from(query); // validate the query properties used when merging before dispatching
+        } catch (IllegalArgumentException e) {
+            return new SearchErrorInvoker(ErrorMessage.createIllegalQuery(e.getMessage()));
+        }
+
         VolatileItems items = volatileItems; // Take a snapshot
         int maxHitsPerNode = dispatchConfig.maxHitsPerNode();
         SearchInvoker invoker = getSearchPathInvoker(query, searcher, searchCluster.groupList(), items.invokerFactory, maxHitsPerNode)
@@ -44,6 +44,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private final CoverageAggregator coverageAggregator;
     private final TopKEstimator hitEstimator;
     private Query query;
+    private Optional<MergeDiversity> mergeDiversity = Optional.empty();
 
     private TimeoutHandler timeoutHandler;
     public InterleavedSearchInvoker(Timer timer, Collection<SearchInvoker> invokers,
@@ -84,6 +85,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     @Override
     protected Object sendSearchRequest(Query query, Object unusedContext) throws IOException {
         this.query = query;
+        this.mergeDiversity = MergeDiversity.from(query);
         invokers.forEach(invoker -> invoker.setMonitor(this));
 
         int originalHits = query.getHits();
@@ -190,7 +192,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 }
             }
         }
-        if (current.isEmpty() ) {
+        if (current.isEmpty() && mergeDiversity.isEmpty()) {
             return partialResult.getLeanHits();
         }
         List<LeanHit> partial = partialResult.getLeanHits();
@@ -200,6 +202,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
 
         int needed = query.getOffset() + query.getHits();
         List<LeanHit> merged = new ArrayList<>(needed);
+        MergeDiversity.Filter filter = mergeDiversity.map(MergeDiversity::newFilter).orElse(null);
         int indexCurrent = 0;
         int indexPartial = 0;
         while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < needed) {
@@ -208,25 +211,31 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
 
             int cmpRes = currentHit.compareTo(incomingHit);
             if (cmpRes < 0) {
-                merged.add(currentHit);
+                addIfAccepted(merged, currentHit, filter);
                 indexCurrent++;
             } else if (cmpRes > 0) {
-                merged.add(incomingHit);
+                addIfAccepted(merged, incomingHit, filter);
                 indexPartial++;
             } else { // Duplicates
-                merged.add(currentHit);
+                addIfAccepted(merged, currentHit, filter);
                 indexCurrent++;
                 indexPartial++;
             }
         }
-        appendRemainingIfNeeded(merged, needed, current, indexCurrent);
-        appendRemainingIfNeeded(merged, needed, partial, indexPartial);
+        appendRemainingIfNeeded(merged, needed, current, indexCurrent, filter);
+        appendRemainingIfNeeded(merged, needed, partial, indexPartial, filter);
         return merged;
     }
 
-    private void appendRemainingIfNeeded(List<LeanHit> merged, int needed, List<LeanHit> hits, int index) {
+    private void addIfAccepted(List<LeanHit> merged, LeanHit hit, MergeDiversity.Filter filter) {
+        if (filter == null || filter.accept(hit))
+            merged.add(hit);
+    }
+
+    private void appendRemainingIfNeeded(List<LeanHit> merged, int needed, List<LeanHit> hits, int index,
+                                         MergeDiversity.Filter filter) {
         while ((index < hits.size()) && (merged.size() < needed)) {
-            merged.add(hits.get(index++));
+            addIfAccepted(merged, hits.get(index++), filter);
         }
     }
 
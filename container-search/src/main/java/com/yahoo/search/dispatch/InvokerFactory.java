@@ -93,7 +93,8 @@ public abstract class InvokerFactory {
             }
         }
 
-        if (invokers.size() == 1 && failed == null) {
+        // Merge diversity is applied by the interleaved invoker, also to the hits of a single node
+        if (invokers.size() == 1 && failed == null && MergeDiversity.from(query).isEmpty()) {
             return Optional.of(invokers.get(0));
         } else {
             return Optional.of(new InterleavedSearchInvoker(Timer.monotonic, invokers, hitEstimator, dispatchConfig, group, failed));
@@ -14,6 +14,8 @@ public class LeanHit implements Comparable<LeanHit> {
     private final byte[] gid;
     private final double relevance;
     private final byte[] sortData;
+    /** The first bytes of the sort data as an unsigned big-endian long, which decides most comparisons */
+    private final long sortDataPrefix;
     private final int partId;
     private final int distributionKey;
     private FeatureData matchFeatures;
@@ -25,6 +27,7 @@ public class LeanHit implements Comparable<LeanHit> {
         this.gid = gid;
         this.relevance = Double.isNaN(relevance) ? Double.NEGATIVE_INFINITY : relevance;
         this.sortData = sortData;
+        this.sortDataPrefix = sortDataPrefix(sortData);
         this.partId = partId;
         this.distributionKey = distributionKey;
         this.matchFeatures = null;
@@ -46,11 +49,30 @@ public class LeanHit implements Comparable<LeanHit> {
     @Override
     public int compareTo(LeanHit o) {
         int res = (sortData != null)
-                ? compareData(sortData, o.sortData)
+                ? compareSortData(sortDataPrefix, sortData, o.sortDataPrefix, o.sortData)
                 : Double.compare(o.relevance, relevance);
         return (res != 0) ? res : compareData(gid, o.gid);
     }
 
+    /**
+     * Returns the first 8 bytes of the given sort data as an unsigned big-endian long, padded by zeroes.
+     * As sort data is compared bytewise, comparing these prefixes as unsigned longs orders sort data
+     * correctly whenever the prefixes differ.
+     */
+    public static long sortDataPrefix(byte[] sortData) {
+        if (sortData == null) return 0;
+        long prefix = 0;
+        for (int i = 0; i < Long.BYTES; i++)
+            prefix = (prefix << 8) | (i < sortData.length ? sortData[i] & 0xFF : 0);
+        return prefix;
+    }
+
+    /** Compares sort data by the given prefixes, and only by the full data if the prefixes are equal */
+    public static int compareSortData(long leftPrefix, byte[] left, long rightPrefix, byte[] right) {
+        int res = Long.compareUnsigned(leftPrefix, rightPrefix);
+        return (res != 0) ? res : compareData(left, right);
+    }
+
     public static int compareData(byte[] left, byte[] right) {
         int i = Arrays.mismatch(left, right);
         if (i < 0) {
@@ -0,0 +1,68 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Diversity applied when merging the hits from multiple content nodes: Caps the number of hits
+ * having the same value of a match feature in the merged result, while keeping the merged
+ * result at the requested size. Setting the cap to 1 deduplicates hits on the feature value.
+ *
+ * Hits discarded here never become part of the result, so they are never filled.
+ * Hits which do not have the match feature are not capped.
+ *
+ * @author agent
+ */
+class MergeDiversity {
+
+    private final String feature;
+    private final int maxHitsPerValue;
+
+    MergeDiversity(String feature, int maxHitsPerValue) {
+        if (maxHitsPerValue < 1)
+            throw new IllegalArgumentException("Max hits per diversity value must be at least 1, but was " + maxHitsPerValue);
+        this.feature = feature;
+        this.maxHitsPerValue = maxHitsPerValue;
+    }
+
+    /**
+     * Returns the merge diversity requested by this query, if any
+     *
+     * @throws IllegalArgumentException if the merge diversity properties of the query are invalid
+     */
+    static Optional<MergeDiversity> from(Query query) {
+        String feature = query.properties().getString(Dispatcher.mergeDiversityFeature);
+        if (feature == null || feature.isEmpty()) return Optional.empty();
+        Integer maxHitsPerValue = query.properties().getInteger(Dispatcher.maxHitsPerDiversityValue);
+        if (maxHitsPerValue != null && maxHitsPerValue < 1)
+            throw new IllegalArgumentException(Dispatcher.maxHitsPerDiversityValue + " must be at least 1, but was " + maxHitsPerValue);
+        return Optional.of(new MergeDiversity(feature, maxHitsPerValue == null ? 1 : maxHitsPerValue));
+    }
+
+    String feature() { return feature; }
+
+    int maxHitsPerValue() { return maxHitsPerValue; }
+
+    /** Returns a new filter to be used to produce a single merged list of hits */
+    Filter newFilter() { return new Filter(); }
+
+    /** Accepts hits in merged order until the cap is reached for their value. Not multithread safe. */
+    class Filter {
+
+        private final Map<Double, Integer> hitsPerValue = new HashMap<>();
+
+        /** Returns whether the given hit, which is ordered after all previously accepted hits, should be kept */
+        boolean accept(LeanHit hit) {
+            if ( ! hit.hasMatchFeatures()) return true;
+            Double value = hit.getMatchFeatures().getDouble(feature);
+            if (value == null) return true;
+            return hitsPerValue.merge(value, 1, Integer::sum) <= maxHitsPerValue;
+        }
+
+    }
+
+}
@@ -6,8 +6,12 @@ import com.yahoo.search.searchchain.FutureResult;
 
 import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -27,11 +31,21 @@ class FederationResult {
      * Other targets are either complete, or should only be included if they are available when we complete
      */
     private final List<TargetResult> targetsToWaitFor;
-    
-    private FederationResult(List<TargetResult> targetResults) {
+
+    /** The latencies used to derive the latency budget of optional targets, or null to not use latency budgets */
+    private final TargetLatencies latencies;
+
+    /** The percentile of the observed latencies of an optional target to use as its latency budget */
+    private final double latencyPercentile;
+
+    private FederationResult(List<TargetResult> targetResults, TargetLatencies latencies, double latencyPercentile) {
         this.targetResults = targetResults;
+        this.latencies = latencies;
+        this.latencyPercentile = latencyPercentile;
 
-        if (targetResults.stream().anyMatch(TargetResult::isMandatory))
+        if (latencies != null) // wait for optional targets until their latency budget
+            targetsToWaitFor = new ArrayList<>(targetResults);
+        else if (targetResults.stream().anyMatch(TargetResult::isMandatory))
             targetsToWaitFor = targetResults.stream().filter(TargetResult::isMandatory)
                     .collect(Collectors.toCollection(ArrayList::new));
         else
@@ -43,31 +57,39 @@ class FederationResult {
      * In the worst case this is the same as waiting for the max target timeout,
      * in the average case it may be much better because lower timeout sources do not get to
      * drive the timeout above their own timeout value.
+     * When latency budgets are used, optional targets are only waited for until their latency budget,
+     * if it is lower than their timeout.
      * When this completes, results can be accessed from the TargetResults with no blocking
      * (i.e getOrTimeout) without breaking any contract.
      */
     public void waitForAll(int queryTimeout, Clock clock) {
         long startTime = clock.millis();
-        while ( ! targetsToWaitFor.isEmpty()) {
-            TargetResult nextToWaitFor = targetWithSmallestTimeout(targetsToWaitFor, queryTimeout);
-            long timeLeftOfNextTimeout = nextToWaitFor.timeout(queryTimeout) - ( clock.millis() - startTime );
-            nextToWaitFor.getIfAvailable(timeLeftOfNextTimeout);
-            targetsToWaitFor.remove(nextToWaitFor);
+        // Compute the wait limits once, as latency budgets are percentiles of the recent latencies of each target
+        Map<TargetResult, Long> waitLimits = new IdentityHashMap<>();
+        for (TargetResult result : targetsToWaitFor)
+            waitLimits.put(result, waitLimit(result, queryTimeout));
+        targetsToWaitFor.sort(Comparator.comparing(waitLimits::get)); // stable, so targets with equal limits keep their order
+        for (TargetResult nextToWaitFor : targetsToWaitFor) {
+            long timeLeftOfNextTimeout = waitLimits.get(nextToWaitFor) - ( clock.millis() - startTime );
+            boolean available = nextToWaitFor.getIfAvailable(timeLeftOfNextTimeout).isPresent();
+            if (latencies != null && ! nextToWaitFor.isMandatory()) // a missing target is recorded as using its timeout
+                latencies.record(nextToWaitFor.target.getId(),
+                                 available ? nextToWaitFor.latency(startTime, clock) : nextToWaitFor.timeout(queryTimeout));
         }
+        targetsToWaitFor.clear();
+    }
+
+    /** Returns the max time to wait for the given target, measured from the start of the federation */
+    private long waitLimit(TargetResult result, int queryTimeout) {
+        long timeout = result.timeout(queryTimeout);
+        if (latencies == null || result.isMandatory()) return timeout;
+        OptionalLong budget = latencies.budget(result.target.getId(), latencyPercentile);
+        return budget.isPresent() ? Math.min(timeout, budget.getAsLong()) : timeout;
     }
     
     /** Returns an immutable list of the results of this */
     public List<TargetResult> all() { return targetResults; }
 
-    private TargetResult targetWithSmallestTimeout(List<TargetResult> results, int queryTimeout) {
-        TargetResult smallest = null;
-        for (TargetResult result : results) {
-            if (smallest == null || result.timeout(queryTimeout) < smallest.timeout(queryTimeout))
-                smallest = result;
-        }
-        return smallest;        
-    }
-    
     static class TargetResult {
 
         final FederationSearcher.Target target;
@@ -108,6 +130,14 @@ class FederationResult {
             return futureResult.isDone() && ! futureResult.isCancelled();
         }
 
+        /**
+         * Returns the time from the given start of the federation until this target completed, which may be before
+         * this was waited for, or until now if the completion time is not known.
+         */
+        private long latency(long startTime, Clock clock) {
+            return Math.max(0, futureResult.completionTime().orElse(clock.millis()) - startTime);
+        }
+
         private int timeout(long queryTimeout) {
             return (int)target.federationOptions().getSearchChainExecutionTimeoutInMilliseconds(queryTimeout);
         }
@@ -122,13 +152,26 @@ class FederationResult {
     public static class Builder {
         
         private final List<TargetResult> results = new ArrayList<>();
+        private TargetLatencies latencies = null;
+        private double latencyPercentile = 0;
         
         public void add(FederationSearcher.Target target, FutureResult futureResult) {
             results.add(new TargetResult(target, futureResult));
         }
+
+        /**
+         * Wait for optional targets until the given percentile of their latencies, and record
+         * their observed latencies into the given instance.
+         */
+        public void useLatencyBudgets(TargetLatencies latencies, double percentile) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("Latency percentile must be in [0, 100], but was " + percentile);
+            this.latencies = latencies;
+            this.latencyPercentile = percentile;
+        }
         
         public FederationResult build() {
-            return new FederationResult(List.copyOf(results));
+            return new FederationResult(List.copyOf(results), latencies, latencyPercentile);
         }
         
     }
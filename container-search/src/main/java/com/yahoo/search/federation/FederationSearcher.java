@@ -72,6 +72,13 @@ public class FederationSearcher extends ForkingSearcher {
     /** The name of the query property containing the source name added to the query to each source by this */
     public final static CompoundName SOURCENAME = new CompoundName("sourceName");
     public final static CompoundName PROVIDERNAME = new CompoundName("providerName");
+
+    /**
+     * If set, optional targets are waited for until this percentile (in [0, 100]) of their recently
+     * observed latencies, rather than until they time out when all targets are optional,
+     * or only until the mandatory targets are done otherwise.
+     */
+    public final static CompoundName OPTIONAL_LATENCY_PERCENTILE = new CompoundName("federation.optionalLatencyPercentile");
     public static final String FEDERATION = "Federation";
     public static final String LOG_COUNT_PREFIX = "count_";
 
@@ -80,6 +87,7 @@ public class FederationSearcher extends ForkingSearcher {
 
     private final TargetSelector<?> targetSelector;
     private final Clock clock = Clock.systemUTC();
+    private final TargetLatencies targetLatencies = new TargetLatencies();
 
     @Inject
     public FederationSearcher(FederationConfig config, ComponentRegistry<TargetSelector> targetSelectors) {
@@ -157,6 +165,10 @@ public class FederationSearcher extends ForkingSearcher {
 
     @Override
     public Result search(Query query, Execution execution) {
+        ErrorMessage invalidProperties = validateProperties(query);
+        if (invalidProperties != null)
+            return new Result(query, invalidProperties);
+
         Result mergedResults = execution.search(query);
 
         Results<SearchChainInvocationSpec, UnresolvedSearchChainException> targets =
@@ -185,6 +197,20 @@ public class FederationSearcher extends ForkingSearcher {
         return mergedResults;
     }
 
+    /** Returns an illegal query error if the federation properties of the given query are invalid, and null otherwise */
+    private ErrorMessage validateProperties(Query query) {
+        try {
+            Double optionalLatencyPercentile = query.properties().getDouble(OPTIONAL_LATENCY_PERCENTILE);
+            if (optionalLatencyPercentile != null && ! (optionalLatencyPercentile >= 0 && optionalLatencyPercentile <= 100))
+                return ErrorMessage.createIllegalQuery(OPTIONAL_LATENCY_PERCENTILE + " must be in [0, 100], but was " +
+                                                       optionalLatencyPercentile);
+            return null;
+        }
+        catch (NumberFormatException e) {
+            return ErrorMessage.createIllegalQuery(OPTIONAL_LATENCY_PERCENTILE + " must be a number: " + e.getMessage());
+        }
+    }
+
     private void search(Query query, Execution execution, Target target, Result mergedResults) {
         mergeResult(query, target, mergedResults, search(query, execution, target).orElse(createSearchChainTimedOutResult(query, target)));
 
@@ -214,6 +240,9 @@ public class FederationSearcher extends ForkingSearcher {
 
     private FederationResult search(Query query, Execution execution, Collection<Target> targets) {
         FederationResult.Builder result = new FederationResult.Builder();
+        Double optionalLatencyPercentile = query.properties().getDouble(OPTIONAL_LATENCY_PERCENTILE);
+        if (optionalLatencyPercentile != null)
+            result.useLatencyBudgets(targetLatencies, optionalLatencyPercentile);
         for (Target target : targets)
             result.add(target, searchAsynchronously(query, execution, Window.from(targets, query), target));
         return result.build();
@@ -0,0 +1,68 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.federation;
+
+import com.yahoo.component.ComponentId;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The recently observed latencies of federation targets, used to derive an adaptive latency budget
+ * for optional targets: How long it is worth waiting for a target given how long it usually takes.
+ *
+ * This is multithread safe.
+ *
+ * @author agent
+ */
+class TargetLatencies {
+
+    /** The number of most recent latencies to keep per target */
+    static final int windowSize = 200;
+
+    /** The number of latencies which must be observed for a target before a budget can be derived */
+    static final int minimumSamples = 20;
+
+    private final Map<ComponentId, Window> windows = new ConcurrentHashMap<>();
+
+    /** Records the observed latency of a target */
+    void record(ComponentId target, long latencyMillis) {
+        windows.computeIfAbsent(target, __ -> new Window()).add(latencyMillis);
+    }
+
+    /**
+     * Returns the latency budget of a target, which is the given percentile of the recent latencies
+     * of the target, or empty if too few latencies are observed to tell.
+     *
+     * @param percentile the percentile in [0, 100]
+     */
+    OptionalLong budget(ComponentId target, double percentile) {
+        Window window = windows.get(target);
+        if (window == null) return OptionalLong.empty();
+        return window.percentile(percentile);
+    }
+
+    private static class Window {
+
+        private final long[] latencies = new long[windowSize];
+        private int count = 0;
+        private int next = 0;
+
+        synchronized void add(long latency) {
+            latencies[next] = latency;
+            next = (next + 1) % windowSize;
+            count = Math.min(count + 1, windowSize);
+        }
+
+        synchronized OptionalLong percentile(double percentile) {
+            if (count < minimumSamples) return OptionalLong.empty();
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int)Math.ceil(percentile / 100 * count) - 1;
+            return OptionalLong.of(sorted[Math.max(0, Math.min(count - 1, index))]);
+        }
+
+    }
+
+}
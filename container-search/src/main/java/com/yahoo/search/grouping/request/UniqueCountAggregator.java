@@ -0,0 +1,31 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.grouping.request;
+
+/**
+ * This class represents a uniquecount-aggregator in a {@link GroupingExpression}. It evaluates to an estimate of the
+ * number of unique values the contained expression evaluated to over all the inputs. The estimate is computed
+ * using HyperLogLog sketches, so it does not require materializing a group per value.
+ *
+ * @author agent
+ */
+public class UniqueCountAggregator extends AggregatorNode {
+
+    /**
+     * Constructs a new instance of this class.
+     *
+     * @param expression the expression to count the unique values of.
+     */
+    public UniqueCountAggregator(GroupingExpression expression) {
+        this(null, null, expression);
+    }
+
+    private UniqueCountAggregator(String label, Integer level, GroupingExpression expression) {
+        super("uniquecount", label, level, expression);
+    }
+
+    @Override
+    public UniqueCountAggregator copy() {
+        return new UniqueCountAggregator(getLabel(), getLevelOrNull(), getExpression().copy());
+    }
+
+}
@@ -81,6 +81,7 @@ import com.yahoo.search.grouping.request.ToLongFunction;
 import com.yahoo.search.grouping.request.ToRawFunction;
 import com.yahoo.search.grouping.request.ToStringFunction;
 import com.yahoo.search.grouping.request.UcaFunction;
+import com.yahoo.search.grouping.request.UniqueCountAggregator;
 import com.yahoo.search.grouping.request.XorAggregator;
 import com.yahoo.search.grouping.request.XorBitFunction;
 import com.yahoo.search.grouping.request.XorFunction;
@@ -239,6 +240,10 @@ class ExpressionConverter {
             return new StandardDeviationAggregationResult()
                     .setExpression(toExpressionNode(((StandardDeviationAggregator) exp).getExpression()));
         }
+        if (exp instanceof UniqueCountAggregator) {
+            return new ExpressionCountAggregationResult()
+                    .setExpression(toExpressionNode(((UniqueCountAggregator) exp).getExpression()));
+        }
         if (exp instanceof XorAggregator) {
             return new XorAggregationResult()
                     .setExpression(toExpressionNode(((XorAggregator)exp).getExpression()));
@@ -20,6 +20,7 @@ class GroupingTransform {
     private final Map<Integer, Set<Integer>> children = new HashMap<>();
     private final Map<Integer, String> labels = new HashMap<>();
     private final Map<Integer, Integer> maxes = new HashMap<>();
+    private final Set<Integer> uniqueCounts = new HashSet<>();
     private final Map<Integer, Integer> offsetByTag = new HashMap<>();
     private final Map<ResultId, Integer> offsetById = new HashMap<>();
     private final Set<ResultId> unstable = new HashSet<>();
@@ -108,6 +109,20 @@ class GroupingTransform {
         return labels.get(tag);
     }
 
+    /** Marks the aggregator with the given tag as an estimate of the unique values of an expression over hits */
+    public GroupingTransform putUniqueCount(int tag) {
+        uniqueCounts.add(tag);
+        return this;
+    }
+
+    /**
+     * Returns whether the aggregator with the given tag estimates the unique values of an expression over hits,
+     * rather than the number of groups in a list.
+     */
+    public boolean isUniqueCount(int tag) {
+        return uniqueCounts.contains(tag);
+    }
+
     @Override
     public String toString() {
         StringBuilder ret = new StringBuilder();
@@ -9,6 +9,7 @@ import com.yahoo.search.grouping.request.EachOperation;
 import com.yahoo.search.grouping.request.GroupingExpression;
 import com.yahoo.search.grouping.request.GroupingOperation;
 import com.yahoo.search.grouping.request.NegFunction;
+import com.yahoo.search.grouping.request.UniqueCountAggregator;
 import com.yahoo.searchlib.aggregation.AggregationResult;
 import com.yahoo.searchlib.aggregation.ExpressionCountAggregationResult;
 import com.yahoo.searchlib.aggregation.Group;
@@ -190,6 +191,7 @@ class RequestBuilder {
         // The ExpressionCountAggregationResult uses the group-by expression to simulate aggregation of list of groups.
         group.getAggregationResults().stream()
                 .filter(aggr -> aggr instanceof ExpressionCountAggregationResult)
+                .filter(aggr -> ! transform.isUniqueCount(aggr.getTag()))
                 .forEach(aggr -> aggr.setExpression(frame.state.groupBy.clone()));
     }
 
@@ -334,6 +336,9 @@ class RequestBuilder {
         } else {
             transform.putLabel(group.getTag(), tag, label != null ? label : exp.toString(), "output");
         }
+        if (exp instanceof UniqueCountAggregator) {
+            transform.putUniqueCount(tag);
+        }
         return result;
     }
 
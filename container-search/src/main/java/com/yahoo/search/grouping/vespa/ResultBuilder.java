@@ -252,7 +252,7 @@ class ResultBuilder {
                 return ((CountAggregationResult)execResult).getCount();
             } else if (execResult instanceof ExpressionCountAggregationResult) {
                 long count = ((ExpressionCountAggregationResult)execResult).getEstimatedUniqueCount();
-                return correctExpressionCountEstimate(count, tag);
+                return transform.isUniqueCount(tag) ? count : correctExpressionCountEstimate(count, tag);
             } else if (execResult instanceof MaxAggregationResult) {
                 return ((MaxAggregationResult)execResult).getMax().getValue();
             } else if (execResult instanceof MinAggregationResult) {
@@ -0,0 +1,332 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.result;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The fields of a hit, in insertion order. This stores keys and values in arrays instead of allocating
+ * an entry per field as LinkedHashMap does, and keeps numeric values of the primitive wrapper types unboxed,
+ * such that a hit holding numbers from a summary does not hold a boxed instance per number.
+ * Numbers are therefore boxed on each read.
+ *
+ * Keys are looked up by scanning when there are few fields, and through a hash index of positions otherwise.
+ *
+ * Not multithread safe.
+ *
+ * @author agent
+ */
+final class FieldMap extends AbstractMap<String, Object> {
+
+    /** The max number of fields looked up by scanning the keys */
+    private static final int maxScanSize = 8;
+
+    private String[] keys;
+
+    /** The values, where numbers are replaced by their kind, with the value stored in numbers */
+    private Object[] values;
+
+    /** The bits of numeric values, or null if no numbers have been added */
+    private long[] numbers = null;
+
+    private int size = 0;
+
+    /** Open addressing hash table of position + 1 by key, where 0 is empty, or null when scanning. The length is a power of two. */
+    private int[] index = null;
+
+    /** Incremented on each structural change, to fail iterators */
+    private int modifications = 0;
+
+    private Set<Map.Entry<String, Object>> entrySet = null;
+
+    FieldMap(int capacity) {
+        keys = new String[Math.max(capacity, 1)];
+        values = new Object[keys.length];
+    }
+
+    FieldMap(FieldMap other) {
+        this.keys = Arrays.copyOf(other.keys, Math.max(other.size, 1));
+        this.values = Arrays.copyOf(other.values, keys.length);
+        this.numbers = other.numbers == null ? null : Arrays.copyOf(other.numbers, keys.length);
+        this.size = other.size;
+        reindex();
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && positionOf((String)key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if ( ! (key instanceof String)) return null;
+        int position = positionOf((String)key);
+        return position < 0 ? null : valueAt(position);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int position = positionOf(key);
+        if (position >= 0) {
+            Object previous = valueAt(position);
+            setValueAt(position, value);
+            return previous;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+            if (numbers != null)
+                numbers = Arrays.copyOf(numbers, size * 2);
+        }
+        keys[size] = key;
+        setValueAt(size++, value);
+        modifications++;
+        if (index != null && size * 2 <= index.length)
+            insert(size - 1, index);
+        else if (size > maxScanSize)
+            reindex();
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if ( ! (key instanceof String)) return null;
+        int position = positionOf((String)key);
+        if (position < 0) return null;
+        Object removed = valueAt(position);
+        removeAt(position);
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        index = null;
+        modifications++;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> consumer) {
+        int expectedModifications = modifications;
+        for (int i = 0; i < size; i++) {
+            consumer.accept(keys[i], valueAt(i));
+            if (modifications != expectedModifications)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null)
+            entrySet = new EntrySet();
+        return entrySet;
+    }
+
+    private Object valueAt(int position) {
+        Object value = values[position];
+        if (value instanceof NumberKind kind)
+            return kind.box(numbers[position]);
+        return value;
+    }
+
+    private void setValueAt(int position, Object value) {
+        NumberKind kind = value == null ? null : NumberKind.of(value.getClass());
+        if (kind == null) {
+            values[position] = value;
+            return;
+        }
+        if (numbers == null)
+            numbers = new long[keys.length];
+        numbers[position] = kind.unbox((Number)value);
+        values[position] = kind;
+    }
+
+    private void removeAt(int position) {
+        int moved = size - position - 1;
+        System.arraycopy(keys, position + 1, keys, position, moved);
+        System.arraycopy(values, position + 1, values, position, moved);
+        if (numbers != null)
+            System.arraycopy(numbers, position + 1, numbers, position, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modifications++;
+        reindex();
+    }
+
+    private int positionOf(String key) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (key.equals(keys[i])) return i;
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = slotOf(key, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+            if (key.equals(keys[index[slot] - 1]))
+                return index[slot] - 1;
+        }
+        return -1;
+    }
+
+    /** Recreates the hash index, or drops it if there are few enough fields to scan */
+    private void reindex() {
+        if (size <= maxScanSize) {
+            index = null;
+            return;
+        }
+        index = new int[Integer.highestOneBit(size * 4 - 1)];
+        for (int i = 0; i < size; i++)
+            insert(i, index);
+    }
+
+    private void insert(int position, int[] index) {
+        int mask = index.length - 1;
+        int slot = slotOf(keys[position], mask);
+        while (index[slot] != 0)
+            slot = (slot + 1) & mask;
+        index[slot] = position + 1;
+    }
+
+    private static int slotOf(String key, int mask) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /** The types of numbers which are stored unboxed */
+    private enum NumberKind {
+
+        BYTE, SHORT, INTEGER, LONG, FLOAT, DOUBLE;
+
+        static NumberKind of(Class<?> type) {
+            if (type == Integer.class) return INTEGER;
+            if (type == Long.class) return LONG;
+            if (type == Double.class) return DOUBLE;
+            if (type == Float.class) return FLOAT;
+            if (type == Short.class) return SHORT;
+            if (type == Byte.class) return BYTE;
+            return null;
+        }
+
+        long unbox(Number value) {
+            return switch (this) {
+                case FLOAT -> Float.floatToRawIntBits(value.floatValue());
+                case DOUBLE -> Double.doubleToRawLongBits(value.doubleValue());
+                default -> value.longValue();
+            };
+        }
+
+        Number box(long bits) {
+            return switch (this) {
+                case BYTE -> (byte)bits;
+                case SHORT -> (short)bits;
+                case INTEGER -> (int)bits;
+                case LONG -> bits;
+                case FLOAT -> Float.intBitsToFloat((int)bits);
+                case DOUBLE -> Double.longBitsToDouble(bits);
+            };
+        }
+
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public void clear() { FieldMap.this.clear(); }
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() { return new EntryIterator(); }
+
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int next = 0;
+        private int current = -1;
+        private int expectedModifications = modifications;
+
+        @Override
+        public boolean hasNext() { return next < size; }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (modifications != expectedModifications) throw new ConcurrentModificationException();
+            if (next >= size) throw new NoSuchElementException();
+            current = next++;
+            return new Entry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) throw new IllegalStateException();
+            if (modifications != expectedModifications) throw new ConcurrentModificationException();
+            removeAt(current);
+            next = current;
+            current = -1;
+            expectedModifications = modifications;
+        }
+
+    }
+
+    /** An entry which reads and writes through to this map until it is structurally modified */
+    private class Entry implements Map.Entry<String, Object> {
+
+        private final int position;
+        private final String key;
+
+        Entry(int position) {
+            this.position = position;
+            this.key = keys[position];
+        }
+
+        @Override
+        public String getKey() { return key; }
+
+        @Override
+        public Object getValue() { return valueAt(position); }
+
+        @Override
+        public Object setValue(Object value) {
+            Object previous = valueAt(position);
+            setValueAt(position, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Map.Entry<?, ?> other)) return false;
+            return key.equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() { return key + "=" + getValue(); }
+
+    }
+
+}
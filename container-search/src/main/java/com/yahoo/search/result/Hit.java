@@ -13,7 +13,6 @@ import com.yahoo.search.Searcher;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
@@ -48,7 +47,7 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
     private static final String DOCUMENT_ID = "documentid";
 
     /** A collection of string keyed object properties. */
-    private Map<String, Object> fields = null;
+    private FieldMap fields = null;
     private Map<String, Object> unmodifiableFieldMap = null;
 
     /** Metadata describing how a given searcher should treat this hit. */
@@ -475,8 +474,7 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
 
     private Map<String, Object> getFieldMap(int minSize) {
         if (fields == null) {
-            // Compensate for loadfactor and then some, rounded up....
-            fields = new LinkedHashMap<>(2 * minSize);
+            fields = new FieldMap(minSize);
         }
         return fields;
     }
@@ -663,7 +661,7 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
     public Hit clone() {
         Hit hit = (Hit) super.clone();
 
-        hit.fields = fields != null ? new LinkedHashMap<>(fields) : null;
+        hit.fields = fields != null ? new FieldMap(fields) : null;
         hit.unmodifiableFieldMap = null;
         if (types != null)
             hit.types = new LinkedHashSet<>(types);
@@ -7,6 +7,7 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.yolean.Exceptions;
 
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
@@ -26,6 +27,9 @@ public class FutureResult extends FutureTask<Result> {
 
     private final Execution execution;
 
+    /** The time this completed in milliseconds since the epoch, or -1 if it has not completed */
+    private volatile long completionTime = -1;
+
     private final static Logger log = Logger.getLogger(FutureResult.class.getName());
 
     public FutureResult(Callable<Result> callable, Execution execution, Query query) {
@@ -84,6 +88,17 @@ public class FutureResult extends FutureTask<Result> {
         }
     }
 
+    @Override
+    protected void done() {
+        completionTime = System.currentTimeMillis();
+    }
+
+    /** Returns the time this completed in milliseconds since the epoch, or empty if it has not completed */
+    public OptionalLong completionTime() {
+        long completionTime = this.completionTime;
+        return completionTime < 0 ? OptionalLong.empty() : OptionalLong.of(completionTime);
+    }
+
     /** Returns the query used in this execution, never null */
     public Query getQuery() {
         return query;
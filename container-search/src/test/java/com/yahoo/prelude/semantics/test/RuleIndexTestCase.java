@@ -0,0 +1,69 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.test;
+
+import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.prelude.query.AndItem;
+import com.yahoo.prelude.query.WordItem;
+import com.yahoo.prelude.semantics.RuleBase;
+import com.yahoo.prelude.semantics.RuleImporter;
+import com.yahoo.prelude.semantics.engine.FlattenedItem;
+import com.yahoo.prelude.semantics.engine.RuleIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests looking up candidate rules by query terms
+ *
+ * @author agent
+ */
+public class RuleIndexTestCase {
+
+    private static final String rules =
+            "foo bar -> foobar;\n" +                // 0: indexed by foo
+            "[brand] -> brand:[brand];\n" +         // 1: indexed by all brands
+            "... [brand] +> product;\n" +           // 2: indexed by all brands
+            "[...] tv -> television;\n" +           // 3: indexed by tv
+            "!foo -> notfoo;\n" +                   // 4: not indexed
+            "[lazy] -> recursive;\n" +              // 5: not indexed
+            "\n" +
+            "[brand] :- sony, panasonic, lg;\n" +
+            "[lazy] :- [lazy], other;\n";
+
+    @Test
+    void testCandidateLookup() throws Exception {
+        RuleBase ruleBase = new RuleImporter(new SimpleLinguistics()).importString(rules, null, "test");
+        RuleIndex index = ruleBase.ruleIndex();
+        assertEquals(6, index.ruleCount());
+        assertEquals(2, index.unindexedRuleCount());
+
+        assertEquals(candidates(4, 5), index.candidates(items()));
+        assertEquals(candidates(0, 4, 5), index.candidates(items("foo")));
+        assertEquals(candidates(4, 5), index.candidates(items("bar", "baz")));
+        assertEquals(candidates(1, 2, 3, 4, 5), index.candidates(items("panasonic", "tv")));
+        assertEquals(candidates(4, 5), index.candidates(items("television")));
+    }
+
+    private static List<FlattenedItem> items(String ... words) {
+        AndItem and = new AndItem();
+        List<FlattenedItem> items = new ArrayList<>();
+        for (String word : words) {
+            WordItem item = new WordItem(word);
+            and.addItem(item);
+            items.add(new FlattenedItem(item, items.size()));
+        }
+        return items;
+    }
+
+    private static BitSet candidates(int ... rules) {
+        BitSet candidates = new BitSet();
+        for (int rule : rules)
+            candidates.set(rule);
+        return candidates;
+    }
+
+}
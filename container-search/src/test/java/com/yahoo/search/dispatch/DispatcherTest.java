@@ -12,9 +12,11 @@ import com.yahoo.search.dispatch.searchcluster.PingFactory;
 import com.yahoo.search.dispatch.searchcluster.Pinger;
 import com.yahoo.search.dispatch.searchcluster.PongHandler;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.vespa.config.search.DispatchConfig;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -149,6 +151,19 @@ public class DispatcherTest {
         dispatcher.deconstruct();
     }
 
+    @Test
+    void requireThatInvalidMaxHitsPerDiversityValueIsAnIllegalQuery() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("1", 1, 1);
+        MockInvokerFactory invokerFactory = new MockInvokerFactory(cluster.groupList(), dispatchConfig);
+        Dispatcher dispatcher = new Dispatcher(new ClusterMonitor<>(cluster, false), cluster, dispatchConfig, invokerFactory);
+        Query query = new Query("?dispatch.mergeDiversityFeature=category&dispatch.maxHitsPerDiversityValue=0");
+        Result result = dispatcher.getSearchInvoker(query, null).search(query, null);
+        assertEquals(ErrorMessage.createIllegalQuery("").getCode(), result.hits().getError().getCode());
+        assertEquals("dispatch.maxHitsPerDiversityValue must be at least 1, but was 0", result.hits().getError().getDetailedMessage());
+        invokerFactory.verifyAllEventsProcessed();
+        dispatcher.deconstruct();
+    }
+
     interface FactoryStep {
         boolean returnInvoker(List<Node> nodes, boolean acceptIncompleteCoverage);
     }
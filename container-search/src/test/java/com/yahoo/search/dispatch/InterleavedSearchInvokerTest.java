@@ -2,10 +2,12 @@
 package com.yahoo.search.dispatch;
 
 import com.yahoo.concurrent.Timer;
+import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.document.GlobalId;
 import com.yahoo.document.idstring.IdString;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.GroupingListHit;
+import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.searchcluster.Group;
@@ -13,6 +15,7 @@ import com.yahoo.search.dispatch.searchcluster.MockSearchCluster;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.result.Coverage;
 import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.FeatureData;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.Relevance;
 import com.yahoo.searchlib.aggregation.Grouping;
@@ -20,6 +23,7 @@ import com.yahoo.searchlib.aggregation.MaxAggregationResult;
 import com.yahoo.searchlib.aggregation.MinAggregationResult;
 import com.yahoo.searchlib.expression.IntegerResultNode;
 import com.yahoo.searchlib.expression.StringResultNode;
+import com.yahoo.slime.Slime;
 import com.yahoo.test.ManualClock;
 import com.yahoo.vespa.config.search.DispatchConfig;
 import org.junit.jupiter.api.Test;
@@ -332,6 +336,57 @@ public class InterleavedSearchInvokerTest {
         }
     }
 
+    @Test
+    void requireThatMergeDiversityCapsHitsPerFeatureValue() throws IOException {
+        List<SearchInvoker> invokers = new ArrayList<>();
+        invokers.add(createInvokerWithCategory(A5, 0));
+        invokers.add(createInvokerWithCategory(B5, 1));
+        try (InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(Timer.monotonic, invokers, hitEstimator, dispatchConfig, new Group(0, List.of()), Collections.emptySet())) {
+            invoker.responseAvailable(invokers.get(0));
+            invoker.responseAvailable(invokers.get(1));
+            query.setHits(5);
+            query.properties().set(Dispatcher.mergeDiversityFeature, "category");
+            query.properties().set(Dispatcher.maxHitsPerDiversityValue, 2);
+            Result result = invoker.search(query, null);
+            assertEquals(5, result.hits().size());
+            assertEquals(11.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+            assertEquals(9.0, result.hits().get(1).getRelevance().getScore(), DELTA);
+            assertEquals(7.5, result.hits().get(2).getRelevance().getScore(), DELTA);
+            assertEquals(7.0, result.hits().get(3).getRelevance().getScore(), DELTA);
+            assertEquals(3.0, result.hits().get(4).getRelevance().getScore(), DELTA);
+        }
+    }
+
+    @Test
+    void requireThatMergeDiversityIsAppliedToASingleNode() throws IOException {
+        MockSearchCluster cluster = new MockSearchCluster("1", 1, 1);
+        SearchInvoker nodeInvoker = createInvokerWithCategory(A5, 0);
+        InvokerFactory invokerFactory = new InvokerFactory(cluster.groupList(), dispatchConfig) {
+            @Override
+            protected Optional<SearchInvoker> createNodeSearchInvoker(VespaBackEndSearcher searcher, Query query, int maxHits, Node node) {
+                return Optional.of(nodeInvoker);
+            }
+
+            @Override
+            public FillInvoker createFillInvoker(VespaBackEndSearcher searcher, Result result) { return null; }
+        };
+        List<Node> nodes = cluster.groupList().get(0).nodes();
+
+        assertSame(nodeInvoker, invokerFactory.createSearchInvoker(null, query, nodes, true, 100).get());
+
+        query.properties().set(Dispatcher.mergeDiversityFeature, "category");
+        query.properties().set(Dispatcher.maxHitsPerDiversityValue, 1);
+        try (SearchInvoker invoker = invokerFactory.createSearchInvoker(null, query, nodes, true, 100).get()) {
+            assertTrue(invoker instanceof InterleavedSearchInvoker);
+            ((InterleavedSearchInvoker) invoker).responseAvailable(nodeInvoker);
+            Result result = invoker.search(query, null);
+            assertEquals(3, result.hits().size());
+            assertEquals(11.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+            assertEquals(7.5, result.hits().get(1).getRelevance().getScore(), DELTA);
+            assertEquals(3.0, result.hits().get(2).getRelevance().getScore(), DELTA);
+        }
+    }
+
     @Test
     void requireThatGroupingsAreMerged() throws IOException {
         List<SearchInvoker> invokers = new ArrayList<>();
@@ -382,6 +437,17 @@ public class InterleavedSearchInvokerTest {
         return new MockInvoker(0).setHits(createHits(scores, distributionKey, distributionKey));
     }
 
+    /** Creates an invoker returning hits having the match feature 'category' set to floor(score / 4) */
+    private static MockInvoker createInvokerWithCategory(List<Double> scores, int distributionKey) {
+        List<Hit> hits = createHits(scores, distributionKey, distributionKey);
+        for (Hit hit : hits) {
+            Slime slime = new Slime();
+            slime.setObject().setDouble("category", Math.floor(hit.getRelevance().getScore() / 4));
+            hit.setField("matchfeatures", new FeatureData(new SlimeAdapter(slime.get())));
+        }
+        return new MockInvoker(0).setHits(hits);
+    }
+
     private static List<Hit> createHits(List<Double> scores, int partId, int distributionKey) {
         List<Hit> hits= new ArrayList<>(scores.size());
         for (Double value : scores) {
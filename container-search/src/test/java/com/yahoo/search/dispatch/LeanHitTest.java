@@ -44,6 +44,22 @@ public class LeanHitTest {
                 new LeanHit(gidA, 0, 0, 0.0, gidC));
     }
 
+    @Test
+    void testOrderingBySortDataBeyondPrefix() {
+        byte[] shortData = {1, 2, 3};
+        byte[] paddedData = {1, 2, 3, 0};
+        byte[] longData = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        byte[] longDataGreater = {1, 2, 3, 4, 5, 6, 7, 8, 10};
+        byte[] unsignedData = {1, 2, (byte)0xff};
+        assertEquals(0, new LeanHit(gidA, 0, 0, 0.0, longData).compareTo(new LeanHit(gidA, 0, 0, 0.0, longData.clone())));
+        verifyTransitiveOrdering(new LeanHit(gidA, 0, 0, 0.0, shortData),
+                new LeanHit(gidA, 0, 0, 0.0, paddedData),
+                new LeanHit(gidA, 0, 0, 0.0, longData));
+        verifyTransitiveOrdering(new LeanHit(gidA, 0, 0, 0.0, longData),
+                new LeanHit(gidA, 0, 0, 0.0, longDataGreater),
+                new LeanHit(gidA, 0, 0, 0.0, unsignedData));
+    }
+
     @Test
     void testRelevanceIsKeptEvenWithBySortData() {
         assertEquals(1.3, new LeanHit(gidA, 0, 0, 1.3, gidA).getRelevance(), 0.0);
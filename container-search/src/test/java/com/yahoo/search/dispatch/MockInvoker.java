@@ -7,6 +7,7 @@ import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.FeatureData;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.searchchain.Execution;
 
@@ -53,7 +54,10 @@ class MockInvoker extends SearchInvoker {
             for (Hit h : hits) {
                 if (h instanceof FastHit) {
                     FastHit fh = (FastHit) h;
-                    ret.getLeanHits().add(new LeanHit(fh.getRawGlobalId(), fh.getPartId(), fh.getDistributionKey(), fh.getRelevance().getScore()));
+                    LeanHit leanHit = new LeanHit(fh.getRawGlobalId(), fh.getPartId(), fh.getDistributionKey(), fh.getRelevance().getScore());
+                    if (fh.getField("matchfeatures") instanceof FeatureData)
+                        leanHit.addMatchFeatures(((FeatureData) fh.getField("matchfeatures")).inspect());
+                    ret.getLeanHits().add(leanHit);
                 } else {
                     ret.getResult().hits().add(h);
                 }
@@ -15,6 +15,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -43,6 +44,46 @@ public class FederationResultTest {
         assertTimeout(ImmutableSet.of("organic"),      520, 260, 260);
     }
 
+    @Test
+    void testOptionalTargetLatencyBudget() {
+        FederationSearcher.Target ads = new MockTarget("ads", 400, true);
+        TargetLatencies latencies = new TargetLatencies();
+
+        // Not enough latencies observed: Wait until timeout
+        for (int i = 0; i < TargetLatencies.minimumSamples - 1; i++)
+            assertTimedOut(false, ads, 100, 50, latencies);
+        assertTimedOut(false, ads, 350, 50, latencies);
+
+        // Budget is now the 90th percentile of the observed latencies, 100 ms
+        assertEquals(100, latencies.budget(ads.getId(), 90).getAsLong());
+        assertTimedOut(false, ads, 80, 50, latencies);
+        assertTimedOut(true, ads, 150, 50, latencies);
+        assertTimedOut(false, ads, 150, 200, latencies); // done before the mandatory target
+    }
+
+    @Test
+    void testOptionalTargetLatencyIsMeasuredUntilItCompletes() {
+        FederationSearcher.Target ads = new MockTarget("ads", 600, true);
+        TargetLatencies latencies = new TargetLatencies();
+
+        // The mandatory target, with the lower timeout, is waited for first, but ads completes long before it
+        for (int i = 0; i < TargetLatencies.minimumSamples; i++)
+            assertTimedOut(false, ads, 50, 200, latencies);
+        assertEquals(50, latencies.budget(ads.getId(), 90).getAsLong());
+    }
+
+    private void assertTimedOut(boolean expectTimeout, FederationSearcher.Target optional, int optionalResponseTime,
+                                int organicResponseTime, TargetLatencies latencies) {
+        FederationResult.Builder builder = new FederationResult.Builder();
+        builder.useLatencyBudgets(latencies, 90);
+        builder.add(organic, resultAfter(organicResponseTime));
+        builder.add(optional, resultAfter(optionalResponseTime));
+        FederationResult federationResult = builder.build();
+        federationResult.waitForAll(500, clock);
+        assertFalse(timedOut(federationResult.all().get(0).getOrTimeoutError()));
+        assertEquals(expectTimeout, timedOut(federationResult.all().get(1).getOrTimeoutError()));
+    }
+
     private void assertTimeout(Set<String> expectedTimeoutNames, int ... responseTimes) {
         FederationResult.Builder builder = new FederationResult.Builder();
         builder.add(organic, resultAfter(responseTimes[0]));
@@ -103,6 +144,12 @@ public class FederationResultTest {
             }
         }
         
+        @Override
+        public OptionalLong completionTime() {
+            long completionTime = startTime + responseTime;
+            return clock.millis() >= completionTime ? OptionalLong.of(completionTime) : OptionalLong.empty();
+        }
+
         @Override
         public Query getQuery() {
             return query;
@@ -114,10 +161,16 @@ public class FederationResultTest {
 
         private final Chain<Searcher> chain;
         private final int timeout;
+        private final boolean optional;
         
         MockTarget(String id, int timeout) {
+            this(id, timeout, false);
+        }
+
+        MockTarget(String id, int timeout, boolean optional) {
             this.chain = new Chain<>(id);
             this.timeout = timeout;
+            this.optional = optional;
         }
 
         @Override
@@ -131,7 +184,7 @@ public class FederationResultTest {
 
         @Override
         public FederationOptions federationOptions() {
-            return new FederationOptions(false, timeout, true);
+            return new FederationOptions(optional, timeout, true);
         }
 
     }
@@ -106,6 +106,26 @@ public class FederationSearcherTest {
         assertEquals("Timed out", result.hits().getError().getMessage());
     }
 
+    @Test
+    void require_that_invalid_optional_latency_percentile_is_an_illegal_query() {
+        FederationTester tester = new FederationTester();
+        tester.addSearchChain("chain1", new AddHitSearcher());
+        tester.addOptionalSearchChain("chain2", new AddHitSearcher());
+
+        Result result = tester.search(new Query("?federation.optionalLatencyPercentile=101"));
+        assertEquals(0, result.hits().getConcreteSize());
+        assertEquals(ErrorMessage.createIllegalQuery("").getCode(), result.hits().getError().getCode());
+        assertEquals("federation.optionalLatencyPercentile must be in [0, 100], but was 101.0",
+                     result.hits().getError().getDetailedMessage());
+
+        result = tester.search(new Query("?federation.optionalLatencyPercentile=high"));
+        assertEquals(ErrorMessage.createIllegalQuery("").getCode(), result.hits().getError().getCode());
+
+        result = tester.search(new Query("?federation.optionalLatencyPercentile=90"));
+        assertNull(result.hits().getError());
+        assertEquals(2, result.hits().getConcreteSize());
+    }
+
     @Test
     void require_that_optional_search_chains_does_not_delay_federation() {
         BlockingSearcher blockingSearcher = new BlockingSearcher();
@@ -51,6 +51,7 @@ public class RequestBuilderTestCase {
         assertLayout("all(group(a) each(each(output(summary()))))", "[[{ Attribute, result = [Hits] }]]");
         assertLayout("all(group(a) each(output(xor(b))))", "[[{ Attribute, result = [Xor] }]]");
         assertLayout("all(group(a) each(output(stddev(b))))", "[[{ Attribute, result = [StandardDeviation] }]]");
+        assertLayout("all(group(a) each(output(uniquecount(b))))", "[[{ Attribute, result = [ExpressionCount] }]]");
     }
 
     @Test
@@ -63,6 +64,19 @@ public class RequestBuilderTestCase {
         assertEquals(new AttributeNode("foo"), aggr.getExpression());
     }
 
+    @Test
+    void requireThatUniqueCountKeepsItsExpression() {
+        RequestBuilder builder = new RequestBuilder(0);
+        builder.setRootOperation(GroupingOperation.fromString("all(output(uniquecount(bar)) all(group(foo) output(count())))"));
+        builder.build();
+        List<AggregationResult> aggrs = builder.getRequestList().get(0).getRoot().getAggregationResults();
+        assertEquals(2, aggrs.size());
+        assertTrue(aggrs.get(0) instanceof ExpressionCountAggregationResult);
+        assertEquals(new AttributeNode("bar"), aggrs.get(0).getExpression());
+        assertTrue(aggrs.get(1) instanceof ExpressionCountAggregationResult);
+        assertEquals(new AttributeNode("foo"), aggrs.get(1).getExpression());
+    }
+
     private List<Grouping> getRequestList(String selection) {
         RequestBuilder builder = new RequestBuilder(0);
         builder.setRootOperation(GroupingOperation.fromString(selection));
@@ -81,6 +81,14 @@ public class ResultBuilderTestCase {
                 "RootGroup{id=group:root, count()=69}[]");
     }
 
+    @Test
+    void requireThatUniqueCountIsNotCorrectedByGroupCount() {
+        assertLayout("all(output(uniquecount(b)) all(group(a) each(output(count()))))",
+                new Grouping().setRoot(newGroup(1, 0, newGroup(3, 2, new CountAggregationResult(3).setTag(4)))
+                                               .addAggregationResult(new ExpressionCountAggregationResult(new SparseSketch(), sketch -> 69).setTag(2))),
+                "RootGroup{id=group:root, uniquecount(b)=69}[GroupList{label=a}[Group{id=group:2, count()=3}[]]]");
+    }
+
     @Test
     void requireThatNestedGroupingResultsCanBeTransformed() {
         Grouping grouping = new Grouping()
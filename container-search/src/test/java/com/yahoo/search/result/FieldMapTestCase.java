@@ -0,0 +1,98 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.result;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author agent
+ */
+public class FieldMapTestCase {
+
+    @Test
+    void testNumbersKeepTheirType() {
+        FieldMap map = new FieldMap(2);
+        map.put("byte", (byte)1);
+        map.put("short", (short)2);
+        map.put("int", 3);
+        map.put("long", 4L);
+        map.put("float", 5.5f);
+        map.put("double", -0.0);
+        map.put("nan", NanNumber.NaN);
+        map.put("string", "6");
+        assertEquals((byte)1, map.get("byte"));
+        assertEquals((short)2, map.get("short"));
+        assertEquals(3, map.get("int"));
+        assertEquals(4L, map.get("long"));
+        assertEquals(5.5f, map.get("float"));
+        assertEquals(-0.0, map.get("double"));
+        assertEquals(NanNumber.NaN, map.get("nan"));
+        assertEquals("6", map.get("string"));
+
+        assertEquals(3, map.put("int", "three"));
+        assertEquals("three", map.get("int"));
+    }
+
+    @Test
+    void testOrderIsKeptWhenGrowingAndRemoving() {
+        FieldMap map = new FieldMap(1);
+        Map<String, Object> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 40; i++) {
+            map.put("field" + i, i % 2 == 0 ? i : "value" + i);
+            expected.put("field" + i, i % 2 == 0 ? i : "value" + i);
+        }
+        assertEquals(expected, map);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+
+        for (int i = 0; i < 40; i += 3) {
+            assertEquals(expected.remove("field" + i), map.remove("field" + i));
+            assertNull(map.remove("field" + i));
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        for (String key : expected.keySet())
+            assertEquals(expected.get(key), map.get(key));
+        assertFalse(map.containsKey("field0"));
+        assertTrue(map.containsKey("field1"));
+
+        FieldMap copy = new FieldMap(map);
+        copy.put("added", 1);
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size() + 1, copy.size());
+    }
+
+    @Test
+    void testIteratorRemovalAndEntryUpdates() {
+        FieldMap map = new FieldMap(2);
+        for (int i = 0; i < 12; i++)
+            map.put("field" + i, i);
+        for (Iterator<Map.Entry<String, Object>> i = map.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<String, Object> entry = i.next();
+            if ((Integer)entry.getValue() % 2 == 0)
+                i.remove();
+            else
+                entry.setValue("value" + entry.getValue());
+        }
+        List<String> keys = new ArrayList<>();
+        map.forEach((key, value) -> {
+            keys.add(key);
+            assertEquals("value" + key.substring("field".length()), value);
+        });
+        assertEquals(List.of("field1", "field3", "field5", "field7", "field9", "field11"), keys);
+        assertEquals("value11", map.get("field11"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("field1"));
+    }
+
+}
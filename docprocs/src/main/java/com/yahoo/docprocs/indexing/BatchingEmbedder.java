@@ -0,0 +1,142 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docprocs.indexing;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An embedder which allows the embeddings needed by multiple documents to be computed in one batch call
+ * to the embedder it wraps. This is done in three steps, all on the same thread:
+ *
+ * <ol>
+ *     <li>record: The indexing scripts of all the documents are run while this records the texts to embed,
+ *         returning empty placeholder tensors</li>
+ *     <li>embed: The recorded texts are embedded by one batch call per destination, language and tensor type</li>
+ *     <li>serve: The indexing scripts are run for real while this returns the embeddings computed in the batch.
+ *         Embeddings not found in the batch are computed individually as usual</li>
+ * </ol>
+ *
+ * When no batch is started on the current thread, this just delegates to the wrapped embedder.
+ *
+ * @author agent
+ */
+class BatchingEmbedder implements Embedder {
+
+    private final Embedder embedder;
+
+    private final ThreadLocal<Batch> batch = new ThreadLocal<>();
+
+    BatchingEmbedder(Embedder embedder) {
+        this.embedder = embedder;
+    }
+
+    /** Starts recording the texts to embed on this thread */
+    void record() {
+        batch.set(new Batch());
+    }
+
+    /** Embeds the texts recorded on this thread, and starts serving those embeddings on this thread */
+    void embed() {
+        Batch batch = this.batch.get();
+        if (batch == null) return;
+        batch.embed(embedder);
+    }
+
+    /** Discards the batch of this thread, if any */
+    void clear() {
+        batch.remove();
+    }
+
+    @Override
+    public List<Integer> embed(String text, Context context) {
+        return embedder.embed(text, context);
+    }
+
+    @Override
+    public Tensor embed(String text, Context context, TensorType tensorType) {
+        Batch batch = this.batch.get();
+        if (batch == null) return embedder.embed(text, context, tensorType);
+
+        BatchKey key = new BatchKey(context, tensorType);
+        if (batch.recording) {
+            batch.texts.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(text);
+            return Tensor.Builder.of(tensorType).build();
+        }
+        Tensor embedding = batch.embeddings.getOrDefault(key, Map.of()).get(text);
+        return embedding != null ? embedding : embedder.embed(text, context, tensorType);
+    }
+
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        return embedder.embed(texts, context, tensorType);
+    }
+
+    private static class Batch {
+
+        boolean recording = true;
+
+        /** The texts to embed, by the embedding call they can be batched in */
+        final Map<BatchKey, Set<String>> texts = new LinkedHashMap<>();
+
+        /** The embeddings of the texts, by the embedding call they were batched in */
+        final Map<BatchKey, Map<String, Tensor>> embeddings = new HashMap<>();
+
+        void embed(Embedder embedder) {
+            recording = false;
+            for (Map.Entry<BatchKey, Set<String>> entry : texts.entrySet()) {
+                BatchKey key = entry.getKey();
+                List<String> keyTexts = new ArrayList<>(entry.getValue());
+                List<Tensor> keyEmbeddings;
+                try {
+                    keyEmbeddings = embedder.embed(keyTexts, new Context(key.destination).setLanguage(key.language), key.type);
+                }
+                catch (RuntimeException e) {
+                    continue; // These texts will be embedded individually, where any error is reported as usual
+                }
+                Map<String, Tensor> embeddingsByText = new HashMap<>();
+                for (int i = 0; i < keyTexts.size(); i++)
+                    embeddingsByText.put(keyTexts.get(i), keyEmbeddings.get(i));
+                embeddings.put(key, embeddingsByText);
+            }
+            texts.clear();
+        }
+
+    }
+
+    /** The parameters of an embedding call, apart from the text */
+    private static class BatchKey {
+
+        final String destination;
+        final Language language;
+        final TensorType type;
+
+        BatchKey(Context context, TensorType type) {
+            this.destination = context.getDestination();
+            this.language = context.getLanguage();
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof BatchKey other)) return false;
+            return Objects.equals(destination, other.destination) && language == other.language && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(destination, language, type); }
+
+    }
+
+}
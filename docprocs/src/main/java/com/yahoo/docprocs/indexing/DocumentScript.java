@@ -17,6 +17,8 @@ import com.yahoo.document.update.FieldUpdate;
 import com.yahoo.document.update.MapValueUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.vespa.indexinglanguage.AdapterFactory;
+import com.yahoo.vespa.indexinglanguage.ExpressionSearcher;
+import com.yahoo.vespa.indexinglanguage.expressions.EmbedExpression;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
 
 import java.util.Collection;
@@ -33,14 +35,20 @@ public class DocumentScript {
     private final String documentType;
     private final Set<String> inputFields;
     private final Expression expression;
+    private final boolean embeds;
 
     public DocumentScript(String documentType, Collection<String> inputFields, Expression expression) {
         this.documentType = documentType;
         this.inputFields = new HashSet<>(inputFields);
         this.expression = expression;
+        this.embeds = new ExpressionSearcher<>(EmbedExpression.class).containedIn(expression);
     }
 
     public Expression getExpression() { return expression; }
+
+    /** Returns whether this script contains an embed expression */
+    public boolean embeds() { return embeds; }
+
     public Document execute(AdapterFactory adapterFactory, Document document) {
         for (Iterator<Map.Entry<Field, FieldValue>> it = document.iterator(); it.hasNext(); ) {
             Map.Entry<Field, FieldValue> entry = it.next();
@@ -25,6 +25,7 @@ import com.yahoo.vespa.indexinglanguage.AdapterFactory;
 import com.yahoo.vespa.indexinglanguage.SimpleAdapterFactory;
 import com.yahoo.vespa.indexinglanguage.expressions.Expression;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
@@ -46,6 +47,7 @@ public class IndexingProcessor extends DocumentProcessor {
     private final DocumentTypeManager docTypeMgr;
     private final ScriptManager scriptMgr;
     private final AdapterFactory adapterFactory;
+    private final List<BatchingEmbedder> batchingEmbedders;
 
     private class ExpressionSelector extends SimpleAdapterFactory.SelectExpression {
         @Override
@@ -60,7 +62,9 @@ public class IndexingProcessor extends DocumentProcessor {
                              Linguistics linguistics,
                              ComponentRegistry<Embedder> embedders) {
         docTypeMgr = documentTypeManager;
-        scriptMgr = new ScriptManager(docTypeMgr, ilscriptsConfig, linguistics, toMap(embedders));
+        Map<String, Embedder> batchingEmbedderMap = toBatchingEmbedders(toMap(embedders));
+        batchingEmbedders = batchingEmbedderMap.values().stream().map(BatchingEmbedder.class::cast).toList();
+        scriptMgr = new ScriptManager(docTypeMgr, ilscriptsConfig, linguistics, batchingEmbedderMap);
         adapterFactory = new SimpleAdapterFactory(new ExpressionSelector());
     }
 
@@ -70,19 +74,25 @@ public class IndexingProcessor extends DocumentProcessor {
             return Progress.DONE;
         }
         List<DocumentOperation> out = new ArrayList<>(proc.getDocumentOperations().size());
-        for (DocumentOperation documentOperation : proc.getDocumentOperations()) {
-            if (documentOperation instanceof DocumentPut) {
-                processDocument((DocumentPut)documentOperation, out);
-            } else if (documentOperation instanceof DocumentUpdate) {
-                processUpdate((DocumentUpdate)documentOperation, out);
-            } else if (documentOperation instanceof DocumentRemove) {
-                processRemove((DocumentRemove)documentOperation, out);
-            } else if (documentOperation != null) {
-                throw new IllegalArgumentException("Document class " + documentOperation.getClass().getName() + " not supported.");
-            } else {
-                throw new IllegalArgumentException("Expected document, got null.");
+        try {
+            embedInBatch(proc.getDocumentOperations());
+            for (DocumentOperation documentOperation : proc.getDocumentOperations()) {
+                if (documentOperation instanceof DocumentPut) {
+                    processDocument((DocumentPut)documentOperation, out);
+                } else if (documentOperation instanceof DocumentUpdate) {
+                    processUpdate((DocumentUpdate)documentOperation, out);
+                } else if (documentOperation instanceof DocumentRemove) {
+                    processRemove((DocumentRemove)documentOperation, out);
+                } else if (documentOperation != null) {
+                    throw new IllegalArgumentException("Document class " + documentOperation.getClass().getName() + " not supported.");
+                } else {
+                    throw new IllegalArgumentException("Expected document, got null.");
+                }
             }
         }
+        finally {
+            batchingEmbedders.forEach(BatchingEmbedder::clear);
+        }
         proc.getDocumentOperations().clear();
         proc.getDocumentOperations().addAll(out);
         return Progress.DONE;
@@ -92,6 +102,37 @@ public class IndexingProcessor extends DocumentProcessor {
         return docTypeMgr;
     }
 
+    /**
+     * Computes the embeddings needed by the document puts among the given operations in one batch per embedder,
+     * by first running their indexing scripts on copies of the documents only to record the texts to embed.
+     * This is only done for puts having an indexing script which embeds, when there are at least two of them.
+     */
+    private void embedInBatch(List<DocumentOperation> operations) {
+        if (batchingEmbedders.isEmpty()) return;
+        List<DocumentPut> embeddingPuts = new ArrayList<>();
+        for (DocumentOperation operation : operations) {
+            if (operation instanceof DocumentPut put && embeds(scriptMgr.getScript(put.getDocument().getDataType())))
+                embeddingPuts.add(put);
+        }
+        if (embeddingPuts.size() < 2) return;
+
+        batchingEmbedders.forEach(BatchingEmbedder::record);
+        for (DocumentPut put : embeddingPuts) {
+            try {
+                scriptMgr.getScript(put.getDocument().getDataType()).execute(adapterFactory, put.getDocument().clone());
+            }
+            catch (RuntimeException e) {
+                // Errors are reported when the document is processed, which may still embed individually
+                log.log(Level.FINE, "Failed recording embeddings of document '%s'.", put.getId());
+            }
+        }
+        batchingEmbedders.forEach(BatchingEmbedder::embed);
+    }
+
+    private static boolean embeds(DocumentScript script) {
+        return script != null && script.embeds();
+    }
+
     private void processDocument(DocumentPut prev, List<DocumentOperation> out) {
         DocumentScript script = scriptMgr.getScript(prev.getDocument().getDataType());
         if (script == null) {
@@ -131,6 +172,12 @@ public class IndexingProcessor extends DocumentProcessor {
         out.add(prev);
     }
 
+    private static Map<String, Embedder> toBatchingEmbedders(Map<String, Embedder> embedders) {
+        Map<String, Embedder> batchingEmbedders = new HashMap<>();
+        embedders.forEach((id, embedder) -> batchingEmbedders.put(id, new BatchingEmbedder(embedder)));
+        return batchingEmbedders;
+    }
+
     private Map<String, Embedder> toMap(ComponentRegistry<Embedder> embedders) {
         var map = embedders.allComponentsById().entrySet().stream()
                     .collect(Collectors.toMap(e -> e.getKey().stringValue(), Map.Entry::getValue));
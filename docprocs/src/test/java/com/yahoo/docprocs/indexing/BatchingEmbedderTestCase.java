@@ -0,0 +1,79 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docprocs.indexing;
+
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class BatchingEmbedderTestCase {
+
+    private static final TensorType type = TensorType.fromSpec("tensor(x[2])");
+
+    @Test
+    public void testBatching() {
+        RecordingEmbedder recording = new RecordingEmbedder();
+        BatchingEmbedder embedder = new BatchingEmbedder(recording);
+        Embedder.Context context1 = new Embedder.Context("music.embedding1");
+        Embedder.Context context2 = new Embedder.Context("music.embedding2");
+
+        embedder.record();
+        assertEquals(Tensor.from(type, "[0, 0]"), embedder.embed("a", context1, type));
+        embedder.embed("bb", context1, type);
+        embedder.embed("a", context1, type);
+        embedder.embed("ccc", context2, type);
+        assertEquals(List.of(), recording.calls);
+
+        embedder.embed();
+        assertEquals(List.of("[a, bb]", "[ccc]"), recording.calls);
+
+        assertEquals(Tensor.from(type, "[1, 1]"), embedder.embed("a", context1, type));
+        assertEquals(Tensor.from(type, "[2, 2]"), embedder.embed("bb", context1, type));
+        assertEquals(Tensor.from(type, "[3, 3]"), embedder.embed("ccc", context2, type));
+        assertEquals(2, recording.calls.size());
+
+        assertEquals(Tensor.from(type, "[4, 4]"), embedder.embed("dddd", context1, type)); // not recorded
+        assertEquals(List.of("[a, bb]", "[ccc]", "dddd"), recording.calls);
+
+        embedder.clear();
+        embedder.embed("a", context1, type);
+        assertEquals(List.of("[a, bb]", "[ccc]", "dddd", "a"), recording.calls);
+    }
+
+    /** Records the texts of each call, and returns embeddings where all values are the text length */
+    static class RecordingEmbedder implements Embedder {
+
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public List<Integer> embed(String text, Context context) {
+            return List.of(text.length());
+        }
+
+        @Override
+        public Tensor embed(String text, Context context, TensorType tensorType) {
+            calls.add(text);
+            return embedding(text, tensorType);
+        }
+
+        @Override
+        public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+            calls.add(texts.toString());
+            return texts.stream().map(text -> embedding(text, tensorType)).toList();
+        }
+
+        private Tensor embedding(String text, TensorType type) {
+            return Tensor.Builder.of(type).cell(text.length(), 0).cell(text.length(), 1).build();
+        }
+
+    }
+
+}
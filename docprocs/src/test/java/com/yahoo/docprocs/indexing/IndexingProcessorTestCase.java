@@ -1,22 +1,28 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.docprocs.indexing;
 
+import com.yahoo.component.ComponentId;
 import com.yahoo.component.provider.ComponentRegistry;
 import com.yahoo.config.subscription.ConfigGetter;
 import com.yahoo.docproc.Processing;
+import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.TensorDataType;
 import com.yahoo.document.config.DocumentmanagerConfig;
 import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.TensorFieldValue;
 import com.yahoo.document.update.AssignValueUpdate;
 import com.yahoo.document.update.FieldUpdate;
 import com.yahoo.document.update.ValueUpdate;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.language.simple.SimpleLinguistics;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import org.junit.Test;
 
@@ -115,6 +121,48 @@ public class IndexingProcessorTestCase {
         assertSame(input, output);
     }
 
+    @Test
+    public void requireThatDocumentsAreEmbeddedInBatch() {
+        BatchingEmbedderTestCase.RecordingEmbedder embedder = new BatchingEmbedderTestCase.RecordingEmbedder();
+        IndexingProcessor indexer = newEmbeddingProcessor(embedder);
+        Processing proc = new Processing();
+        proc.getDocumentOperations().add(put(indexer, "article", "a"));
+        proc.getDocumentOperations().add(put(indexer, "article", "bb"));
+        indexer.process(proc);
+
+        assertEquals(List.of("[a, bb]"), embedder.calls);
+        assertEquals(2, proc.getDocumentOperations().size());
+        assertEquals(Tensor.from("tensor(x[2]):[1, 1]"), embeddingOf(proc.getDocumentOperations().get(0)));
+        assertEquals(Tensor.from("tensor(x[2]):[2, 2]"), embeddingOf(proc.getDocumentOperations().get(1)));
+    }
+
+    @Test
+    public void requireThatDocumentsWhichAreNotEmbeddedAreNotBatched() {
+        BatchingEmbedderTestCase.RecordingEmbedder embedder = new BatchingEmbedderTestCase.RecordingEmbedder();
+        IndexingProcessor indexer = newEmbeddingProcessor(embedder);
+        Processing proc = new Processing();
+        proc.getDocumentOperations().add(put(indexer, "article", "a"));
+        proc.getDocumentOperations().add(put(indexer, "note", "bb"));
+        proc.getDocumentOperations().add(put(indexer, "note", "ccc"));
+        indexer.process(proc);
+
+        assertEquals(List.of("a"), embedder.calls); // Embedded individually, as there is just one document to embed
+        assertEquals(3, proc.getDocumentOperations().size());
+        assertEquals(Tensor.from("tensor(x[2]):[1, 1]"), embeddingOf(proc.getDocumentOperations().get(0)));
+        assertEquals(new StringFieldValue("ccc"),
+                     ((DocumentPut)proc.getDocumentOperations().get(2)).getDocument().getFieldValue("title"));
+    }
+
+    private static DocumentPut put(IndexingProcessor indexer, String type, String text) {
+        Document document = new Document(indexer.getDocumentTypeManager().getDocumentType(type), "id:ns:" + type + "::" + text);
+        document.setFieldValue("text", new StringFieldValue(text));
+        return new DocumentPut(document);
+    }
+
+    private static Tensor embeddingOf(DocumentOperation operation) {
+        return ((TensorFieldValue)((DocumentPut)operation).getDocument().getFieldValue("embedding")).getTensor().get();
+    }
+
     private DocumentOperation process(DocumentOperation input) {
         Processing proc = new Processing();
         proc.getDocumentOperations().add(input);
@@ -132,4 +180,29 @@ public class IndexingProcessorTestCase {
                                      new SimpleLinguistics(),
                                      new ComponentRegistry<Embedder>());
     }
+
+    /** Returns a processor of the document type 'article', which embeds its text, and 'note', which does not */
+    private static IndexingProcessor newEmbeddingProcessor(Embedder embedder) {
+        DocumentTypeManager types = new DocumentTypeManager();
+        DocumentType article = new DocumentType("article");
+        article.addField("text", DataType.STRING);
+        article.addField("embedding", new TensorDataType(TensorType.fromSpec("tensor(x[2])")));
+        types.register(article);
+        DocumentType note = new DocumentType("note");
+        note.addField("text", DataType.STRING);
+        note.addField("title", DataType.STRING);
+        types.register(note);
+
+        IlscriptsConfig.Builder config = new IlscriptsConfig.Builder();
+        config.ilscript(new IlscriptsConfig.Ilscript.Builder().doctype("article")
+                                                              .docfield("text")
+                                                              .content("input text | embed | attribute embedding"));
+        config.ilscript(new IlscriptsConfig.Ilscript.Builder().doctype("note")
+                                                              .docfield("text")
+                                                              .content("input text | attribute title"));
+        ComponentRegistry<Embedder> embedders = new ComponentRegistry<>();
+        embedders.register(new ComponentId("recording"), embedder);
+        embedders.freeze();
+        return new IndexingProcessor(types, new IlscriptsConfig(config), new SimpleLinguistics(), embedders);
+    }
 }
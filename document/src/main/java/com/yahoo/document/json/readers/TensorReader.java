@@ -9,6 +9,7 @@ import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.text.DoubleParser;
 
 import static com.yahoo.document.json.readers.JsonParserHelpers.*;
 import static com.yahoo.tensor.serialization.JsonFormat.decodeHexString;
@@ -93,18 +94,18 @@ public class TensorReader {
                                                "Use 'cells' or 'blocks' instead");
         IndexedTensor.BoundBuilder indexedBuilder = (IndexedTensor.BoundBuilder)builder;
         if (buffer.currentToken() == JsonToken.VALUE_STRING) {
-            double[] decoded = decodeHexString(buffer.currentText(), builder.type().valueType());
-            if (decoded.length == 0)
+            if (decodeHexString(buffer.currentText(), indexedBuilder) == 0)
                 throw new IllegalArgumentException("The 'values' string does not contain any values");
-            for (int i = 0; i < decoded.length; i++) {
-                indexedBuilder.cellByDirectIndex(i, decoded[i]);
-            }
             return;
         }
         int index = 0;
         int initNesting = buffer.nesting();
+        boolean doubles = builder.type().valueType() == TensorType.Value.DOUBLE;
         for (buffer.next(); buffer.nesting() >= initNesting; buffer.next()) {
-            indexedBuilder.cellByDirectIndex(index++, readDouble(buffer));
+            if (doubles)
+                indexedBuilder.cellByDirectIndex(index++, readDouble(buffer));
+            else
+                indexedBuilder.cellByDirectIndex(index++, readFloat(buffer));
         }
         if (index == 0)
             throw new IllegalArgumentException("The 'values' array does not contain any values");
@@ -200,7 +201,16 @@ public class TensorReader {
 
     private static double readDouble(TokenBuffer buffer) {
         try {
-            return Double.parseDouble(buffer.currentText());
+            return DoubleParser.parseDouble(buffer.currentText());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number but got '" + buffer.currentText());
+        }
+    }
+
+    private static float readFloat(TokenBuffer buffer) {
+        try {
+            return DoubleParser.parseFloat(buffer.currentText());
         }
         catch (NumberFormatException e) {
             throw new IllegalArgumentException("Expected a number but got '" + buffer.currentText());
@@ -3,6 +3,7 @@ package com.yahoo.language.sentencepiece;
 
 import com.yahoo.io.IOUtils;
 import com.yahoo.language.Language;
+import com.yahoo.language.tools.CodePointTrie;
 import sentencepiece.SentencepieceModel;
 
 import java.io.IOException;
@@ -19,7 +20,13 @@ final class Model {
     final Language language;
     final float minScore;
     final float maxScore;
-    final Trie tokens = new Trie();
+    final CodePointTrie tokens;
+
+    /** The type of each token, by id */
+    final TokenType[] types;
+
+    /** The score of each token, by id */
+    final float[] scores;
 
     Model(Language language, Path path) {
         try {
@@ -28,12 +35,18 @@ final class Model {
             var sp = SentencepieceModel.ModelProto.parseFrom(IOUtils.readFileBytes(path.toFile()));
             float minScore = Float.MAX_VALUE;
             float maxScore = Float.MIN_VALUE;
+            CodePointTrie.Builder tokensBuilder = new CodePointTrie.Builder();
+            this.types = new TokenType[sp.getPiecesCount()];
+            this.scores = new float[sp.getPiecesCount()];
             for (int i = 0; i < sp.getPiecesCount(); i++) {
                 var piece = sp.getPieces(i);
-                tokens.add(toTokenType(piece.getType()), i, piece.getPiece(), piece.getScore());
+                tokensBuilder.add(piece.getPiece(), i);
+                types[i] = toTokenType(piece.getType());
+                scores[i] = piece.getScore();
                 minScore = Math.min(piece.getScore(), minScore);
                 maxScore = Math.max(piece.getScore(), maxScore);
             }
+            this.tokens = tokensBuilder.build();
             this.minScore = minScore;
             this.maxScore = maxScore;
         } catch (IOException e) {
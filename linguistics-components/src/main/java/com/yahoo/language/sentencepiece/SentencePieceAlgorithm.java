@@ -1,6 +1,8 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.language.sentencepiece;
 
+import com.yahoo.language.tools.CodePointTrie;
+
 /**
  * SentencePiece algorithm implementation
  *
@@ -8,8 +10,6 @@ package com.yahoo.language.sentencepiece;
  */
 class SentencePieceAlgorithm {
 
-    // TODO: Support characters beyond BMP
-
     static final char spaceSymbol = '▁';
 
     private final boolean collapseUnknowns;
@@ -25,20 +25,23 @@ class SentencePieceAlgorithm {
         segmentEnds[0] = new SegmentEnd(TokenType.unknown, 0, 0, 0, 0);
         int start = 0;
         while (start < input.length()) { // segment from this position to the end of the text
-            Trie.Node node = model.tokens.root;
+            int node = CodePointTrie.root;
             int characterPosition = start;
-            while (node != null && characterPosition < input.length()) { // traverse the trie one character at the time from this position
-                node = node.children.get(input.charAt(characterPosition++));
-                int length = characterPosition - start;
-                if (node != null && node.isToken() && node.type != TokenType.unused) {
-                    float score = node.type == TokenType.userDefined ? (length * model.maxScore - 0.1f) : node.score;
-                    addSegment(TokenType.text, node.id, start, characterPosition, score, segmentEnds);
+            while (node != CodePointTrie.none && characterPosition < input.length()) { // traverse the trie one code point at the time from this position
+                int codePoint = input.codePointAt(characterPosition);
+                characterPosition += Character.charCount(codePoint);
+                node = model.tokens.child(node, codePoint);
+                int id = node == CodePointTrie.none ? CodePointTrie.none : model.tokens.value(node);
+                if (id != CodePointTrie.none && model.types[id] != TokenType.unused) {
+                    float score = model.types[id] == TokenType.userDefined ? ((characterPosition - start) * model.maxScore - 0.1f)
+                                                                           : model.scores[id];
+                    addSegment(TokenType.text, id, start, characterPosition, score, segmentEnds);
                 }
-                else if (length == 1) { // add an 'unknown' length 1 token to make the next position reachable
-                    addSegment(TokenType.unknown, 0, start, start + 1, model.minScore - 10.0f, segmentEnds);
+                else if (start + Character.charCount(codePoint) == characterPosition) { // add an 'unknown' single character token to make the next position reachable
+                    addSegment(TokenType.unknown, 0, start, characterPosition, model.minScore - 10.0f, segmentEnds);
                 }
             }
-            start++;
+            start += Character.charCount(input.codePointAt(start));
         }
         resultBuilder.build(input, segmentEnds, collapseUnknowns);
     }
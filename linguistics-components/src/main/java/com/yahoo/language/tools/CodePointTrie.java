@@ -0,0 +1,158 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * An immutable trie of strings, where each string has an int value, and the edges are unicode code points.
+ *
+ * The trie is stored in a few flat arrays: Nodes are numbered in breadth first order, and the outgoing edges
+ * of each node are stored consecutively, sorted by code point. This makes traversal allocation free and
+ * cache friendly, and lets longest-match tokenization walk the text in place instead of looking up substrings.
+ *
+ * Traverse by starting at {@link #root} and calling {@link #child} for each code point.
+ *
+ * @author agent
+ */
+public final class CodePointTrie {
+
+    /** The root node of any trie */
+    public static final int root = 0;
+
+    /** The node returned when there is no child, and the value returned when a node is not the end of a string */
+    public static final int none = -1;
+
+    /** Nodes with more edges than this are searched by binary search rather than by scanning */
+    private static final int maxScannedEdges = 8;
+
+    /** The index of the first edge of each node, plus the edge count as the last element */
+    private final int[] firstEdge;
+
+    /** The code point of each edge */
+    private final int[] edgeCodePoints;
+
+    /** The node each edge leads to */
+    private final int[] edgeTargets;
+
+    /** The value of each node, or none if it is not the end of a string */
+    private final int[] values;
+
+    private CodePointTrie(int[] firstEdge, int[] edgeCodePoints, int[] edgeTargets, int[] values) {
+        this.firstEdge = firstEdge;
+        this.edgeCodePoints = edgeCodePoints;
+        this.edgeTargets = edgeTargets;
+        this.values = values;
+    }
+
+    /** Returns the node reached from the given node by the given code point, or none if there is no such node */
+    public int child(int node, int codePoint) {
+        int start = firstEdge[node];
+        int end = firstEdge[node + 1];
+        if (end - start <= maxScannedEdges) {
+            for (int edge = start; edge < end; edge++)
+                if (edgeCodePoints[edge] == codePoint) return edgeTargets[edge];
+            return none;
+        }
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleCodePoint = edgeCodePoints[middle];
+            if (middleCodePoint < codePoint)
+                low = middle + 1;
+            else if (middleCodePoint > codePoint)
+                high = middle - 1;
+            else
+                return edgeTargets[middle];
+        }
+        return none;
+    }
+
+    /** Returns the node reached from the given node by all the code points of the given string, or none */
+    public int child(int node, String string) {
+        for (int i = 0; i < string.length() && node != none; ) {
+            int codePoint = string.codePointAt(i);
+            node = child(node, codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return node;
+    }
+
+    /** Returns the value of the string ending in this node, or none if no string ends in it */
+    public int value(int node) { return values[node]; }
+
+    /** Returns the value of the given string, or none if it is not in this */
+    public int get(String string) {
+        int node = child(root, string);
+        return node == none ? none : values[node];
+    }
+
+    /** Returns the number of nodes in this */
+    public int nodeCount() { return values.length; }
+
+    public static class Builder {
+
+        private final BuilderNode root = new BuilderNode();
+
+        /**
+         * Adds a string with a value to this, replacing the value if the string is already added.
+         *
+         * @throws IllegalArgumentException if the value is negative
+         */
+        public Builder add(String string, int value) {
+            if (value < 0) throw new IllegalArgumentException("Values must be non-negative, but '" + string + "' has value " + value);
+            BuilderNode node = root;
+            for (int i = 0; i < string.length(); ) {
+                int codePoint = string.codePointAt(i);
+                node = node.children.computeIfAbsent(codePoint, __ -> new BuilderNode());
+                i += Character.charCount(codePoint);
+            }
+            node.value = value;
+            return this;
+        }
+
+        public CodePointTrie build() {
+            List<BuilderNode> nodes = new ArrayList<>();
+            Queue<BuilderNode> queue = new ArrayDeque<>();
+            queue.add(root);
+            while ( ! queue.isEmpty()) {
+                BuilderNode node = queue.remove();
+                node.index = nodes.size();
+                nodes.add(node);
+                queue.addAll(node.children.values());
+            }
+
+            int[] firstEdge = new int[nodes.size() + 1];
+            int[] edgeCodePoints = new int[nodes.size() - 1];
+            int[] edgeTargets = new int[nodes.size() - 1];
+            int[] values = new int[nodes.size()];
+            int edge = 0;
+            for (BuilderNode node : nodes) {
+                firstEdge[node.index] = edge;
+                values[node.index] = node.value;
+                for (Map.Entry<Integer, BuilderNode> child : node.children.entrySet()) {
+                    edgeCodePoints[edge] = child.getKey();
+                    edgeTargets[edge] = child.getValue().index;
+                    edge++;
+                }
+            }
+            firstEdge[nodes.size()] = edge;
+            return new CodePointTrie(firstEdge, edgeCodePoints, edgeTargets, values);
+        }
+
+    }
+
+    private static class BuilderNode {
+
+        final TreeMap<Integer, BuilderNode> children = new TreeMap<>();
+        int value = none;
+        int index;
+
+    }
+
+}
@@ -1,11 +1,11 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.language.wordpiece;
 
-import com.yahoo.collections.Tuple2;
 import com.yahoo.language.Language;
 import com.yahoo.language.process.StemMode;
 import com.yahoo.language.process.Token;
 import com.yahoo.language.process.Tokenizer;
+import com.yahoo.language.tools.CodePointTrie;
 
 import java.io.BufferedReader;
 import java.io.FileInputStream;
@@ -14,13 +14,9 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 /**
  * A WordPiece embedder "model" - just a vocabulary of strings with a fixed id (index).
@@ -37,7 +33,8 @@ class Model {
     private final String subwordPrefix;
     private final Path source;
     private final Language language;
-    private final NavigableMap<String, Integer> vocabulary;
+    private final CodePointTrie vocabulary;
+    private final int subwordRoot; // the node of the vocabulary trie reached by the subword prefix, or none
     private final Map<Integer, String> tokenId2Token;
 
     Model(String subwordPrefix, Language language, Path path) {
@@ -45,14 +42,14 @@ class Model {
         this.source = path;
         this.language = language;
 
-        this.vocabulary = new TreeMap<>(Collections.reverseOrder());
+        CodePointTrie.Builder vocabularyBuilder = new CodePointTrie.Builder();
         this.tokenId2Token = new HashMap<>();
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path.toFile()),
                                                                               StandardCharsets.UTF_8))) {
             String token;
             int i = 0;
             while ((token = reader.readLine()) != null) {
-                this.vocabulary.put(token, i);
+                vocabularyBuilder.add(token, i);
                 this.tokenId2Token.put(i, token);
                 i++;
             }
@@ -60,7 +57,8 @@ class Model {
         catch (IOException e) {
             throw new IllegalArgumentException("Could not read a WordPiece model from " + path, e);
         }
-
+        this.vocabulary = vocabularyBuilder.build();
+        this.subwordRoot = vocabulary.child(CodePointTrie.root, subwordPrefix);
     }
 
     Language language() { return language; }
@@ -69,41 +67,40 @@ class Model {
         List<Integer> ids = new ArrayList<>();
         text = text.toLowerCase();
         for (Token t : tokenizer.tokenize(text, language, StemMode.NONE, true)) {
-            String originalToken = t.getTokenString();
-            String candidate = originalToken;
-            int count = 0;
-            while (candidate.length() > 0 && !candidate.equals(subwordPrefix)) {
-                Tuple2<String, Integer> entry = findLongestSubstring(candidate);
-                if (entry == null) break;
-                ids.add(entry.second);
-                candidate = subwordPrefix + candidate.substring(entry.first.length());
-                if (count++ > originalToken.length()) break;
+            String token = t.getTokenString();
+            int start = 0;
+            while (start < token.length()) {
+                int end = addLongestMatch(token, start, start == 0 ? CodePointTrie.root : subwordRoot, ids);
+                if (end == start) break;
+                start = end;
             }
         }
-
         return ids;
     }
 
-    List<String> segment(String text, Tokenizer tokenizer) {
-        return embed(text, tokenizer).stream().map(tokenId -> tokenId2Token.get(tokenId)).toList();
+    /**
+     * Adds the id of the longest vocabulary entry matching the token from start, where the match is
+     * looked up from the given trie node, and returns the end of the match, or start if there is no match.
+     */
+    private int addLongestMatch(String token, int start, int node, List<Integer> ids) {
+        int matchEnd = start;
+        int matchId = CodePointTrie.none;
+        for (int i = start; i < token.length() && node != CodePointTrie.none; ) {
+            int codePoint = token.codePointAt(i);
+            node = vocabulary.child(node, codePoint);
+            i += Character.charCount(codePoint);
+            if (node != CodePointTrie.none && vocabulary.value(node) != CodePointTrie.none) {
+                matchEnd = i;
+                matchId = vocabulary.value(node);
+            }
+        }
+        if (matchEnd > start)
+            ids.add(matchId);
+        return matchEnd;
     }
 
-    private Tuple2<String, Integer> findLongestSubstring(String candidate) {
-        NavigableMap<String, Integer> tailMap = this.vocabulary.tailMap(candidate, true);
-        if (tailMap.isEmpty())
-            return null;
-        String longestSubstring = tailMap.firstKey();
-        Integer id = tailMap.firstEntry().getValue();
-        int subStringLength = Math.min(candidate.length(), longestSubstring.length());
-        while (!candidate.startsWith(longestSubstring)) {
-            subStringLength--;
-            tailMap = tailMap.tailMap(candidate.substring(0, subStringLength), true);
-            if (tailMap.isEmpty())
-                return null;
-            longestSubstring = tailMap.firstKey();
-            id = tailMap.firstEntry().getValue();
-        }
-        return new Tuple2<>(longestSubstring, id);
+    List<String> segment(String text, Tokenizer tokenizer) {
+        return embed(text, tokenizer).stream().map(tokenId -> tokenId2Token.get(tokenId)).toList();
     }
 
     @Override
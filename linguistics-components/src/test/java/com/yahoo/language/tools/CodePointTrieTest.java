@@ -0,0 +1,71 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.tools;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * @author agent
+ */
+public class CodePointTrieTest {
+
+    @Test
+    public void testTrie() {
+        CodePointTrie trie = new CodePointTrie.Builder().add("a", 1)
+                                                        .add("ab", 2)
+                                                        .add("abc", 3)
+                                                        .add("b", 4)
+                                                        .add("##b", 5)
+                                                        .add("😀x", 6) // an emoji beyond the BMP, then x
+                                                        .add("a", 7) // replaces
+                                                        .build();
+        assertEquals(7, trie.get("a"));
+        assertEquals(2, trie.get("ab"));
+        assertEquals(3, trie.get("abc"));
+        assertEquals(4, trie.get("b"));
+        assertEquals(5, trie.get("##b"));
+        assertEquals(6, trie.get("😀x"));
+        assertEquals(CodePointTrie.none, trie.get("abcd"));
+        assertEquals(CodePointTrie.none, trie.get("#"));
+        assertEquals(CodePointTrie.none, trie.get("😀"));
+        assertEquals(CodePointTrie.none, trie.get(""));
+
+        int node = trie.child(CodePointTrie.root, "##");
+        assertNotEquals(CodePointTrie.none, node);
+        assertEquals(CodePointTrie.none, trie.value(node));
+        assertEquals(5, trie.value(trie.child(node, 'b')));
+        assertEquals(CodePointTrie.none, trie.child(node, 'c'));
+        assertEquals(CodePointTrie.none, trie.child(CodePointTrie.root, "xyz"));
+    }
+
+    @Test
+    public void testLargeTrie() {
+        Random random = new Random(1);
+        Map<String, Integer> strings = new HashMap<>();
+        CodePointTrie.Builder builder = new CodePointTrie.Builder();
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder b = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++)
+                b.appendCodePoint(random.nextInt(10) == 0 ? 0x1F600 + random.nextInt(50) : 'a' + random.nextInt(26));
+            strings.put(b.toString(), i);
+            builder.add(b.toString(), i);
+        }
+        CodePointTrie trie = builder.build();
+        for (Map.Entry<String, Integer> string : strings.entrySet())
+            assertEquals(string.getValue().intValue(), trie.get(string.getKey()));
+        assertEquals(CodePointTrie.none, trie.get("aaaaaaa"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValue() {
+        new CodePointTrie.Builder().add("a", -1);
+    }
+
+}
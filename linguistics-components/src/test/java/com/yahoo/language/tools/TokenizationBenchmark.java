@@ -0,0 +1,53 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.tools;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.Embedder;
+import com.yahoo.language.sentencepiece.SentencePieceEmbedder;
+import com.yahoo.language.wordpiece.WordPieceEmbedder;
+
+import java.util.List;
+
+/**
+ * Measures the time to tokenize short query-like texts with the WordPiece and SentencePiece embedders.
+ *
+ * @author agent
+ */
+public class TokenizationBenchmark {
+
+    private static final List<String> texts = List.of("what was the impact of the manhattan project",
+                                                      "overcommunication",
+                                                      "how to tokenize text quickly",
+                                                      "best restaurants near me",
+                                                      "hyperparameter optimization for gradient boosted decision trees",
+                                                      "vespa");
+
+    public void benchmark() {
+        Embedder wordPiece = new WordPieceEmbedder.Builder("src/test/models/wordpiece/bert-base-uncased-vocab.txt").build();
+        Embedder sentencePiece = new SentencePieceEmbedder.Builder("src/test/models/sentencepiece/en.wiki.bpe.vs10000.model").build();
+        benchmark("WordPiece", wordPiece);
+        benchmark("SentencePiece", sentencePiece);
+    }
+
+    private void benchmark(String name, Embedder embedder) {
+        int runs = 200000;
+        Embedder.Context context = new Embedder.Context("query(q)").setLanguage(Language.ENGLISH);
+        long checksum = tokenize(embedder, context, runs); // warmup
+        long startTime = System.nanoTime();
+        checksum += tokenize(embedder, context, runs);
+        long totalTime = System.nanoTime() - startTime;
+        System.out.println(name + ": " + (totalTime / runs / texts.size()) + " nanoseconds per text (checksum " + checksum + ")");
+    }
+
+    private long tokenize(Embedder embedder, Embedder.Context context, int runs) {
+        long tokens = 0;
+        for (int i = 0; i < runs; i++)
+            tokens += embedder.embed(texts.get(i % texts.size()), context).size();
+        return tokens;
+    }
+
+    public static void main(String[] args) {
+        new TokenizationBenchmark().benchmark();
+    }
+
+}
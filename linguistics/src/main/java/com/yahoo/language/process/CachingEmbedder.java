@@ -0,0 +1,75 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An embedder which caches the tensor embeddings produced by another embedder.
+ * Token id embeddings are not cached as they are cheap to produce.
+ *
+ * This should only be used with embedders whose tensor embeddings depend only on the text, its language
+ * and the tensor type, and not on the destination of the context.
+ *
+ * @author agent
+ */
+public class CachingEmbedder implements Embedder {
+
+    private final String embedderId;
+    private final Embedder embedder;
+    private final EmbeddingCache cache;
+
+    /** Creates a caching embedder with a cache of its own holding at most the given number of embeddings */
+    public CachingEmbedder(Embedder embedder, int maxSize) {
+        this(defaultEmbedderId, embedder, new EmbeddingCache(maxSize));
+    }
+
+    /**
+     * Creates a caching embedder using the given cache, which may be shared with other embedders
+     *
+     * @param embedderId the id identifying embeddings produced by the given embedder in the cache
+     * @param embedder the embedder to cache the embeddings of
+     * @param cache the cache to use
+     */
+    public CachingEmbedder(String embedderId, Embedder embedder, EmbeddingCache cache) {
+        this.embedderId = embedderId;
+        this.embedder = embedder;
+        this.cache = cache;
+    }
+
+    /** Returns the embedder whose embeddings are cached by this */
+    public Embedder embedder() { return embedder; }
+
+    /** Returns the cache used by this */
+    public EmbeddingCache cache() { return cache; }
+
+    @Override
+    public List<Integer> embed(String text, Context context) {
+        return embedder.embed(text, context);
+    }
+
+    @Override
+    public Tensor embed(String text, Context context, TensorType tensorType) {
+        return cache.get(embedderId, text, context, tensorType, () -> embedder.embed(text, context, tensorType));
+    }
+
+    /** Embeds the texts not found in the cache in a single call to the wrapped embedder */
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        return cache.get(embedderId, texts, context, tensorType, missingTexts -> embedder.embed(missingTexts, context, tensorType));
+    }
+
+    /** Returns the given embedders, each wrapped in a caching embedder using the given shared cache, by their ids */
+    public static Map<String, Embedder> wrap(Map<String, Embedder> embedders, EmbeddingCache cache) {
+        Map<String, Embedder> wrapped = new LinkedHashMap<>();
+        for (Map.Entry<String, Embedder> embedder : embedders.entrySet())
+            wrapped.put(embedder.getKey(), new CachingEmbedder(embedder.getKey(), embedder.getValue(), cache));
+        return Collections.unmodifiableMap(wrapped);
+    }
+
+}
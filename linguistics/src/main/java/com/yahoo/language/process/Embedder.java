@@ -5,6 +5,7 @@ import com.yahoo.language.Language;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -53,6 +54,24 @@ public interface Embedder {
      */
     Tensor embed(String text, Context context, TensorType tensorType);
 
+    /**
+     * Converts a list of texts into tokens in tensors.
+     * Embedders which can embed multiple texts more efficiently together should override this;
+     * the default implementation embeds each text in turn.
+     *
+     * @param texts the texts to embed
+     * @param context the context which may influence an embedder's behavior, the same for all the texts
+     * @param tensorType the type of the tensors to be returned
+     * @return the tensor embeddings of the texts, in the same order as the texts
+     * @throws IllegalArgumentException if the language or tensor type is not supported by this embedder
+     */
+    default List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        List<Tensor> tensors = new ArrayList<>(texts.size());
+        for (String text : texts)
+            tensors.add(embed(text, context, tensorType));
+        return tensors;
+    }
+
     class Context {
 
         private Language language = Language.UNKNOWN;
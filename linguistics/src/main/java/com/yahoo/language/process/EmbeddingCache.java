@@ -0,0 +1,175 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import com.yahoo.language.Language;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A size bounded cache of tensor embeddings, keyed on the embedder id, the text, its language and the tensor type.
+ * When full, the least recently used embedding is evicted. A cache may be shared between embedders with different ids.
+ *
+ * This is thread safe.
+ *
+ * @author agent
+ */
+public class EmbeddingCache {
+
+    private final int maxSize;
+    private final Map<Key, Tensor> embeddings;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Creates a cache holding at most the given number of embeddings */
+    public EmbeddingCache(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be positive, not " + maxSize);
+        this.maxSize = maxSize;
+        this.embeddings = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Tensor> eldest) { return size() > EmbeddingCache.this.maxSize; }
+        };
+    }
+
+    /**
+     * Returns the cached embedding of the given text, or computes and caches it if it is not present.
+     * The embedding is computed without holding any lock, so concurrent misses on the same key
+     * may compute it more than once.
+     *
+     * @param embedderId the id of the embedder producing the embedding
+     * @param text the text to embed
+     * @param context the context of the embedding, of which the language is part of the key
+     * @param type the type of the tensor embedding
+     * @param embedding computes the embedding if it is not cached
+     * @return the embedding of the text
+     */
+    public Tensor get(String embedderId, String text, Embedder.Context context, TensorType type, Supplier<Tensor> embedding) {
+        Optional<Tensor> cached = get(embedderId, text, context, type);
+        if (cached.isPresent()) return cached.get();
+
+        Tensor computed = embedding.get();
+        put(embedderId, text, context, type, computed);
+        return computed;
+    }
+
+    /**
+     * Returns the cached embeddings of the given texts, computing and caching those not present
+     * in a single call to the given function.
+     *
+     * @param embedderId the id of the embedder producing the embeddings
+     * @param texts the texts to embed
+     * @param context the context of the embeddings, of which the language is part of the key
+     * @param type the type of the tensor embeddings
+     * @param embedding computes the embeddings of the texts which are not cached, in the order given
+     * @return the embeddings of the texts, in the same order as the texts
+     */
+    public List<Tensor> get(String embedderId, List<String> texts, Embedder.Context context, TensorType type,
+                            Function<List<String>, List<Tensor>> embedding) {
+        List<Tensor> tensors = new ArrayList<>(texts.size());
+        List<String> missingTexts = new ArrayList<>();
+        for (String text : texts) {
+            Optional<Tensor> cached = get(embedderId, text, context, type);
+            tensors.add(cached.orElse(null));
+            if (cached.isEmpty())
+                missingTexts.add(text);
+        }
+        if (missingTexts.isEmpty()) return tensors;
+
+        List<Tensor> computed = embedding.apply(missingTexts);
+        for (int i = 0, missing = 0; i < tensors.size(); i++) {
+            if (tensors.get(i) != null) continue;
+            Tensor tensor = computed.get(missing++);
+            tensors.set(i, tensor);
+            put(embedderId, texts.get(i), context, type, tensor);
+        }
+        return tensors;
+    }
+
+    /** Returns the cached embedding of the given text, or empty if it is not present */
+    public Optional<Tensor> get(String embedderId, String text, Embedder.Context context, TensorType type) {
+        Tensor cached;
+        synchronized (embeddings) {
+            cached = embeddings.get(new Key(embedderId, text, context.getLanguage(), type));
+        }
+        (cached != null ? hits : misses).incrementAndGet();
+        return Optional.ofNullable(cached);
+    }
+
+    /** Adds an embedding of the given text to this */
+    public void put(String embedderId, String text, Embedder.Context context, TensorType type, Tensor embedding) {
+        synchronized (embeddings) {
+            embeddings.put(new Key(embedderId, text, context.getLanguage(), type), embedding);
+        }
+    }
+
+    /** Returns the max number of embeddings held by this */
+    public int maxSize() { return maxSize; }
+
+    /** Returns the number of embeddings currently held by this */
+    public int size() {
+        synchronized (embeddings) {
+            return embeddings.size();
+        }
+    }
+
+    /** Returns the number of lookups which found the embedding in this */
+    public long hits() { return hits.get(); }
+
+    /** Returns the number of lookups which did not find the embedding in this */
+    public long misses() { return misses.get(); }
+
+    /** Returns the share of lookups which found the embedding in this, or 0 if there have been no lookups */
+    public double hitRate() {
+        long hits = this.hits.get();
+        long lookups = hits + misses.get();
+        return lookups == 0 ? 0 : (double)hits / lookups;
+    }
+
+    /** Removes all embeddings from this */
+    public void clear() {
+        synchronized (embeddings) {
+            embeddings.clear();
+        }
+    }
+
+    private static class Key {
+
+        private final String embedderId;
+        private final String text;
+        private final Language language;
+        private final TensorType type;
+        private final int hashCode;
+
+        Key(String embedderId, String text, Language language, TensorType type) {
+            this.embedderId = embedderId;
+            this.text = text;
+            this.language = language;
+            this.type = type;
+            this.hashCode = Objects.hash(embedderId, text, language, type);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key other)) return false;
+            return embedderId.equals(other.embedderId) && text.equals(other.text) &&
+                   language == other.language && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+    }
+
+}
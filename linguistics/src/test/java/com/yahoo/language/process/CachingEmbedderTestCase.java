@@ -0,0 +1,128 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.process;
+
+import com.yahoo.language.Language;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ */
+public class CachingEmbedderTestCase {
+
+    private static final TensorType type1 = TensorType.fromSpec("tensor(x[2])");
+    private static final TensorType type2 = TensorType.fromSpec("tensor(x[3])");
+
+    @Test
+    public void testCaching() {
+        CountingEmbedder counting = new CountingEmbedder();
+        CachingEmbedder embedder = new CachingEmbedder(counting, 10);
+        Embedder.Context context = new Embedder.Context("query(q)");
+
+        Tensor embedding = embedder.embed("hello", context, type1);
+        assertSame(embedding, embedder.embed("hello", context, type1));
+        assertSame(embedding, embedder.embed("hello", new Embedder.Context("doc.field"), type1));
+        assertEquals(1, counting.embeddings);
+
+        embedder.embed("hello", context, type2);
+        embedder.embed("hello", new Embedder.Context("query(q)").setLanguage(Language.FRENCH), type1);
+        embedder.embed("world", context, type1);
+        assertEquals(4, counting.embeddings);
+        assertEquals(2, embedder.cache().hits());
+        assertEquals(4, embedder.cache().misses());
+        assertEquals(2 / 6.0, embedder.cache().hitRate(), 1e-9);
+
+        assertEquals(List.of(5), embedder.embed("hello", context));
+    }
+
+    @Test
+    public void testEviction() {
+        CountingEmbedder counting = new CountingEmbedder();
+        CachingEmbedder embedder = new CachingEmbedder(counting, 2);
+        Embedder.Context context = new Embedder.Context("query(q)");
+
+        embedder.embed("a", context, type1);
+        embedder.embed("b", context, type1);
+        embedder.embed("a", context, type1); // b is now least recently used
+        embedder.embed("c", context, type1);
+        assertEquals(2, embedder.cache().size());
+        assertEquals(3, counting.embeddings);
+
+        embedder.embed("a", context, type1);
+        assertEquals(3, counting.embeddings);
+        embedder.embed("b", context, type1);
+        assertEquals(4, counting.embeddings);
+    }
+
+    @Test
+    public void testSharedCache() {
+        CountingEmbedder counting1 = new CountingEmbedder();
+        CountingEmbedder counting2 = new CountingEmbedder();
+        EmbeddingCache cache = new EmbeddingCache(10);
+        Map<String, Embedder> embedders = CachingEmbedder.wrap(Map.of("e1", counting1, "e2", counting2), cache);
+        Embedder.Context context = new Embedder.Context("query(q)");
+
+        embedders.get("e1").embed("hello", context, type1);
+        embedders.get("e2").embed("hello", context, type1);
+        embedders.get("e1").embed("hello", context, type1);
+        assertEquals(1, counting1.embeddings);
+        assertEquals(1, counting2.embeddings);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void testBatchEmbedding() {
+        CountingEmbedder counting = new CountingEmbedder();
+        CachingEmbedder embedder = new CachingEmbedder(counting, 10);
+        Embedder.Context context = new Embedder.Context("doc.field");
+
+        Tensor cached = embedder.embed("bb", context, type1);
+        List<Tensor> tensors = embedder.embed(List.of("a", "bb", "ccc"), context, type1);
+        assertEquals(3, tensors.size());
+        assertSame(cached, tensors.get(1));
+        assertEquals(Tensor.from(type1, "[1, 2]"), tensors.get(0));
+        assertEquals(Tensor.from(type1, "[3, 4]"), tensors.get(2));
+        assertEquals(1, counting.batches);
+        assertEquals(3, counting.embeddings);
+
+        embedder.embed(List.of("a", "ccc"), context, type1);
+        assertEquals(1, counting.batches);
+        assertEquals(3, counting.embeddings);
+    }
+
+    private static class CountingEmbedder implements Embedder {
+
+        int embeddings = 0;
+        int batches = 0;
+
+        @Override
+        public List<Integer> embed(String text, Context context) {
+            return List.of(text.length());
+        }
+
+        @Override
+        public Tensor embed(String text, Context context, TensorType tensorType) {
+            embeddings++;
+            Tensor.Builder builder = Tensor.Builder.of(tensorType);
+            for (int i = 0; i < tensorType.dimensions().get(0).size().get(); i++)
+                builder.cell(text.length() + i, i);
+            return builder.build();
+        }
+
+        @Override
+        public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+            batches++;
+            return Embedder.super.embed(texts, context, tensorType);
+        }
+
+    }
+
+}
@@ -2,13 +2,16 @@
 package ai.vespa.models.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestBatchEvaluator;
 import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -21,11 +24,13 @@ public class FunctionEvaluator {
 
     private final ExpressionFunction function;
     private final LazyArrayContext context;
+    private final Model model;
     private boolean evaluated = false;
 
-    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context, Model model) {
         this.function = function;
         this.context = context;
+        this.model = model;
     }
 
     /**
@@ -101,12 +106,115 @@ public class FunctionEvaluator {
         return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
     }
 
+    /**
+     * Sets whether this should take the values of the tensors it computes from an arena owned by the current thread,
+     * which is reused by later evaluations of any function in the thread, such that steady state evaluation
+     * allocates (nearly) no new tensor values. This is only safe if no tensor computed by the evaluation is used
+     * after it, except the returned result, including values read from the context of this.
+     * An evaluator using an arena must be evaluated in the thread calling this. Default is false.
+     *
+     * @return this for chaining
+     */
+    public FunctionEvaluator useArena(boolean useArena) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot change arena usage in a used evaluator");
+        context.useArena(useArena);
+        return this;
+    }
+
+    /**
+     * Sets whether this may evaluate the outermost dimension of large dense tensor operations in parallel
+     * on the common fork-join pool. This does not change the result of the evaluation. Default is false.
+     *
+     * @return this for chaining
+     */
+    public FunctionEvaluator useParallelEvaluation(boolean parallel) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot change parallel evaluation in a used evaluator");
+        context.useParallelEvaluation(parallel);
+        return this;
+    }
+
     public Tensor evaluate() {
+        context.requireArenaThread();
         function.argumentTypes().entrySet().stream().sorted(Map.Entry.comparingByKey())
                 .forEach(argument -> checkArgument(argument.getKey(), argument.getValue()));
         evaluated = true;
         evaluateOnnxModels();
-        return function.getBody().evaluate(context).asTensor();
+        Tensor result = null;
+        try {
+            result = function.getBody().evaluate(context).asTensor();
+            return result;
+        }
+        finally {
+            if (context.arena() != null)
+                context.arena().release(result);
+        }
+    }
+
+    /**
+     * Evaluates this function for many candidates at once, each given by a scalar value of each argument.
+     * Functions which are decision forests over their arguments are evaluated for all the candidates together,
+     * which is much faster than evaluating each in turn. Other functions are evaluated for each candidate in turn.
+     *
+     * @param arguments the value of each argument for each candidate, by argument name. All arrays must have the
+     *                  same length, the number of candidates. Arguments not given have the value bound in this,
+     *                  or the missing value.
+     * @return the value of this function, which must be a scalar, for each candidate
+     * @throws IllegalStateException if an argument which is not given is invalid, as in {@link #evaluate}
+     */
+    public double[] evaluateBatch(Map<String, double[]> arguments) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot evaluate a used evaluator");
+        if (arguments.isEmpty())
+            throw new IllegalArgumentException("At least one argument must be given to evaluate a batch");
+        int size = arguments.values().iterator().next().length;
+        for (Map.Entry<String, double[]> argument : arguments.entrySet()) {
+            TensorType requiredType = function.getArgumentType(argument.getKey());
+            if (requiredType == null)
+                throw new IllegalArgumentException("'" + argument.getKey() + "' is not a valid argument in " + function);
+            if (requiredType.rank() > 0)
+                throw new IllegalArgumentException("'" + argument.getKey() + "' must be of type " + requiredType +
+                                                   ", but only scalar arguments can be evaluated in batches");
+            if (argument.getValue().length != size)
+                throw new IllegalArgumentException("All arguments must have the same number of values, but '" +
+                                                   argument.getKey() + "' has " + argument.getValue().length +
+                                                   " while others have " + size);
+        }
+        function.argumentTypes().entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .filter(argument -> ! arguments.containsKey(argument.getKey()))
+                .forEach(argument -> checkArgument(argument.getKey(), argument.getValue()));
+        evaluated = true;
+
+        Optional<GBDTForestBatchEvaluator> forest = context.onnxModels().isEmpty() ? model.batchForestOf(function)
+                                                                                   : Optional.empty();
+        if (forest.isPresent())
+            return evaluateForest(forest.get(), arguments, size);
+
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            FunctionEvaluator candidate = new FunctionEvaluator(function, context.copy(), model);
+            for (Map.Entry<String, double[]> argument : arguments.entrySet())
+                candidate.bind(argument.getKey(), argument.getValue()[i]);
+            result[i] = candidate.evaluate().asDouble();
+        }
+        return result;
+    }
+
+    private double[] evaluateForest(GBDTForestBatchEvaluator forest, Map<String, double[]> arguments, int size) {
+        int[] variables = forest.variables();
+        double[][] features = new double[context.size()][];
+        for (String name : context.arguments()) {
+            int index = context.getIndex(name);
+            if (Arrays.binarySearch(variables, index) < 0) continue; // not read by the forest
+            double[] values = arguments.get(name);
+            if (values == null) {
+                values = new double[size];
+                Arrays.fill(values, context.getDouble(index));
+            }
+            features[index] = values;
+        }
+        return forest.evaluate(features, size);
     }
 
     private void checkArgument(String name, TensorType type) {
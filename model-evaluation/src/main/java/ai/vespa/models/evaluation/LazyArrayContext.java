@@ -15,6 +15,7 @@ import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
 import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
 import com.yahoo.stream.CustomCollectors;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorArena;
 import com.yahoo.tensor.TensorType;
 
 import java.util.Arrays;
@@ -36,6 +37,20 @@ public final class LazyArrayContext extends Context implements ContextIndex {
     private final ExpressionFunction function;
     private final IndexedBindings indexedBindings;
 
+    /**
+     * The arena of each thread, shared by all functions evaluated in it, such that the memory kept for reuse
+     * is bounded by the max size of one arena per thread
+     */
+    private static final ThreadLocal<TensorArena> arenas = ThreadLocal.withInitial(TensorArena::new);
+
+    /** The arena used by this, or null if none */
+    private TensorArena arena = null;
+
+    /** The thread owning the arena used by this, or null if none */
+    private Thread arenaThread = null;
+
+    private boolean parallel = false;
+
     private LazyArrayContext(ExpressionFunction function, IndexedBindings indexedBindings) {
         this.function = function;
         this.indexedBindings = indexedBindings.copy(this);
@@ -51,6 +66,33 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         this.indexedBindings = new IndexedBindings(function, referencedFunctions, constants, onnxModels, this, model);
     }
 
+    /**
+     * Sets whether the values of tensors computed in this should be taken from an arena owned by the current thread,
+     * which is reused by all evaluations in that thread.
+     */
+    void useArena(boolean useArena) {
+        arena = useArena ? arenas.get() : null;
+        arenaThread = useArena ? Thread.currentThread() : null;
+    }
+
+    /** Throws an IllegalStateException if this uses an arena owned by another thread than the current */
+    void requireArenaThread() {
+        if (arenaThread != null && arenaThread != Thread.currentThread())
+            throw new IllegalStateException("An evaluator using an arena must be evaluated in the thread which called " +
+                                            "useArena, " + arenaThread.getName() + ", not in " + Thread.currentThread().getName());
+    }
+
+    @Override
+    public TensorArena arena() { return arena; }
+
+    /** Sets whether large tensor operations in this may be evaluated in parallel */
+    void useParallelEvaluation(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    @Override
+    public boolean parallel() { return parallel; }
+
     /**
      * Sets the value to use for lookups to existing values which are not set in this context.
      * The default value that will be returned is NaN
@@ -111,6 +153,11 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return requireIndexOf(name);
     }
 
+    @Override
+    public Integer indexOf(String name) {
+        return indexedBindings.indexOf(name);
+    }
+
     @Override
     public int size() {
         return indexedBindings.names().size();
@@ -3,8 +3,14 @@ package ai.vespa.models.evaluation;
 
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.compilation.CompiledNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestBatchEvaluator;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
 import com.yahoo.stream.CustomCollectors;
 import com.yahoo.tensor.TensorType;
 
@@ -14,6 +20,9 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +52,9 @@ public class Model {
 
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
+    /** Batch evaluators of the free functions which are decision forests over their arguments, created on first use */
+    private final Map<String, Optional<GBDTForestBatchEvaluator>> batchForests = new ConcurrentHashMap<>();
+
     /** Programmatically create a model containing functions without constant of function references only */
     public Model(String name, Collection<ExpressionFunction> functions) {
         this(name,
@@ -110,6 +122,37 @@ public class Model {
         return function;
     }
 
+    /**
+     * Returns an evaluator of the given free function for many candidates at once,
+     * or empty if the function is not a decision forest reading only its arguments.
+     */
+    Optional<GBDTForestBatchEvaluator> batchForestOf(ExpressionFunction function) {
+        return batchForests.computeIfAbsent(function.getName(), __ -> createBatchForest(function));
+    }
+
+    private Optional<GBDTForestBatchEvaluator> createBatchForest(ExpressionFunction function) {
+        LazyArrayContext context = requireContextPrototype(function.getName());
+        // Optimize a copy, as free functions are evaluated unoptimized. The optimizer is not thread safe.
+        RankingExpression expression = new RankingExpression(function.getBody().getName(), function.getBody().getRoot());
+        new ExpressionOptimizer().optimize(expression, context);
+        ExpressionNode root = expression.getRoot();
+        if (root instanceof CompiledNode compiled)
+            root = compiled.source();
+
+        GBDTForestBatchEvaluator forest;
+        if (root instanceof GBDTForestNode forestNode)
+            forest = new GBDTForestBatchEvaluator(forestNode);
+        else if (root instanceof GBDTNode treeNode)
+            forest = new GBDTForestBatchEvaluator(treeNode);
+        else
+            return Optional.empty();
+
+        Set<Integer> argumentIndexes = context.arguments().stream().map(context::getIndex).collect(Collectors.toSet());
+        for (int variable : forest.variables())
+            if ( ! argumentIndexes.contains(variable)) return Optional.empty(); // Depends on other functions
+        return Optional.of(forest);
+    }
+
     public String name() { return name; }
 
     /**
@@ -212,7 +255,7 @@ public class Model {
 
     /** Returns a single-use evaluator of a function */
     private FunctionEvaluator evaluatorOf(ExpressionFunction function) {
-        return new FunctionEvaluator(function, requireContextPrototype(function.getName()).copy());
+        return new FunctionEvaluator(function, requireContextPrototype(function.getName()).copy(), this);
     }
 
     private void throwUndeterminedFunction(String message) {
@@ -5,11 +5,13 @@ import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
 import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
 import com.yahoo.vespa.config.search.core.RankingExpressionsConfig;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
 
@@ -25,7 +27,24 @@ public class ModelsEvaluator extends AbstractComponent {
 
     private final Map<String, Model> models;
 
+    /**
+     * Creates this from config and warms up all the models by evaluating their functions with synthetic arguments
+     * as configured, such that the models are ready to serve with full speed when this is constructed.
+     */
     @Inject
+    public ModelsEvaluator(ModelsEvaluatorConfig evaluatorConfig,
+                           RankProfilesConfig config,
+                           RankingConstantsConfig constantsConfig,
+                           RankingExpressionsConfig expressionsConfig,
+                           OnnxModelsConfig onnxModelsConfig,
+                           FileAcquirer fileAcquirer,
+                           Metric metric) {
+        this(new RankProfilesConfigImporter(fileAcquirer, metric), config, constantsConfig, expressionsConfig, onnxModelsConfig);
+        new WarmUp(evaluatorConfig.warmUpIterations(),
+                   Duration.ofMillis((long)(evaluatorConfig.warmUpMaxSeconds() * 1000)),
+                   metric).run(models);
+    }
+
     public ModelsEvaluator(RankProfilesConfig config,
                            RankingConstantsConfig constantsConfig,
                            RankingExpressionsConfig expressionsConfig,
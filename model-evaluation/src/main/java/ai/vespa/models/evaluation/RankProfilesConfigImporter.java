@@ -7,6 +7,7 @@ import com.yahoo.config.FileReference;
 import com.yahoo.filedistribution.fileacquirer.FileAcquirer;
 import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.io.IOUtils;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.searchlib.rankingexpression.parser.ParseException;
@@ -24,6 +25,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -45,10 +49,19 @@ import java.util.regex.Pattern;
  */
 public class RankProfilesConfigImporter {
 
+    /** Constant files smaller than this are read to the heap instead of being mapped into memory */
+    private static final long minMappedFileSize = 1024 * 1024;
+
     private final FileAcquirer fileAcquirer;
+    private final Metric metric; // null if ONNX batching metrics should not be emitted
 
     public RankProfilesConfigImporter(FileAcquirer fileAcquirer) {
+        this(fileAcquirer, null);
+    }
+
+    public RankProfilesConfigImporter(FileAcquirer fileAcquirer, Metric metric) {
         this.fileAcquirer = fileAcquirer;
+        this.metric = metric;
     }
 
     /**
@@ -182,6 +195,9 @@ public class RankProfilesConfigImporter {
             options.setExecutionMode(onnxModelConfig.stateless_execution_mode());
             options.setInterOpThreads(onnxModelConfig.stateless_interop_threads());
             options.setIntraOpThreads(onnxModelConfig.stateless_intraop_threads());
+            options.setBatching(onnxModelConfig.stateless_batching_max_size(),
+                                Duration.ofNanos((long)(onnxModelConfig.stateless_batching_max_delay() * 1e9)));
+            options.setMetric(metric, Map.of("model", name));
 
             return new OnnxModel(name, file, options);
         } catch (InterruptedException e) {
@@ -233,8 +249,7 @@ public class RankProfilesConfigImporter {
         try {
             File file = fileAcquirer.waitFor(fileReference, 7, TimeUnit.DAYS);
             if (file.getName().endsWith(".tbf"))
-                return TypedBinaryFormat.decode(Optional.of(type),
-                                                GrowableByteBuffer.wrap(IOUtils.readFileBytes(file)));
+                return readTensorFromTbfFile(type, file);
             else
                 throw new IllegalArgumentException("Constant files on other formats than .tbf are not supported, got " +
                                                    file + " for constant " + name);
@@ -248,6 +263,24 @@ public class RankProfilesConfigImporter {
         }
     }
 
+    /**
+     * Reads a tensor from the given file. Files of at least minMappedFileSize are mapped into memory,
+     * such that the values of dense constants are read from the page cache rather than being copied to the heap.
+     * Smaller files are decoded to the heap, as a mapping costs more than it saves for them,
+     * and tensors with values in heap arrays are evaluated faster.
+     */
+    private static Tensor readTensorFromTbfFile(TensorType type, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) // the max size of a buffer, and of the values of a tensor
+                throw new IllegalArgumentException("Constant file " + file + " has " + size + " bytes, but at most " +
+                                                   Integer.MAX_VALUE + " bytes are supported");
+            if (size < minMappedFileSize)
+                return TypedBinaryFormat.decode(Optional.of(type), GrowableByteBuffer.wrap(IOUtils.readFileBytes(file)));
+            return TypedBinaryFormat.decodeWithoutCopying(Optional.of(type), channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
     /** Collected information about small constants */
     private static class SmallConstantsInfo {
 
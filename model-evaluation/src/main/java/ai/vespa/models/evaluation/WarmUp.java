@@ -0,0 +1,152 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.jdisc.Metric;
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.yolean.Exceptions;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates all the functions of some models a few times with synthetic arguments, such that ONNX sessions are
+ * run once and the classes used in evaluation are loaded before real requests arrive. Expression evaluation is
+ * only JIT compiled if the number of iterations is in the thousands.
+ * The synthetic arguments are tensors of the declared argument types, where unbound dimensions have size 1,
+ * mapped dimensions have a single label, and all cells have the value 1.
+ *
+ * Warm-up is best effort: Functions which cannot be evaluated with synthetic arguments are logged and skipped.
+ * The max time is checked before warming up each function, so a single slow function may make warm-up exceed it.
+ *
+ * @author agent
+ */
+class WarmUp {
+
+    private static final Logger log = Logger.getLogger(WarmUp.class.getName());
+
+    static final String firstEvaluationTimeMetric = "model_evaluation.warm_up.first_evaluation_time";
+    static final String lastEvaluationTimeMetric = "model_evaluation.warm_up.last_evaluation_time";
+    static final String totalTimeMetric = "model_evaluation.warm_up.total_time";
+
+    private final int iterations;
+    private final Duration maxTime;
+    private final Metric metric;
+    private final Clock clock;
+
+    WarmUp(int iterations, Duration maxTime, Metric metric) {
+        this(iterations, maxTime, metric, Clock.systemUTC());
+    }
+
+    WarmUp(int iterations, Duration maxTime, Metric metric, Clock clock) {
+        this.iterations = iterations;
+        this.maxTime = maxTime;
+        this.metric = metric;
+        this.clock = clock;
+    }
+
+    /** Warms up all the public functions of the given models and returns the timings of those which succeeded */
+    List<Timing> run(Map<String, Model> models) {
+        List<Timing> timings = new ArrayList<>();
+        if (iterations < 1) return timings;
+
+        Instant start = clock.instant();
+        Instant deadline = start.plus(maxTime);
+        int skipped = 0;
+        for (Model model : models.values()) {
+            for (ExpressionFunction function : model.functions()) {
+                if (clock.instant().isAfter(deadline)) {
+                    skipped++;
+                    continue;
+                }
+                try {
+                    Timing timing = run(model, function);
+                    timings.add(timing);
+                    metric.set(firstEvaluationTimeMetric, timing.first().toMillis(), contextOf(timing));
+                    metric.set(lastEvaluationTimeMetric, timing.last().toMillis(), contextOf(timing));
+                }
+                catch (RuntimeException e) {
+                    log.log(Level.INFO, "Could not warm up " + function.getName() + " in " + model + ": " +
+                                        Exceptions.toMessageString(e));
+                }
+            }
+        }
+        Duration total = Duration.between(start, clock.instant());
+        metric.set(totalTimeMetric, total.toMillis(), null);
+        log.log(Level.FINE, () -> "Warmed up " + timings.size() + " functions in " + models.size() + " models in " +
+                                  total.toMillis() + " ms");
+        if (skipped > 0)
+            log.log(Level.INFO, "Warm-up did not complete within " + maxTime + ": Skipped " + skipped + " functions");
+        return timings;
+    }
+
+    private Timing run(Model model, ExpressionFunction function) {
+        Duration first = null;
+        Duration last = null;
+        for (int i = 0; i < iterations; i++) {
+            FunctionEvaluator evaluator = model.evaluatorOf(function.getName());
+            for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet())
+                evaluator.bind(argument.getKey(), syntheticValueOf(argument.getValue()));
+            Instant start = clock.instant();
+            evaluator.evaluate();
+            last = Duration.between(start, clock.instant());
+            if (first == null)
+                first = last;
+        }
+        return new Timing(model.name(), function.getName(), first, last);
+    }
+
+    private Metric.Context contextOf(Timing timing) {
+        return metric.createContext(Map.of("model", timing.model(), "function", timing.function()));
+    }
+
+    /** Returns a tensor of the given type, or one assignable to it if it has unbound dimensions, with all cells set to 1 */
+    static Tensor syntheticValueOf(TensorType type) {
+        TensorType.Builder boundType = new TensorType.Builder(type.valueType());
+        for (TensorType.Dimension dimension : type.dimensions()) {
+            if (dimension.isIndexed() && dimension.size().isEmpty())
+                boundType.indexed(dimension.name(), 1);
+            else
+                boundType.dimension(dimension);
+        }
+        TensorType syntheticType = boundType.build();
+        if (syntheticType.rank() > 0 && syntheticType.dimensions().stream().allMatch(TensorType.Dimension::isIndexed)) {
+            long size = syntheticType.dimensions().stream().mapToLong(dimension -> dimension.size().get()).reduce(1, (a, b) -> a * b);
+            double[] values = new double[Math.toIntExact(size)];
+            Arrays.fill(values, 1.0);
+            return IndexedTensor.Builder.of(syntheticType, values).build();
+        }
+        Tensor.Builder builder = Tensor.Builder.of(syntheticType);
+        addCells(builder, syntheticType, 0, new long[syntheticType.rank()]);
+        return builder.build();
+    }
+
+    /** Adds a cell for each index of the dimensions from the given one, after those given in the indexes */
+    private static void addCells(Tensor.Builder builder, TensorType type, int dimension, long[] indexes) {
+        if (dimension == type.rank()) {
+            Tensor.Builder.CellBuilder cell = builder.cell();
+            for (int i = 0; i < indexes.length; i++)
+                cell.label(type.dimensions().get(i).name(), indexes[i]);
+            cell.value(1.0);
+            return;
+        }
+        long size = type.dimensions().get(dimension).size().orElse(1L);
+        for (long i = 0; i < size; i++) {
+            indexes[dimension] = i;
+            addCells(builder, type, dimension + 1, indexes);
+        }
+    }
+
+    /** The time spent on the first and last evaluation of a function during warm-up */
+    record Timing(String model, String function, Duration first, Duration last) {}
+
+}
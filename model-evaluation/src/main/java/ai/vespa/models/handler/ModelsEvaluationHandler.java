@@ -8,25 +8,42 @@ import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.ObjectTraverser;
 import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeUtils;
+import com.yahoo.slime.Type;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.serialization.JsonFormat;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
 import com.yahoo.yolean.Exceptions;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
 
 public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
 
@@ -36,12 +53,24 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     public static final String API_ROOT = "model-evaluation";
     public static final String VERSION_V1 = "v1";
     public static final String EVALUATE = "eval";
+    public static final String BATCH_EVALUATE = "batch-eval";
+
+    /** The content type of requests and responses with tensors in the binary batch format */
+    public static final String BINARY_BATCH_CONTENT_TYPE = "application/x-vespa-tensor-batch";
+
+    /** The max size of the body of a batch evaluation request */
+    static final int maxBatchBodySize = 64 * 1024 * 1024;
+
+    /** The max number of rows in a batch evaluation request */
+    static final int maxBatchRows = 10000;
 
     private final ModelsEvaluator modelsEvaluator;
+    private final Executor executor;
 
     public ModelsEvaluationHandler(ModelsEvaluator modelsEvaluator, Executor executor) {
         super(executor);
         this.modelsEvaluator = modelsEvaluator;
+        this.executor = executor;
     }
 
     @Override
@@ -61,6 +90,10 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
 
             Model model = modelsEvaluator.requireModel(modelName.get());
 
+            Optional<Integer> batchEvalSegment = path.lastIndexOf(BATCH_EVALUATE);
+            if (batchEvalSegment.isPresent())
+                return evaluateModelBatch(request, model, path.range(3, batchEvalSegment));
+
             Optional<Integer> evalSegment = path.lastIndexOf(EVALUATE);
             String[] function = path.range(3, evalSegment);
             if (evalSegment.isPresent()) {
@@ -102,6 +135,218 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
         return new Response(200, JsonFormat.encodeShortForm(result));
     }
 
+    /**
+     * Evaluates a function for each of the rows of arguments in the request body, in parallel.
+     * The body can be at most {@link #maxBatchBodySize} bytes, and have at most {@link #maxBatchRows} rows.
+     *
+     * The body is either JSON on the form {"rows":[{"argument":value, ...}, ...]}, where values are
+     * tensors in any JSON tensor form, or strings as accepted in single evaluations, or binary
+     * (content type {@link #BINARY_BATCH_CONTENT_TYPE}), see {@link #readBinaryRows}.
+     * The results are returned in the same format as the request, in the same order as the rows.
+     */
+    private HttpResponse evaluateModelBatch(HttpRequest request, Model model, String[] function) {
+        byte[] body;
+        try {
+            body = request.getData().readNBytes(maxBatchBodySize + 1);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (body.length == 0)
+            throw new IllegalArgumentException("Batch evaluation requires the rows to evaluate in the request body");
+        if (body.length > maxBatchBodySize)
+            throw new IllegalArgumentException("Batch evaluation request bodies can be at most " + maxBatchBodySize + " bytes");
+
+        Map<String, TensorType> argumentTypes = model.evaluatorOf(function).function().argumentTypes();
+        boolean binary = BINARY_BATCH_CONTENT_TYPE.equalsIgnoreCase(request.getHeader("Content-Type"));
+        List<Map<String, Object>> rows = binary ? readBinaryRows(body, argumentTypes) : readJsonRows(body, argumentTypes);
+        Optional<Tensor> missingValue = property(request, missingValueKey).map(Tensor::from);
+
+        List<Tensor> results = evaluateInParallel(rows.size(), i -> evaluate(model, function, rows.get(i), argumentTypes, missingValue));
+
+        if (binary)
+            return new Response(200, writeBinaryResults(results), BINARY_BATCH_CONTENT_TYPE);
+        boolean longForm = property(request, "format.tensors").map(format -> format.equalsIgnoreCase("long")).orElse(false);
+        return new Response(200, writeJsonResults(results, longForm));
+    }
+
+    /**
+     * Evaluates the given number of rows in this thread and in tasks on the executor of this handler, and returns
+     * the results in row order. Rows are taken by the threads as they become available, such that this completes
+     * also when the executor has no threads available.
+     */
+    private List<Tensor> evaluateInParallel(int rowCount, IntFunction<Tensor> evaluation) {
+        Tensor[] results = new Tensor[rowCount];
+        AtomicInteger nextRow = new AtomicInteger();
+        CountDownLatch rowsCompleted = new CountDownLatch(rowCount);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable evaluator = () -> {
+            for (int row; (row = nextRow.getAndIncrement()) < rowCount; ) {
+                try {
+                    if (failure.get() == null)
+                        results[row] = evaluation.apply(row);
+                }
+                catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+                finally {
+                    rowsCompleted.countDown();
+                }
+            }
+        };
+        int helpers = Math.min(rowCount, Runtime.getRuntime().availableProcessors()) - 1;
+        try {
+            for (int i = 0; i < helpers; i++)
+                executor.execute(evaluator);
+        }
+        catch (RejectedExecutionException e) {
+            // Evaluate the remaining rows in this thread
+        }
+        evaluator.run();
+        try {
+            rowsCompleted.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating a batch", e);
+        }
+        if (failure.get() instanceof RuntimeException e) throw e;
+        if (failure.get() instanceof Error e) throw e;
+        return Arrays.asList(results);
+    }
+
+    /** Evaluates a function with arguments which are either tensors or strings */
+    private Tensor evaluate(Model model, String[] function, Map<String, Object> arguments,
+                           Map<String, TensorType> argumentTypes, Optional<Tensor> missingValue) {
+        FunctionEvaluator evaluator = model.evaluatorOf(function);
+        missingValue.ifPresent(evaluator::setMissingValue);
+        for (Map.Entry<String, Object> argument : arguments.entrySet()) {
+            TensorType type = argumentTypes.get(argument.getKey());
+            if (type == null) continue; // as in single evaluations
+            if (argument.getValue() instanceof Tensor tensor) {
+                evaluator.bind(argument.getKey(), tensor);
+            }
+            else {
+                String value = (String)argument.getValue();
+                try {
+                    evaluator.bind(argument.getKey(), Tensor.from(type, value));
+                } catch (IllegalArgumentException e) {
+                    evaluator.bind(argument.getKey(), value);  // since we don't yet support tensors with string values
+                }
+            }
+        }
+        return evaluator.evaluate();
+    }
+
+    /** Reads rows of JSON values, where strings and numbers are returned as strings, and other values as tensors */
+    private static List<Map<String, Object>> readJsonRows(byte[] body, Map<String, TensorType> argumentTypes) {
+        Inspector rowsInspector = SlimeUtils.jsonToSlimeOrThrow(body).get().field("rows");
+        if (rowsInspector.type() != Type.ARRAY)
+            throw new IllegalArgumentException("Expected a 'rows' array in the request body");
+        requireRowCount(rowsInspector.entries());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rowsInspector.traverse((ArrayTraverser)(index, row) -> {
+            Map<String, Object> arguments = new HashMap<>();
+            row.traverse((ObjectTraverser)(name, value) -> {
+                TensorType type = argumentTypes.get(name);
+                if (type == null) return;
+                switch (value.type()) {
+                    case STRING -> arguments.put(name, value.asString());
+                    case LONG, DOUBLE -> arguments.put(name, String.valueOf(value.asDouble()));
+                    default -> arguments.put(name, JsonFormat.decode(type, toJsonBytes(value)));
+                }
+            });
+            rows.add(arguments);
+        });
+        return rows;
+    }
+
+    private static byte[] toJsonBytes(Inspector value) {
+        try {
+            return SlimeUtils.toJsonBytes(value);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads rows in the binary batch format, where all integers are 4 byte big endian:
+     * The number of arguments, then the name of each argument as a byte length followed by its UTF-8 bytes,
+     * then the number of rows, then for each row the value of each argument in the same order as
+     * a byte length followed by the tensor in Vespa's binary tensor format.
+     */
+    private static List<Map<String, Object>> readBinaryRows(byte[] body, Map<String, TensorType> argumentTypes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            String[] names = new String[readSize(buffer, buffer.remaining() / 4, "The number of arguments")];
+            for (int i = 0; i < names.length; i++) {
+                byte[] name = new byte[readSize(buffer, buffer.remaining(), "The length of argument name " + i)];
+                buffer.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            int rowCount = readSize(buffer, names.length == 0 ? Integer.MAX_VALUE : buffer.remaining() / (4 * names.length),
+                                    "The number of rows");
+            requireRowCount(rowCount);
+            List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+            for (int row = 0; row < rowCount; row++) {
+                Map<String, Object> arguments = new HashMap<>();
+                for (String name : names) {
+                    int length = readSize(buffer, buffer.remaining(), "The length of '" + name + "' in row " + row);
+                    GrowableByteBuffer tensorBuffer = GrowableByteBuffer.wrap(body, buffer.position(), length);
+                    arguments.put(name, TypedBinaryFormat.decode(Optional.ofNullable(argumentTypes.get(name)), tensorBuffer));
+                    buffer.position(buffer.position() + length);
+                }
+                rows.add(arguments);
+            }
+            return rows;
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Request body is not in the binary tensor batch format: Too short");
+        }
+    }
+
+    /** Reads a size which must be non-negative and at most the given max, which is given by the remaining bytes */
+    private static int readSize(ByteBuffer buffer, int max, String description) {
+        int size = buffer.getInt();
+        if (size < 0 || size > max)
+            throw new IllegalArgumentException("Request body is not in the binary tensor batch format: " + description +
+                                               " is " + size + ", but the remaining bytes allow at most " + max);
+        return size;
+    }
+
+    private static void requireRowCount(int rowCount) {
+        if (rowCount > maxBatchRows)
+            throw new IllegalArgumentException("A batch can have at most " + maxBatchRows + " rows, but got " + rowCount);
+    }
+
+    /** Writes the results as the number of results, followed by each as a byte length and its binary tensor */
+    private static byte[] writeBinaryResults(List<Tensor> results) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        buffer.putInt(results.size());
+        for (Tensor result : results) {
+            byte[] tensor = TypedBinaryFormat.encode(result);
+            buffer.putInt(tensor.length);
+            buffer.put(tensor);
+        }
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] writeJsonResults(List<Tensor> results, boolean longForm) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.writeBytes("{\"results\":[".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0)
+                json.write(',');
+            json.writeBytes(longForm ? JsonFormat.encode(results.get(i)) : JsonFormat.encodeShortForm(results.get(i)));
+        }
+        json.writeBytes("]}".getBytes(StandardCharsets.UTF_8));
+        return json.toByteArray();
+    }
+
     private HttpResponse listAllModels(HttpRequest request) {
         Slime slime = new Slime();
         Cursor root = slime.setObject();
@@ -208,10 +453,16 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     private static class Response extends HttpResponse {
 
         private final byte[] data;
+        private final String contentType;
 
         Response(int code, byte[] data) {
+            this(code, data, "application/json");
+        }
+
+        Response(int code, byte[] data, String contentType) {
             super(code);
             this.data = data;
+            this.contentType = contentType;
         }
 
         Response(int code, String data) {
@@ -220,7 +471,7 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
 
         @Override
         public String getContentType() {
-            return "application/json";
+            return contentType;
         }
 
         @Override
@@ -16,9 +16,11 @@ import com.yahoo.yolean.Exceptions;
 import org.junit.Test;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author bratseth
@@ -61,6 +63,44 @@ public class ModelsEvaluatorTest {
         }
     }
 
+    @Test
+    public void testBatchEvaluation() {
+        List<ExpressionFunction> functions = new ArrayList<>();
+        functions.add(new ExpressionFunction("forest", List.of("a", "b"),
+                                             RankingExpression.from("if (a < 2, if (b == 1, 3, 4), 5) + if (b < 1.5, 0.5, 0.25)")));
+        functions.add(new ExpressionFunction("sum", List.of("a", "b"), RankingExpression.from("a * 2 + b")));
+        Model model = new Model("test-model", functions);
+        Map<String, double[]> arguments = Map.of("a", new double[] { 1, 1, 3 }, "b", new double[] { 1, 0, 2 });
+
+        assertTrue(model.batchForestOf(model.function("forest")).isPresent());
+        double[] forestResult = model.evaluatorOf("forest").evaluateBatch(arguments);
+        assertEquals(3.5, forestResult[0], delta);
+        assertEquals(4.5, forestResult[1], delta);
+        assertEquals(5.25, forestResult[2], delta);
+
+        assertTrue(model.batchForestOf(model.function("sum")).isEmpty());
+        double[] sumResult = model.evaluatorOf("sum").evaluateBatch(arguments);
+        assertEquals(3, sumResult[0], delta);
+        assertEquals(2, sumResult[1], delta);
+        assertEquals(8, sumResult[2], delta);
+
+        // Arguments not given are checked as in evaluate(), whether or not the function is evaluated as a forest
+        Model unusedArgument = new Model("test-model",
+                                         functions.stream().map(f -> f.withArgument("c", TensorType.empty)).toList());
+        for (String function : List.of("forest", "sum")) {
+            try {
+                unusedArgument.evaluatorOf(function).evaluateBatch(arguments);
+                fail("Expected exception");
+            }
+            catch (IllegalStateException e) {
+                assertEquals("Missing argument 'c': Must be bound to a value of type tensor()", e.getMessage());
+            }
+        }
+        Map<String, double[]> onlyA = Map.of("a", new double[] { 1, 1, 3 });
+        assertEquals(4.5, model.evaluatorOf("forest").bind("b", 0).evaluateBatch(onlyA)[0], delta);
+        assertEquals(6, model.evaluatorOf("sum").bind("b", 0).evaluateBatch(onlyA)[2], delta);
+    }
+
     @Test
     public void testBindingValidation() {
         List<ExpressionFunction> functions = new ArrayList<>();
@@ -0,0 +1,63 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class WarmUpTest {
+
+    @Test
+    public void testSyntheticValues() {
+        assertEquals(Tensor.from(1.0), WarmUp.syntheticValueOf(TensorType.empty));
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[3]):[[1,1,1]]"),
+                     WarmUp.syntheticValueOf(TensorType.fromSpec("tensor<float>(d0[],d1[3])")));
+        assertEquals(Tensor.from("tensor(key{},x[2]):{{key:0,x:0}:1.0,{key:0,x:1}:1.0}"),
+                     WarmUp.syntheticValueOf(TensorType.fromSpec("tensor(key{},x[2])")));
+    }
+
+    @Test
+    public void testWarmUp() {
+        ExpressionFunction scalar = new ExpressionFunction("scalar", List.of("a", "b"), RankingExpression.from("a * 2 + b"));
+        ExpressionFunction tensor = new ExpressionFunction("tensor", RankingExpression.from("sum(arg1 * arg2)"))
+                                            .withArgument("arg1", TensorType.fromSpec("tensor(d0[],d1[3])"))
+                                            .withArgument("arg2", TensorType.fromSpec("tensor(d1[3])"));
+        Model model = new Model("test-model", List.of(scalar, tensor));
+        MockMetric metric = new MockMetric();
+
+        List<WarmUp.Timing> timings = new WarmUp(3, Duration.ofMinutes(1), metric).run(Map.of(model.name(), model));
+        assertEquals(2, timings.size());
+        for (WarmUp.Timing timing : timings) {
+            assertEquals("test-model", timing.model());
+            assertNotNull(timing.first());
+            assertNotNull(timing.last());
+        }
+        assertEquals(2, metric.metrics().get(WarmUp.firstEvaluationTimeMetric).size());
+        assertEquals(2, metric.metrics().get(WarmUp.lastEvaluationTimeMetric).size());
+        assertTrue(metric.metrics().containsKey(WarmUp.totalTimeMetric));
+    }
+
+    @Test
+    public void testNoWarmUp() {
+        ExpressionFunction scalar = new ExpressionFunction("scalar", List.of("a"), RankingExpression.from("a * 2"));
+        Model model = new Model("test-model", List.of(scalar));
+        MockMetric metric = new MockMetric();
+        assertTrue(new WarmUp(0, Duration.ofMinutes(1), metric).run(Map.of(model.name(), model)).isEmpty());
+        assertTrue(metric.metrics().isEmpty());
+    }
+
+}
@@ -7,6 +7,7 @@ import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.serialization.JsonFormat;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -109,10 +110,22 @@ class HandlerTester {
         }
     }
 
-    private String getContents(HttpResponse response) {
+    /** Posts the given body to the given url and returns the response */
+    HttpResponse post(String url, byte[] body, Map<String, String> headers) {
+        HttpRequest request = HttpRequest.createTestRequest(url, com.yahoo.jdisc.http.HttpRequest.Method.POST,
+                                                            new ByteArrayInputStream(body), Map.of());
+        headers.forEach((k, v) -> request.getJDiscRequest().headers().add(k, v));
+        return handler.handle(request);
+    }
+
+    String getContents(HttpResponse response) {
+        return new String(getBytes(response), StandardCharsets.UTF_8);
+    }
+
+    byte[] getBytes(HttpResponse response) {
         try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
             response.render(stream);
-            return stream.toString();
+            return stream.toByteArray();
         } catch (IOException e) {
             throw new Error(e);
         }
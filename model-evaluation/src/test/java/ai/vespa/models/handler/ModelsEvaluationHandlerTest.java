@@ -5,10 +5,13 @@ import ai.vespa.modelintegration.evaluator.OnnxEvaluator;
 import ai.vespa.models.evaluation.ModelsEvaluator;
 import ai.vespa.models.evaluation.RankProfilesConfigImporterWithMockedConstants;
 import com.yahoo.config.subscription.ConfigGetter;
+import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
+import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.path.Path;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
 import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
@@ -16,9 +19,14 @@ import com.yahoo.vespa.config.search.core.RankingExpressionsConfig;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assume.assumeTrue;
 
 public class ModelsEvaluationHandlerTest {
@@ -111,6 +119,107 @@ public class ModelsEvaluationHandlerTest {
         handler.assertResponse(url, properties, 200, expected);
     }
 
+    @Test
+    public void testXgBoostBatchEvaluation() {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        String request = "{\"rows\":[" +
+                         "{\"f29\":-1.0,\"f56\":\"0.2\",\"f60\":{\"type\":\"tensor()\",\"values\":[0.3]},\"f109\":0.4,\"non-existing-binding\":-1}," +
+                         "{}" +
+                         "]}";
+        HttpResponse response = handler.post(url, request.getBytes(StandardCharsets.UTF_8), Map.of());
+        assertEquals(200, response.getStatus());
+        assertEquals("application/json", response.getContentType());
+        String expected = "{\"results\":[" +
+                          "{\"type\":\"tensor()\",\"values\":[-7.936679999999999]}," +
+                          "{\"type\":\"tensor()\",\"values\":[-4.376589999999999]}" +
+                          "]}";
+        assertEquals(expected, handler.getContents(response));
+    }
+
+    @Test
+    public void testXgBoostBinaryBatchEvaluation() {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        List<String> arguments = List.of("f29", "f56", "f60", "f109");
+        GrowableByteBuffer request = new GrowableByteBuffer();
+        request.putInt(arguments.size());
+        for (String argument : arguments) {
+            request.putInt(argument.length());
+            request.put(argument.getBytes(StandardCharsets.UTF_8));
+        }
+        int rows = 100;
+        request.putInt(rows);
+        for (int row = 0; row < rows; row++) {
+            for (double value : new double[] { -1.0, 0.2, 0.3, 0.4 }) {
+                byte[] tensor = TypedBinaryFormat.encode(Tensor.from(value));
+                request.putInt(tensor.length);
+                request.put(tensor);
+            }
+        }
+        request.flip();
+        byte[] body = new byte[request.remaining()];
+        request.get(body);
+
+        HttpResponse response = handler.post(url, body, Map.of("Content-Type", ModelsEvaluationHandler.BINARY_BATCH_CONTENT_TYPE));
+        assertEquals(200, response.getStatus());
+        assertEquals(ModelsEvaluationHandler.BINARY_BATCH_CONTENT_TYPE, response.getContentType());
+        ByteBuffer results = ByteBuffer.wrap(handler.getBytes(response));
+        assertEquals(rows, results.getInt());
+        for (int row = 0; row < rows; row++) {
+            byte[] tensor = new byte[results.getInt()];
+            results.get(tensor);
+            assertEquals(-7.936679999999999, TypedBinaryFormat.decode(Optional.empty(), GrowableByteBuffer.wrap(tensor)).asDouble(), 1e-9);
+        }
+        assertEquals(0, results.remaining());
+    }
+
+    @Test
+    public void testBatchEvaluationWithoutBody() {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        HttpResponse response = handler.post(url, new byte[0], Map.of());
+        assertEquals(404, response.getStatus());
+        assertEquals("{\"error\":\"Batch evaluation requires the rows to evaluate in the request body\"}", handler.getContents(response));
+    }
+
+    @Test
+    public void testBinaryBatchEvaluationWithInvalidLength() {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        GrowableByteBuffer request = new GrowableByteBuffer();
+        request.putInt(1);
+        request.putInt(3);
+        request.put("f29".getBytes(StandardCharsets.UTF_8));
+        request.putInt(1);
+        request.putInt(1000);
+        request.flip();
+        byte[] body = new byte[request.remaining()];
+        request.get(body);
+
+        HttpResponse response = handler.post(url, body, Map.of("Content-Type", ModelsEvaluationHandler.BINARY_BATCH_CONTENT_TYPE));
+        assertEquals(404, response.getStatus());
+        assertEquals("{\"error\":\"Request body is not in the binary tensor batch format: " +
+                     "The length of 'f29' in row 0 is 1000, but the remaining bytes allow at most 0\"}",
+                     handler.getContents(response));
+    }
+
+    @Test
+    public void testBinaryBatchEvaluationWithTooManyRows() {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        ByteBuffer request = ByteBuffer.allocate(8);
+        request.putInt(0);
+        request.putInt(ModelsEvaluationHandler.maxBatchRows + 1);
+
+        HttpResponse response = handler.post(url, request.array(), Map.of("Content-Type", ModelsEvaluationHandler.BINARY_BATCH_CONTENT_TYPE));
+        assertEquals(404, response.getStatus());
+        assertEquals("{\"error\":\"A batch can have at most 10000 rows, but got 10001\"}", handler.getContents(response));
+    }
+
+    @Test
+    public void testBatchEvaluationWithTooLargeBody() {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/batch-eval";
+        HttpResponse response = handler.post(url, new byte[ModelsEvaluationHandler.maxBatchBodySize + 1], Map.of());
+        assertEquals(404, response.getStatus());
+        assertEquals("{\"error\":\"Batch evaluation request bodies can be at most 67108864 bytes\"}", handler.getContents(response));
+    }
+
     @Test
     public void testLightGBMEvaluationWithoutBindings() {
         String url = "http://localhost/model-evaluation/v1/lightgbm_regression/eval";
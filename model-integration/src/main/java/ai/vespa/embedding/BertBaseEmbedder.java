@@ -4,16 +4,20 @@ import ai.vespa.modelintegration.evaluator.OnnxEvaluator;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluatorOptions;
 import com.yahoo.embedding.BertBaseEmbedderConfig;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.process.Embedder;
+import com.yahoo.language.process.EmbeddingCache;
 import com.yahoo.language.wordpiece.WordPieceEmbedder;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * A BERT Base compatible embedder. This embedder uses a WordPiece embedder to
@@ -32,6 +36,7 @@ public class BertBaseEmbedder implements Embedder {
 
     private final static int TOKEN_CLS = 101;  // [CLS]
     private final static int TOKEN_SEP = 102;  // [SEP]
+    private final static int TOKEN_PAD = 0;    // [PAD]
 
     private final int    maxTokens;
     private final String inputIdsName;
@@ -39,28 +44,41 @@ public class BertBaseEmbedder implements Embedder {
     private final String tokenTypeIdsName;
     private final String outputName;
     private final String poolingStrategy;
+    private final int batchSize;
+    private final boolean hasBatchDimension;
 
     private final WordPieceEmbedder tokenizer;
     private final OnnxEvaluator evaluator;
+    private final EmbeddingCache cache; // null if caching is disabled
 
-    @Inject
     public BertBaseEmbedder(BertBaseEmbedderConfig config) {
+        this(config, null);
+    }
+
+    @Inject
+    public BertBaseEmbedder(BertBaseEmbedderConfig config, Metric metric) {
         maxTokens = config.transformerMaxTokens();
         inputIdsName = config.transformerInputIds();
         attentionMaskName = config.transformerAttentionMask();
         tokenTypeIdsName = config.transformerTokenTypeIds();
         outputName = config.transformerOutput();
         poolingStrategy = config.poolingStrategy().toString();
+        batchSize = config.embeddingBatchSize();
 
         OnnxEvaluatorOptions options = new OnnxEvaluatorOptions();
         options.setExecutionMode(config.onnxExecutionMode().toString());
         options.setInterOpThreads(modifyThreadCount(config.onnxInterOpThreads()));
         options.setIntraOpThreads(modifyThreadCount(config.onnxIntraOpThreads()));
+        options.setBatching(config.onnxBatchingMaxSize(), Duration.ofNanos((long)(config.onnxBatchingMaxDelay() * 1e9)));
+        options.setMetric(metric, Map.of("model", config.transformerModel().getFileName().toString()));
 
         tokenizer = new WordPieceEmbedder.Builder(config.tokenizerVocab().toString()).build();
         evaluator = new OnnxEvaluator(config.transformerModel().toString(), options);
 
+        cache = config.embeddingCacheSize() > 0 ? new EmbeddingCache(config.embeddingCacheSize()) : null;
+
         validateModel();
+        hasBatchDimension = evaluator.getInputInfo().get(inputIdsName).dimensions().get(0).size().isEmpty();
     }
 
     private void validateModel() {
@@ -90,16 +108,51 @@ public class BertBaseEmbedder implements Embedder {
 
     @Override
     public Tensor embed(String text, Context context, TensorType type) {
+        validateType(type);
+        if (cache != null)
+            return cache.get(defaultEmbedderId, text, context, type, () -> embedTokens(embedWithSeperatorTokens(text, context, maxTokens), type));
+        List<Integer> tokens = embedWithSeperatorTokens(text, context, maxTokens);
+        return embedTokens(tokens, type);
+    }
+
+    /**
+     * Embeds the texts by running the model on batches of up to embeddingBatchSize texts,
+     * padded to the length of the longest text in the batch, if the model has a batch dimension.
+     */
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType type) {
+        validateType(type);
+        if (cache != null)
+            return cache.get(defaultEmbedderId, texts, context, type, missingTexts -> embedBatches(missingTexts, context, type));
+        return embedBatches(texts, context, type);
+    }
+
+    private List<Tensor> embedBatches(List<String> texts, Context context, TensorType type) {
+        if ( ! hasBatchDimension || batchSize < 2)
+            return texts.stream().map(text -> embedTokens(embedWithSeperatorTokens(text, context, maxTokens), type)).toList();
+
+        List<Tensor> tensors = new ArrayList<>(texts.size());
+        for (int start = 0; start < texts.size(); start += batchSize) {
+            List<List<Integer>> tokens = new ArrayList<>();
+            for (String text : texts.subList(start, Math.min(start + batchSize, texts.size())))
+                tokens.add(embedWithSeperatorTokens(text, context, maxTokens));
+            tensors.addAll(embedTokens(tokens, type));
+        }
+        return tensors;
+    }
+
+    private void validateType(TensorType type) {
         if (type.dimensions().size() != 1) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': should only have one dimension.");
         }
         if (!type.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': dimension should be indexed.");
         }
-        List<Integer> tokens = embedWithSeperatorTokens(text, context, maxTokens);
-        return embedTokens(tokens, type);
     }
 
+    /** Returns the cache of embeddings produced by this, or empty if caching is disabled */
+    public Optional<EmbeddingCache> cache() { return Optional.ofNullable(cache); }
+
     Tensor embedTokens(List<Integer> tokens, TensorType type) {
         Tensor inputSequence = createTensorRepresentation(tokens, "d1");
         Tensor attentionMask = createAttentionMask(inputSequence);
@@ -134,6 +187,46 @@ public class BertBaseEmbedder implements Embedder {
         return builder.build();
     }
 
+    /** Embeds multiple token sequences in one model run, where shorter sequences are padded and masked out */
+    List<Tensor> embedTokens(List<List<Integer>> tokens, TensorType type) {
+        int length = tokens.stream().mapToInt(List::size).max().orElse(0);
+        TensorType inputType = new TensorType.Builder(TensorType.Value.FLOAT).indexed("d0", tokens.size())
+                                                                             .indexed("d1", length).build();
+        IndexedTensor.Builder inputBuilder = IndexedTensor.Builder.of(inputType);
+        for (int b = 0; b < tokens.size(); b++) {
+            for (int i = 0; i < length; i++)
+                inputBuilder.cell(i < tokens.get(b).size() ? tokens.get(b).get(i) : TOKEN_PAD, b, i);
+        }
+        Tensor inputSequence = inputBuilder.build();
+        Tensor attentionMask = createAttentionMask(inputSequence);
+        Tensor tokenTypeIds = createTokenTypeIds(inputSequence);
+
+        Map<String, Tensor> inputs;
+        if (!"".equals(tokenTypeIdsName)) {
+            inputs = Map.of(inputIdsName, inputSequence,
+                            attentionMaskName, attentionMask,
+                            tokenTypeIdsName, tokenTypeIds);
+        } else {
+            inputs = Map.of(inputIdsName, inputSequence,
+                            attentionMaskName, attentionMask);
+        }
+        Tensor tokenEmbeddings = evaluator.evaluate(inputs).get(outputName);
+
+        // mean: average over the tokens which are not padding, cls: use the first token
+        boolean mean = poolingStrategy.equals("mean");
+        Tensor pooled = mean ? tokenEmbeddings.join(attentionMask, (x, y) -> x * y).sum("d1")
+                                              .join(attentionMask.sum("d1"), (x, y) -> x / y)
+                             : tokenEmbeddings;
+        List<Tensor> tensors = new ArrayList<>(tokens.size());
+        for (int b = 0; b < tokens.size(); b++) {
+            Tensor.Builder builder = Tensor.Builder.of(type);
+            for (int i = 0; i < type.dimensions().get(0).size().get(); i++)
+                builder.cell(pooled.get(mean ? TensorAddress.of(b, i) : TensorAddress.of(b, 0, i)), i);
+            tensors.add(builder.build());
+        }
+        return tensors;
+    }
+
     private List<Integer> embedWithSeperatorTokens(String text, Context context, int maxLength) {
         List<Integer> tokens = new ArrayList<>();
         tokens.add(TOKEN_CLS);
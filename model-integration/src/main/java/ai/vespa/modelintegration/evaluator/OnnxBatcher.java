@@ -0,0 +1,258 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+package ai.vespa.modelintegration.evaluator;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent evaluations of a model with a batch dimension into single runs.
+ *
+ * The batch dimension is the first dimension of all inputs and outputs. The first caller arriving when no batch
+ * is open starts a new batch and waits up to the max delay for other callers to join it, or until the batch
+ * is full. It then runs the model once with the inputs of all the callers concatenated along the batch dimension,
+ * and each caller receives its own slice of the outputs. Only calls which request the same output and have
+ * inputs of the same type apart from the size of the batch dimension are batched together.
+ *
+ * @author agent
+ */
+class OnnxBatcher {
+
+    /** Runs a model once */
+    interface Runner {
+
+        /** Returns the given output, or all outputs if output is null, for the given inputs */
+        Map<String, Tensor> run(Map<String, Tensor> inputs, String output);
+
+    }
+
+    /** Receives the number of requests of each model run done by a batcher */
+    interface Listener {
+
+        void ran(int requests);
+
+    }
+
+    private final Runner runner;
+    private final Listener listener;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+
+    private final Object monitor = new Object();
+
+    /** The batch currently open to new requests, by batch key */
+    private final Map<String, Batch> openBatches = new HashMap<>();
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    OnnxBatcher(Runner runner, int maxBatchSize, Duration maxDelay) {
+        this(runner, maxBatchSize, maxDelay, requests -> { });
+    }
+
+    OnnxBatcher(Runner runner, int maxBatchSize, Duration maxDelay, Listener listener) {
+        this.runner = runner;
+        this.listener = listener;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    /** Returns whether models with these input and output types can be evaluated by a batcher */
+    static boolean hasBatchDimension(Map<String, TensorType> inputTypes, Map<String, TensorType> outputTypes) {
+        if (inputTypes.isEmpty()) return false;
+        for (TensorType type : inputTypes.values())
+            if (type.rank() == 0 || type.dimensions().get(0).size().isPresent()) return false;
+        for (TensorType type : outputTypes.values())
+            if (type.rank() == 0 || type.dimensions().get(0).size().isPresent()) return false;
+        return true;
+    }
+
+    /**
+     * Evaluates the given output, or all outputs if output is null, for the given inputs,
+     * possibly together with concurrent requests.
+     */
+    Map<String, Tensor> evaluate(Map<String, Tensor> inputs, String output) {
+        if ( ! isBatchable(inputs)) return runner.run(inputs, output);
+
+        Request request = new Request(inputs, output);
+        String key = batchKeyOf(request);
+        Batch batch;
+        boolean isLeader = false;
+        synchronized (monitor) {
+            batch = openBatches.get(key);
+            if (batch == null || batch.requests.size() >= maxBatchSize) {
+                batch = new Batch();
+                openBatches.put(key, batch);
+                isLeader = true;
+            }
+            batch.requests.add(request);
+            if (batch.requests.size() >= maxBatchSize)
+                monitor.notifyAll();
+
+            if (isLeader) {
+                awaitRequests(batch);
+                if (openBatches.get(key) == batch)
+                    openBatches.remove(key);
+            }
+        }
+        if (isLeader)
+            run(batch.requests);
+
+        try {
+            return request.result.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+
+    /** Returns the number of model runs done by this */
+    long runs() { return runs.get(); }
+
+    /** Returns the number of requests evaluated by this */
+    long requests() { return requests.get(); }
+
+    private void awaitRequests(Batch batch) {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        try {
+            long remaining;
+            while (batch.requests.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0)
+                TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Run what we have
+        }
+    }
+
+    private void run(List<Request> batch) {
+        try {
+            runs.incrementAndGet();
+            requests.addAndGet(batch.size());
+            listener.ran(batch.size());
+            if (batch.size() == 1) {
+                batch.get(0).result.complete(runner.run(batch.get(0).inputs, batch.get(0).output));
+                return;
+            }
+
+            Map<String, Tensor> inputs = new HashMap<>();
+            for (String name : batch.get(0).inputs.keySet())
+                inputs.put(name, concat(batch, name));
+            Map<String, Tensor> outputs = runner.run(inputs, batch.get(0).output);
+
+            List<Map<String, Tensor>> results = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++)
+                results.add(new HashMap<>());
+            long batchSize = batch.stream().mapToLong(request -> request.size).sum();
+            for (Map.Entry<String, Tensor> output : outputs.entrySet()) {
+                if ( ! (output.getValue() instanceof IndexedTensor indexed) || indexed.type().rank() == 0
+                     || indexed.dimensionSizes().size(0) != batchSize)
+                    throw new IllegalStateException("Output '" + output.getKey() + "' of type " + output.getValue().type() +
+                                                    " does not have a batch dimension of size " + batchSize);
+                long start = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    long size = batch.get(i).size;
+                    results.get(i).put(output.getKey(), slice(indexed, start, size));
+                    start += size;
+                }
+            }
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).result.complete(results.get(i));
+        }
+        catch (Throwable e) { // Also errors, as the other requests in the batch are waiting for this
+            for (Request request : batch)
+                request.result.completeExceptionally(e);
+        }
+    }
+
+    /** Returns the inputs with the given name of all requests concatenated along the batch dimension */
+    private static Tensor concat(List<Request> batch, String name) {
+        long size = batch.stream().mapToLong(request -> request.size).sum();
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(withBatchSize(batch.get(0).inputs.get(name).type(), size));
+        long index = 0;
+        for (Request request : batch) {
+            IndexedTensor input = (IndexedTensor)request.inputs.get(name);
+            for (long i = 0; i < input.size(); i++)
+                builder.cellByDirectIndex(index++, input.get(i));
+        }
+        return builder.build();
+    }
+
+    /** Returns the given number of entries of the batch dimension of a tensor, starting at the given entry */
+    private static Tensor slice(IndexedTensor tensor, long start, long size) {
+        long entrySize = tensor.size() / tensor.dimensionSizes().size(0);
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(withBatchSize(tensor.type(), size));
+        for (long i = 0; i < size * entrySize; i++)
+            builder.cellByDirectIndex(i, tensor.get(start * entrySize + i));
+        return builder.build();
+    }
+
+    private static TensorType withBatchSize(TensorType type, long size) {
+        TensorType.Builder builder = new TensorType.Builder(type.valueType());
+        builder.indexed(type.dimensions().get(0).name(), size);
+        for (int i = 1; i < type.rank(); i++)
+            builder.set(type.dimensions().get(i));
+        return builder.build();
+    }
+
+    /** Returns whether these inputs are dense, with bound dimensions, and have the same batch dimension size */
+    private static boolean isBatchable(Map<String, Tensor> inputs) {
+        long batchSize = -1;
+        for (Tensor input : inputs.values()) {
+            if ( ! (input instanceof IndexedTensor)) return false;
+            if (input.type().rank() == 0) return false;
+            if ( ! input.type().dimensions().stream().allMatch(dimension -> dimension.size().isPresent())) return false;
+            long size = input.type().dimensions().get(0).size().get();
+            if (batchSize >= 0 && size != batchSize) return false;
+            batchSize = size;
+        }
+        return batchSize >= 0;
+    }
+
+    /** Returns a key which is equal for requests which can be batched together */
+    private static String batchKeyOf(Request request) {
+        StringBuilder key = new StringBuilder(String.valueOf(request.output));
+        for (Map.Entry<String, Tensor> input : new TreeMap<>(request.inputs).entrySet()) {
+            TensorType type = input.getValue().type();
+            key.append(' ').append(input.getKey()).append(':').append(type.valueType());
+            for (int i = 1; i < type.rank(); i++)
+                key.append(',').append(type.dimensions().get(i));
+        }
+        return key.toString();
+    }
+
+    private static class Batch {
+
+        final List<Request> requests = new ArrayList<>();
+
+    }
+
+    private static class Request {
+
+        final Map<String, Tensor> inputs;
+        final String output;
+        final long size;
+        final CompletableFuture<Map<String, Tensor>> result = new CompletableFuture<>();
+
+        Request(Map<String, Tensor> inputs, String output) {
+            this.inputs = inputs;
+            this.output = output;
+            this.size = inputs.values().iterator().next().type().dimensions().get(0).size().get();
+        }
+
+    }
+
+}
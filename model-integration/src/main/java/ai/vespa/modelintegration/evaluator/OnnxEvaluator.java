@@ -7,12 +7,14 @@ import ai.onnxruntime.OnnxValue;
 import ai.onnxruntime.OrtEnvironment;
 import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 
 /**
@@ -22,8 +24,12 @@ import java.util.Map;
  */
 public class OnnxEvaluator {
 
+    static final String batchedRunsMetric = "onnx.batched_runs";
+    static final String batchedEvaluationsMetric = "onnx.batched_evaluations";
+
     private final OrtEnvironment environment;
     private final OrtSession session;
+    private final OnnxBatcher batcher;
 
     public OnnxEvaluator(String modelPath) {
         this(modelPath, null);
@@ -36,6 +42,9 @@ public class OnnxEvaluator {
             }
             environment = OrtEnvironment.getEnvironment();
             session = environment.createSession(modelPath, options.getOptions());
+            batcher = options.getBatchingMaxSize() > 1 && OnnxBatcher.hasBatchDimension(getInputInfo(), getOutputInfo())
+                      ? new OnnxBatcher(this::run, options.getBatchingMaxSize(), options.getBatchingMaxDelay(), batchListener(options))
+                      : null;
         } catch (OrtException e) {
             if (e.getCode() == OrtException.OrtErrorCode.ORT_NO_SUCHFILE) {
                 throw new IllegalArgumentException("No such file: "+modelPath);
@@ -45,29 +54,38 @@ public class OnnxEvaluator {
     }
 
     public Tensor evaluate(Map<String, Tensor> inputs, String output) {
-        Map<String, OnnxTensor> onnxInputs = null;
-        try {
-            onnxInputs = TensorConverter.toOnnxTensors(inputs, environment, session);
-            try (OrtSession.Result result = session.run(onnxInputs, Collections.singleton(output))) {
-                return TensorConverter.toVespaTensor(result.get(0));
-            }
-        } catch (OrtException e) {
-            throw new RuntimeException("ONNX Runtime exception", e);
-        } finally {
-            if (onnxInputs != null) {
-                onnxInputs.values().forEach(OnnxTensor::close);
-            }
-        }
+        return evaluateOutputs(inputs, Objects.requireNonNull(output, "output cannot be null")).get(output);
     }
 
     public Map<String, Tensor> evaluate(Map<String, Tensor> inputs) {
+        return evaluateOutputs(inputs, null);
+    }
+
+    private Map<String, Tensor> evaluateOutputs(Map<String, Tensor> inputs, String output) {
+        return batcher != null ? batcher.evaluate(inputs, output) : run(inputs, output);
+    }
+
+    /** Returns a listener emitting the batched runs and evaluations to the metric of the given options, if any */
+    static OnnxBatcher.Listener batchListener(OnnxEvaluatorOptions options) {
+        Metric metric = options.getMetric();
+        if (metric == null) return requests -> { };
+        Metric.Context context = metric.createContext(options.getMetricDimensions());
+        return requests -> {
+            metric.add(batchedRunsMetric, 1, context);
+            metric.add(batchedEvaluationsMetric, requests, context);
+        };
+    }
+
+    /** Runs the model once, returning the given output, or all outputs if output is null */
+    private Map<String, Tensor> run(Map<String, Tensor> inputs, String output) {
         Map<String, OnnxTensor> onnxInputs = null;
         try {
             onnxInputs = TensorConverter.toOnnxTensors(inputs, environment, session);
             Map<String, Tensor> outputs = new HashMap<>();
-            try (OrtSession.Result result = session.run(onnxInputs)) {
-                for (Map.Entry<String, OnnxValue> output : result) {
-                    outputs.put(output.getKey(), TensorConverter.toVespaTensor(output.getValue()));
+            try (OrtSession.Result result = output == null ? session.run(onnxInputs)
+                                                           : session.run(onnxInputs, Collections.singleton(output))) {
+                for (Map.Entry<String, OnnxValue> outputValue : result) {
+                    outputs.put(outputValue.getKey(), TensorConverter.toVespaTensor(outputValue.getValue()));
                 }
                 return outputs;
             }
@@ -80,6 +98,16 @@ public class OnnxEvaluator {
         }
     }
 
+    /** Returns the number of model runs done by batched evaluation, or 0 if batching is not enabled */
+    public long getBatchedRuns() {
+        return batcher != null ? batcher.runs() : 0;
+    }
+
+    /** Returns the number of evaluations done in batches, or 0 if batching is not enabled */
+    public long getBatchedEvaluations() {
+        return batcher != null ? batcher.requests() : 0;
+    }
+
     public Map<String, TensorType> getInputInfo() {
         try {
             return TensorConverter.toVespaTypes(session.getInputInfo());
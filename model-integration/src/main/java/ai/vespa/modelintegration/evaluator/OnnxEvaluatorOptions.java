@@ -5,6 +5,10 @@ package ai.vespa.modelintegration.evaluator;
 import ai.onnxruntime.OrtEnvironment;
 import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
+import com.yahoo.jdisc.Metric;
+
+import java.time.Duration;
+import java.util.Map;
 
 /**
  * Session options for ONNX Runtime evaluation
@@ -17,6 +21,10 @@ public class OnnxEvaluatorOptions {
     private OrtSession.SessionOptions.ExecutionMode executionMode;
     private int interOpThreads;
     private int intraOpThreads;
+    private int batchingMaxSize;
+    private Duration batchingMaxDelay;
+    private Metric metric;
+    private Map<String, String> metricDimensions;
 
     public OnnxEvaluatorOptions() {
         // Defaults:
@@ -24,6 +32,10 @@ public class OnnxEvaluatorOptions {
         executionMode = OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL;
         interOpThreads = 1;
         intraOpThreads = Math.max(1, (int) Math.ceil(((double) Runtime.getRuntime().availableProcessors()) / 4));
+        batchingMaxSize = 1;
+        batchingMaxDelay = Duration.ZERO;
+        metric = null;
+        metricDimensions = Map.of();
     }
 
     public OrtSession.SessionOptions getOptions() throws OrtException {
@@ -55,4 +67,38 @@ public class OnnxEvaluatorOptions {
         }
     }
 
+    /**
+     * Sets whether concurrent evaluations of models having a batch dimension should be coalesced
+     * into single runs of the model.
+     *
+     * @param maxSize the max number of evaluations to run together, where 1 (default) disables batching
+     * @param maxDelay the max time the first evaluation of a batch waits for others to join it
+     */
+    public void setBatching(int maxSize, Duration maxDelay) {
+        if (maxSize >= 1 && ! maxDelay.isNegative()) {
+            batchingMaxSize = maxSize;
+            batchingMaxDelay = maxDelay;
+        }
+    }
+
+    public int getBatchingMaxSize() { return batchingMaxSize; }
+
+    public Duration getBatchingMaxDelay() { return batchingMaxDelay; }
+
+    /**
+     * Sets the metric receiving the number of batched model runs and evaluations, if batching is enabled.
+     *
+     * @param metric the metric to add to, or null to not emit metrics (default)
+     * @param dimensions the dimensions of the metric context, e.g. the name of the model
+     */
+    public void setMetric(Metric metric, Map<String, String> dimensions) {
+        this.metric = metric;
+        this.metricDimensions = Map.copyOf(dimensions);
+    }
+
+    /** Returns the metric to emit to, or null if none */
+    public Metric getMetric() { return metric; }
+
+    public Map<String, String> getMetricDimensions() { return metricDimensions; }
+
 }
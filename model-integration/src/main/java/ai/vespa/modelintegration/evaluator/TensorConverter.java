@@ -59,14 +59,14 @@ class TensorConverter {
 
         ByteBuffer buffer = ByteBuffer.allocateDirect((int)tensor.size() * onnxTensorInfo.type.size).order(ByteOrder.nativeOrder());
         if (onnxTensorInfo.type == OnnxJavaType.FLOAT) {
-            for (int i = 0; i < tensor.size(); i++)
-                buffer.putFloat(tensor.getFloat(i));
-            return OnnxTensor.createTensor(environment, buffer.rewind().asFloatBuffer(), tensor.shape());
+            FloatBuffer floats = buffer.asFloatBuffer();
+            tensor.copyTo(floats);
+            return OnnxTensor.createTensor(environment, floats.rewind(), tensor.shape());
         }
         if (onnxTensorInfo.type == OnnxJavaType.DOUBLE) {
-            for (int i = 0; i < tensor.size(); i++)
-                buffer.putDouble(tensor.get(i));
-            return OnnxTensor.createTensor(environment, buffer.rewind().asDoubleBuffer(), tensor.shape());
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            tensor.copyTo(doubles);
+            return OnnxTensor.createTensor(environment, doubles.rewind(), tensor.shape());
         }
         if (onnxTensorInfo.type == OnnxJavaType.INT8) {
             for (int i = 0; i < tensor.size(); i++)
@@ -101,23 +101,28 @@ class TensorConverter {
         TensorType type = toVespaType(onnxTensor.getInfo());
         DimensionSizes sizes = sizesFromType(type);
 
-        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder) Tensor.Builder.of(type, sizes);
+        // Values of the types which have a corresponding tensor value type are read into the array of the tensor in bulk
         if (tensorInfo.type == OnnxJavaType.FLOAT) {
             FloatBuffer buffer = onnxTensor.getFloatBuffer();
-            for (long i = 0; i < sizes.totalSize(); i++)
-                builder.cellByDirectIndex(i, buffer.get());
+            float[] values = new float[buffer.remaining()];
+            buffer.get(values);
+            return IndexedTensor.Builder.of(type, sizes, values).build();
         }
-        else if (tensorInfo.type == OnnxJavaType.DOUBLE) {
+        if (tensorInfo.type == OnnxJavaType.DOUBLE) {
             DoubleBuffer buffer = onnxTensor.getDoubleBuffer();
-            for (long i = 0; i < sizes.totalSize(); i++)
-                builder.cellByDirectIndex(i, buffer.get());
+            double[] values = new double[buffer.remaining()];
+            buffer.get(values);
+            return IndexedTensor.Builder.of(type, sizes, values).build();
         }
-        else if (tensorInfo.type == OnnxJavaType.INT8) {
+        if (tensorInfo.type == OnnxJavaType.INT8) {
             ByteBuffer buffer = onnxTensor.getByteBuffer();
-            for (long i = 0; i < sizes.totalSize(); i++)
-                builder.cellByDirectIndex(i, buffer.get());
+            byte[] values = new byte[buffer.remaining()];
+            buffer.get(values);
+            return IndexedTensor.Builder.of(type, sizes, values).build();
         }
-        else if (tensorInfo.type == OnnxJavaType.INT16) {
+
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder) Tensor.Builder.of(type, sizes);
+        if (tensorInfo.type == OnnxJavaType.INT16) {
             ShortBuffer buffer = onnxTensor.getShortBuffer();
             for (long i = 0; i < sizes.totalSize(); i++)
                 builder.cellByDirectIndex(i, buffer.get());
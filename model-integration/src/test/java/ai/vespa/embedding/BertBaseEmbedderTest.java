@@ -37,6 +37,33 @@ public class BertBaseEmbedderTest {
         assertEquals(embedding, expected);
     }
 
+    @Test
+    public void testBatchEmbedding() {
+        BertBaseEmbedder embedder = tokenEmbedder();
+        assumeTrue(embedder != null);
+
+        TensorType destType = TensorType.fromSpec("tensor<float>(x[7])");
+        List<Integer> tokens1 = List.of(1,2,3,4,5);
+        List<Integer> tokens2 = List.of(5,4,3,2,1);
+        List<Tensor> embeddings = embedder.embedTokens(List.of(tokens1, tokens2), destType);
+        assertEquals(2, embeddings.size());
+        assertEquals(embedder.embedTokens(tokens1, destType), embeddings.get(0));
+        assertEquals(embedder.embedTokens(tokens2, destType), embeddings.get(1));
+    }
+
+    @Test
+    public void testBatchEmbeddingOfDifferentLengths() {
+        BertBaseEmbedder embedder = tokenEmbedder();
+        assumeTrue(embedder != null);
+
+        TensorType destType = TensorType.fromSpec("tensor<float>(x[7])");
+        List<List<Integer>> tokens = List.of(List.of(3), List.of(1,2,3,4,5,6), List.of(7,8), List.of(9,8,7,6,5,4,3,2,1));
+        List<Tensor> embeddings = embedder.embedTokens(tokens, destType);
+        assertEquals(tokens.size(), embeddings.size());
+        for (int i = 0; i < tokens.size(); i++)
+            assertEquals("Embedding of text " + i, embedder.embedTokens(tokens.get(i), destType), embeddings.get(i));
+    }
+
     @Test
     public void testEmbedderWithoutTokenTypeIdsName() {
         String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
@@ -71,4 +98,19 @@ public class BertBaseEmbedderTest {
         assertThrows(IllegalArgumentException.class, () -> { new BertBaseEmbedder(builder.build()); });
     }
 
+    /**
+     * Returns an embedder of a model which embeds each token independently, such that embeddings computed
+     * in a padded batch should equal those computed one by one, or null if ONNX Runtime is not available.
+     */
+    private static BertBaseEmbedder tokenEmbedder() {
+        String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
+        String modelPath = "src/test/models/onnx/transformer/dummy_token_embedder.onnx";
+        if ( ! OnnxEvaluator.isRuntimeAvailable(modelPath)) return null;
+
+        BertBaseEmbedderConfig.Builder builder = new BertBaseEmbedderConfig.Builder();
+        builder.tokenizerVocab(ModelReference.valueOf(vocabPath));
+        builder.transformerModel(ModelReference.valueOf(modelPath));
+        return new BertBaseEmbedder(builder.build());
+    }
+
 }
@@ -0,0 +1,132 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+package ai.vespa.modelintegration.evaluator;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests batching with a model which multiplies its input by 2, without requiring ONNX Runtime.
+ *
+ * @author agent
+ */
+public class OnnxBatcherTest {
+
+    private static final OnnxBatcher.Runner timesTwo =
+            (inputs, output) -> Map.of("output", inputs.get("input").map(value -> value * 2));
+
+    @Test
+    public void testBatchDimension() {
+        assertTrue(OnnxBatcher.hasBatchDimension(Map.of("input", TensorType.fromSpec("tensor<float>(d0[],d1[3])")),
+                                                 Map.of("output", TensorType.fromSpec("tensor<float>(d0[],d1[1])"))));
+        assertFalse(OnnxBatcher.hasBatchDimension(Map.of("input", TensorType.fromSpec("tensor<float>(d0[1],d1[3])")),
+                                                  Map.of("output", TensorType.fromSpec("tensor<float>(d0[],d1[1])"))));
+        assertFalse(OnnxBatcher.hasBatchDimension(Map.of("input", TensorType.fromSpec("tensor<float>(d0[],d1[3])")),
+                                                  Map.of("output", TensorType.fromSpec("tensor<float>(d0[1])"))));
+    }
+
+    @Test
+    public void testSingleRequest() {
+        OnnxBatcher batcher = new OnnxBatcher(timesTwo, 4, Duration.ofMillis(1));
+        Map<String, Tensor> result = batcher.evaluate(Map.of("input", Tensor.from("tensor(d0[2],d1[2]):[[1,2],[3,4]]")), "output");
+        assertEquals(Tensor.from("tensor(d0[2],d1[2]):[[2,4],[6,8]]"), result.get("output"));
+        assertEquals(1, batcher.runs());
+        assertEquals(1, batcher.requests());
+    }
+
+    @Test
+    public void testConcurrentRequestsAreBatched() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        OnnxBatcher batcher = new OnnxBatcher(timesTwo, 4, Duration.ofSeconds(60), batchSizes::add);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Map<String, Tensor>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Tensor input = filled(i + 1, i);
+                results.add(executor.submit(() -> batcher.evaluate(Map.of("input", input), "output")));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals(filled(i + 1, 2 * i), results.get(i).get().get("output"));
+            }
+            assertEquals(1, batcher.runs()); // The batch is full after the 4th request, long before the max delay
+            assertEquals(4, batcher.requests());
+            assertEquals(List.of(4), batchSizes);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRequestsOfDifferentTypesAreNotBatchedTogether() throws Exception {
+        OnnxBatcher batcher = new OnnxBatcher(timesTwo, 2, Duration.ofMillis(100));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, Tensor>> result1 =
+                    executor.submit(() -> batcher.evaluate(Map.of("input", Tensor.from("tensor(d0[1],d1[2]):[[1,2]]")), "output"));
+            Future<Map<String, Tensor>> result2 =
+                    executor.submit(() -> batcher.evaluate(Map.of("input", Tensor.from("tensor(d0[1],d1[3]):[[1,2,3]]")), "output"));
+            assertEquals(Tensor.from("tensor(d0[1],d1[2]):[[2,4]]"), result1.get().get("output"));
+            assertEquals(Tensor.from("tensor(d0[1],d1[3]):[[2,4,6]]"), result2.get().get("output"));
+            assertEquals(2, batcher.runs());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testErrorsAreReturnedToAllRequestsInBatch() throws Exception {
+        OnnxBatcher.Runner failing = (inputs, output) -> { throw new OutOfMemoryError("Failing run"); };
+        OnnxBatcher batcher = new OnnxBatcher(failing, 2, Duration.ofSeconds(60));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Map<String, Tensor>>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                Tensor input = filled(1, i);
+                results.add(executor.submit(() -> batcher.evaluate(Map.of("input", input), "output")));
+            }
+            for (Future<Map<String, Tensor>> result : results) {
+                try {
+                    result.get(60, TimeUnit.SECONDS);
+                    fail("Expected exception");
+                }
+                catch (ExecutionException e) {
+                    assertEquals("Failing run", e.getCause().getMessage());
+                    assertTrue(e.getCause() instanceof OutOfMemoryError);
+                }
+            }
+            assertEquals(1, batcher.runs());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Returns a tensor of type tensor(d0[size],d1[2]) where all cells have the given value */
+    private static Tensor filled(int size, double value) {
+        Tensor.Builder builder = Tensor.Builder.of(TensorType.fromSpec("tensor(d0[" + size + "],d1[2])"));
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < 2; j++)
+                builder.cell(value, i, j);
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,35 @@
+# Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+# A model with the inputs and outputs of a transformer, but where each token is embedded independently of
+# the others, such that embedding texts in a padded batch gives the same result as embedding them one by one.
+
+import onnx
+import numpy as np
+from onnx import helper, TensorProto
+
+vocabulary_size = 20
+embedding_size = 16
+
+INPUT_IDS = helper.make_tensor_value_info('input_ids', TensorProto.INT64, ['batch', 'tokens'])
+ATTENTION_MASK = helper.make_tensor_value_info('attention_mask', TensorProto.INT64, ['batch', 'tokens'])
+TOKEN_TYPE_IDS = helper.make_tensor_value_info('token_type_ids', TensorProto.INT64, ['batch', 'tokens'])
+OUTPUT = helper.make_tensor_value_info('output_0', TensorProto.FLOAT, ['batch', 'tokens', embedding_size])
+
+embeddings = np.array([[((i * 7 + j * 3) % 11) / 10.0 - 0.5 for j in range(embedding_size)]
+                       for i in range(vocabulary_size)], dtype=np.float32)
+EMBEDDINGS = helper.make_tensor('embeddings', TensorProto.FLOAT, [vocabulary_size, embedding_size], embeddings.flatten())
+
+nodes = [
+    helper.make_node('Mul', ['input_ids', 'attention_mask'], ['masked_ids']),
+    helper.make_node('Add', ['masked_ids', 'token_type_ids'], ['ids']),
+    helper.make_node('Gather', ['embeddings', 'ids'], ['output_0'], axis=0),
+]
+graph_def = helper.make_graph(
+    nodes,
+    'dummy_token_embedder',
+    [INPUT_IDS, ATTENTION_MASK, TOKEN_TYPE_IDS],
+    [OUTPUT],
+    [EMBEDDINGS],
+)
+model_def = helper.make_model(graph_def, producer_name='dummy_token_embedder.py', opset_imports=[onnx.OperatorSetIdProto(version=12)])
+onnx.save(model_def, 'dummy_token_embedder.onnx')
@@ -74,6 +74,9 @@ public abstract class AbstractArrayContext extends Context implements Cloneable,
     @Override
     public final int getIndex(String name) { return indexedBindings.nameToIndex.get(name); }
 
+    @Override
+    public final Integer indexOf(String name) { return indexedBindings.nameToIndex.get(name); }
+
     /** Returns the max number of variables which may be set in this */
     @Override
     public int size() { return indexedBindings.size(); }
@@ -20,6 +20,16 @@ public interface ContextIndex {
      */
     int getIndex(String name);
 
+    /** Returns the index from a name, or null if this name is not known to this context */
+    default Integer indexOf(String name) {
+        try {
+            return getIndex(name);
+        }
+        catch (NullPointerException e) { // as specified by getIndex for unknown names
+            return null;
+        }
+    }
+
     Value get(int index);
 
     double getDouble(int index);
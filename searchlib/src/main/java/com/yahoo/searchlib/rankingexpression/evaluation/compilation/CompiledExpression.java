@@ -0,0 +1,278 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A scalar expression compiled to a tree of instances of the subclasses of this, each computing
+ * a double directly from the doubles of its children and the doubles in the context by index,
+ * without creating any values.
+ *
+ * @author agent
+ */
+abstract class CompiledExpression {
+
+    abstract double evaluate(Context context);
+
+    static final class Constant extends CompiledExpression {
+
+        private final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        double evaluate(Context context) { return value; }
+
+    }
+
+    static final class Variable extends CompiledExpression {
+
+        private final int index;
+
+        Variable(int index) { this.index = index; }
+
+        @Override
+        double evaluate(Context context) { return context.getDouble(index); }
+
+    }
+
+    /** The sum of a sequence of expressions, e.g. the trees of a forest, added from left to right */
+    static final class Sum extends CompiledExpression {
+
+        private final CompiledExpression[] terms;
+
+        Sum(CompiledExpression[] terms) { this.terms = terms; }
+
+        @Override
+        double evaluate(Context context) {
+            double sum = 0;
+            for (CompiledExpression term : terms)
+                sum += term.evaluate(context);
+            return sum;
+        }
+
+    }
+
+    static final class Add extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Add(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) + right.evaluate(context); }
+
+    }
+
+    static final class Subtract extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Subtract(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) - right.evaluate(context); }
+
+    }
+
+    static final class Multiply extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Multiply(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) * right.evaluate(context); }
+
+    }
+
+    static final class Divide extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Divide(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(Context context) { return left.evaluate(context) / right.evaluate(context); }
+
+    }
+
+    /** Any other binary operation */
+    static final class Binary extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+        private final DoubleBinaryOperator operator;
+
+        Binary(CompiledExpression left, CompiledExpression right, DoubleBinaryOperator operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return operator.applyAsDouble(left.evaluate(context), right.evaluate(context));
+        }
+
+    }
+
+    static final class Negate extends CompiledExpression {
+
+        private final CompiledExpression argument;
+
+        Negate(CompiledExpression argument) { this.argument = argument; }
+
+        @Override
+        double evaluate(Context context) { return -argument.evaluate(context); }
+
+    }
+
+    static final class Not extends CompiledExpression {
+
+        private final CompiledExpression argument;
+
+        Not(CompiledExpression argument) { this.argument = argument; }
+
+        @Override
+        double evaluate(Context context) { return argument.evaluate(context) != 0.0 ? 0.0 : 1.0; }
+
+    }
+
+    static final class FunctionCall extends CompiledExpression {
+
+        private final Function function;
+        private final CompiledExpression x, y;
+
+        FunctionCall(Function function, CompiledExpression x, CompiledExpression y) {
+            this.function = function;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        double evaluate(Context context) { return function.evaluate(x.evaluate(context), y.evaluate(context)); }
+
+    }
+
+    static final class If extends CompiledExpression {
+
+        private final CompiledExpression condition, trueExpression, falseExpression;
+
+        If(CompiledExpression condition, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.condition = condition;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return condition.evaluate(context) != 0.0 ? trueExpression.evaluate(context) : falseExpression.evaluate(context);
+        }
+
+    }
+
+    /** A decision tree node branching on variable &lt; constant */
+    static final class IfLess extends CompiledExpression {
+
+        private final int index;
+        private final double constant;
+        private final CompiledExpression trueExpression, falseExpression;
+
+        IfLess(int index, double constant, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.index = index;
+            this.constant = constant;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return context.getDouble(index) < constant ? trueExpression.evaluate(context) : falseExpression.evaluate(context);
+        }
+
+    }
+
+    /** A decision tree node branching on !(variable &gt;= constant), which is true also when the variable is NaN */
+    static final class IfNotLargerOrEqual extends CompiledExpression {
+
+        private final int index;
+        private final double constant;
+        private final CompiledExpression trueExpression, falseExpression;
+
+        IfNotLargerOrEqual(int index, double constant, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.index = index;
+            this.constant = constant;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return ! (context.getDouble(index) >= constant) ? trueExpression.evaluate(context) : falseExpression.evaluate(context);
+        }
+
+    }
+
+    /** A decision tree node branching on variable == constant */
+    static final class IfEqual extends CompiledExpression {
+
+        private final int index;
+        private final double constant;
+        private final CompiledExpression trueExpression, falseExpression;
+
+        IfEqual(int index, double constant, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.index = index;
+            this.constant = constant;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            return context.getDouble(index) == constant ? trueExpression.evaluate(context) : falseExpression.evaluate(context);
+        }
+
+    }
+
+    /** A decision tree node branching on variable in [constants] */
+    static final class IfIn extends CompiledExpression {
+
+        private final int index;
+        private final double[] constants;
+        private final CompiledExpression trueExpression, falseExpression;
+
+        IfIn(int index, double[] constants, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.index = index;
+            this.constants = constants;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        double evaluate(Context context) {
+            double value = context.getDouble(index);
+            for (double constant : constants) {
+                if (value == constant)
+                    return trueExpression.evaluate(context);
+            }
+            return falseExpression.evaluate(context);
+        }
+
+    }
+
+}
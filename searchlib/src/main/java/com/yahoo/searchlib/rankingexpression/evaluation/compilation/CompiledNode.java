@@ -0,0 +1,61 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.BooleanValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.SerializationContext;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * A scalar expression compiled for evaluation without creating intermediate values.
+ * This must be evaluated with contexts created from the context it was compiled for.
+ *
+ * @author agent
+ */
+public final class CompiledNode extends ExpressionNode {
+
+    private final CompiledExpression compiled;
+
+    /** The expression this is compiled from */
+    private final ExpressionNode source;
+
+    /** Whether the source expression returns a boolean */
+    private final boolean isBoolean;
+
+    CompiledNode(CompiledExpression compiled, ExpressionNode source, boolean isBoolean) {
+        this.compiled = compiled;
+        this.source = source;
+        this.isBoolean = isBoolean;
+    }
+
+    /** Returns the expression this is compiled from */
+    public ExpressionNode source() { return source; }
+
+    @Override
+    public TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
+
+    @Override
+    public Value evaluate(Context context) {
+        double value = compiled.evaluate(context);
+        return isBoolean ? new BooleanValue(value != 0.0) : new DoubleValue(value);
+    }
+
+    /** Returns the source of this, such that compiled expressions serialize as the expressions they are compiled from */
+    @Override
+    public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
+        return source.toString(string, context, path, parent);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash("compiled", source); }
+
+}
@@ -0,0 +1,238 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.BooleanValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleCompatibleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleOnlyArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.OperationNode;
+import com.yahoo.searchlib.rankingexpression.rule.Operator;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compiles scalar expressions to trees of objects computing doubles directly, which avoids creating a value
+ * for each node and looking up variables by name, and lets the JIT compiler see through the expression.
+ *
+ * This compiles the decision trees and forests produced by the GBDT optimizers, which are always scalar.
+ * When the context only holds doubles, any other subexpression consisting of scalar operations on
+ * constants and variables is compiled as well.
+ *
+ * @author agent
+ */
+public class ExpressionCompiler extends Optimizer {
+
+    @Override
+    public void optimize(RankingExpression expression, ContextIndex context, OptimizationReport report) {
+        if ( ! isEnabled()) return;
+        expression.setRoot(findAndCompile(expression.getRoot(), context, context instanceof DoubleOnlyArrayContext, report));
+        report.note("Expression compilation done");
+    }
+
+    private ExpressionNode findAndCompile(ExpressionNode node, ContextIndex context, boolean doublesOnly, OptimizationReport report) {
+        if (node instanceof GBDTForestNode || node instanceof GBDTNode || isCompilableComposite(node, doublesOnly)) {
+            Compiled compiled = compile(node, context, doublesOnly);
+            if (compiled != null) {
+                report.incMetric("Compiled expressions", 1);
+                return new CompiledNode(compiled.expression(), node, compiled.isBoolean());
+            }
+        }
+        if ( ! (node instanceof CompositeNode composite)) return node;
+
+        List<ExpressionNode> newChildren = new ArrayList<>();
+        for (ExpressionNode child : composite.children())
+            newChildren.add(findAndCompile(child, context, doublesOnly, report));
+        return composite.setChildren(newChildren);
+    }
+
+    /** Returns whether this may be a scalar composite worth compiling, i.e. not a single variable */
+    private boolean isCompilableComposite(ExpressionNode node, boolean doublesOnly) {
+        return doublesOnly && node instanceof CompositeNode && ! (node instanceof ReferenceNode);
+    }
+
+    /** Returns the given node compiled, or null if it cannot be compiled */
+    private Compiled compile(ExpressionNode node, ContextIndex context, boolean doublesOnly) {
+        if (node instanceof GBDTForestNode forest)
+            return new Compiled(compileForest(forest.values()), false);
+        if (node instanceof GBDTNode tree)
+            return new Compiled(compileTree(tree.values(), 0), false);
+        if ( ! doublesOnly) return null;
+
+        if (node instanceof ConstantNode constant) {
+            if (constant.getValue() instanceof BooleanValue value)
+                return new Compiled(new CompiledExpression.Constant(value.asDouble()), true);
+            if (constant.getValue() instanceof DoubleCompatibleValue value)
+                return new Compiled(new CompiledExpression.Constant(value.asDouble()), false);
+            return null;
+        }
+        if (node instanceof ReferenceNode reference) {
+            if ( ! reference.getArguments().isEmpty()) return null;
+            Integer index = context.indexOf(reference.toString());
+            if (index == null) return null; // Not bound in this context
+            return new Compiled(new CompiledExpression.Variable(index), false);
+        }
+        if (node instanceof EmbracedNode embraced)
+            return compile(embraced.getValue(), context, true);
+        if (node instanceof NegativeNode negative) {
+            Compiled argument = compile(negative.getValue(), context, true);
+            if (argument == null) return null;
+            return new Compiled(new CompiledExpression.Negate(argument.expression()), false);
+        }
+        if (node instanceof NotNode not) {
+            Compiled argument = compile(not.getValue(), context, true);
+            if (argument == null) return null;
+            return new Compiled(new CompiledExpression.Not(argument.expression()), true);
+        }
+        if (node instanceof IfNode ifNode) {
+            Compiled condition = compile(ifNode.getCondition(), context, true);
+            Compiled trueExpression = compile(ifNode.getTrueExpression(), context, true);
+            Compiled falseExpression = compile(ifNode.getFalseExpression(), context, true);
+            if (condition == null || trueExpression == null || falseExpression == null) return null;
+            return new Compiled(new CompiledExpression.If(condition.expression(),
+                                                          trueExpression.expression(),
+                                                          falseExpression.expression()),
+                                trueExpression.isBoolean() && falseExpression.isBoolean());
+        }
+        if (node instanceof FunctionNode function)
+            return compileFunction(function, context);
+        if (node instanceof OperationNode operation)
+            return compileOperation(operation, context);
+        return null;
+    }
+
+    private CompiledExpression compileForest(double[] values) {
+        List<CompiledExpression> trees = new ArrayList<>();
+        int pc = 0;
+        while (pc < values.length) {
+            int nextTree = (int)values[pc++];
+            trees.add(compileTree(values, pc));
+            pc += nextTree;
+        }
+        return new CompiledExpression.Sum(trees.toArray(new CompiledExpression[0]));
+    }
+
+    /** Compiles the tree starting at the given position in the value encoding described in GBDTNode */
+    private CompiledExpression compileTree(double[] values, int pc) {
+        double nextValue = values[pc++];
+        if (nextValue < GBDTNode.MAX_LEAF_VALUE)
+            return new CompiledExpression.Constant(nextValue);
+
+        int offset = (int)nextValue - GBDTNode.MAX_LEAF_VALUE;
+        int opcode = offset / GBDTNode.MAX_VARIABLES;
+        int index = offset % GBDTNode.MAX_VARIABLES;
+        double[] constants;
+        if (opcode == 2) { // set membership
+            constants = new double[(int)values[pc++]];
+            for (int i = 0; i < constants.length; i++)
+                constants[i] = values[pc++];
+        }
+        else {
+            constants = new double[] { values[pc++] };
+        }
+        CompiledExpression trueExpression = compileTree(values, pc + 1);
+        CompiledExpression falseExpression = compileTree(values, pc + (int)values[pc]);
+        return switch (opcode) {
+            case 0 -> new CompiledExpression.IfLess(index, constants[0], trueExpression, falseExpression);
+            case 1 -> new CompiledExpression.IfEqual(index, constants[0], trueExpression, falseExpression);
+            case 2 -> new CompiledExpression.IfIn(index, constants, trueExpression, falseExpression);
+            default -> new CompiledExpression.IfNotLargerOrEqual(index, constants[0], trueExpression, falseExpression);
+        };
+    }
+
+    private Compiled compileFunction(FunctionNode node, ContextIndex context) {
+        // Missing arguments are 0, as in FunctionNode.evaluate
+        CompiledExpression[] arguments = { new CompiledExpression.Constant(0), new CompiledExpression.Constant(0) };
+        List<ExpressionNode> children = node.children();
+        for (int i = 0; i < children.size() && i < 2; i++) {
+            Compiled argument = compile(children.get(i), context, true);
+            if (argument == null) return null;
+            arguments[i] = argument.expression();
+        }
+        return new Compiled(new CompiledExpression.FunctionCall(node.getFunction(), arguments[0], arguments[1]), false);
+    }
+
+    /** Compiles a sequence of operations into a tree of binary operations in precedence order, as in OperationNode */
+    private Compiled compileOperation(OperationNode node, ContextIndex context) {
+        List<Compiled> children = new ArrayList<>();
+        for (ExpressionNode child : node.children()) {
+            Compiled compiled = compile(child, context, true);
+            if (compiled == null) return null;
+            children.add(compiled);
+        }
+        for (Operator operator : node.operators())
+            if (operator == Operator.approxEqual) return null;
+
+        Iterator<Compiled> child = children.iterator();
+        Deque<Operand> stack = new ArrayDeque<>();
+        stack.push(new Operand(null, child.next()));
+        for (Iterator<Operator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+            Operator op = it.next();
+            while (stack.size() > 1 && ! op.hasPrecedenceOver(stack.peek().op))
+                popStack(stack);
+            stack.push(new Operand(op, child.next()));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().value;
+    }
+
+    private void popStack(Deque<Operand> stack) {
+        Operand rhs = stack.pop();
+        Operand lhs = stack.peek();
+        lhs.value = combine(rhs.op, lhs.value.expression(), rhs.value.expression());
+    }
+
+    private Compiled combine(Operator operator, CompiledExpression x, CompiledExpression y) {
+        return switch (operator) {
+            case plus -> new Compiled(new CompiledExpression.Add(x, y), false);
+            case minus -> new Compiled(new CompiledExpression.Subtract(x, y), false);
+            case multiply -> new Compiled(new CompiledExpression.Multiply(x, y), false);
+            case divide -> new Compiled(new CompiledExpression.Divide(x, y), false);
+            case modulo -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a % b), false);
+            case power -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> Function.pow.evaluate(a, b)), false);
+            case or -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a != 0.0 || b != 0.0 ? 1 : 0), true);
+            case and -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a != 0.0 && b != 0.0 ? 1 : 0), true);
+            case largerOrEqual -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a >= b ? 1 : 0), true);
+            case larger -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a > b ? 1 : 0), true);
+            case smallerOrEqual -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a <= b ? 1 : 0), true);
+            case smaller -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a < b ? 1 : 0), true);
+            case notEqual -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a != b ? 1 : 0), true);
+            case equal -> new Compiled(new CompiledExpression.Binary(x, y, (a, b) -> a == b ? 1 : 0), true);
+            case approxEqual -> throw new IllegalArgumentException("Cannot compile " + operator);
+        };
+    }
+
+    private record Compiled(CompiledExpression expression, boolean isBoolean) {}
+
+    private static class Operand {
+
+        final Operator op;
+        Compiled value;
+
+        Operand(Operator op, Compiled value) {
+            this.op = op;
+            this.value = value;
+        }
+
+    }
+
+}
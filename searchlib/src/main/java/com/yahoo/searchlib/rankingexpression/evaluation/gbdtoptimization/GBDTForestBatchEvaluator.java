@@ -0,0 +1,255 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Evaluates an optimized decision forest for many candidates at once.
+ *
+ * The features of the candidates are given column-wise: One array per variable, holding the value of
+ * that variable for each candidate. Trees with at most 64 leaves are evaluated by the QuickScorer algorithm:
+ * Each candidate has a bitvector of the leaves of the tree it may still exit in. Every node of the tree is
+ * tested for all candidates in a tight loop without branching on the tree structure, and when the condition
+ * is false, the leaves of its true branch are cleared. The exit leaf is then the leftmost leaf left.
+ * Larger trees are traversed for each candidate in turn.
+ *
+ * The result is exactly the same as evaluating the forest node for each candidate.
+ * Instances of this are immutable and can be used by multiple threads.
+ *
+ * @author agent
+ */
+public final class GBDTForestBatchEvaluator {
+
+    // Condition opcodes, in the order of the encoding in GBDTNode
+    private static final int less = 0;
+    private static final int equal = 1;
+    private static final int in = 2;
+    private static final int notLargerOrEqual = 3;
+
+    private final Tree[] trees;
+    private final int[] variables;
+
+    /** Creates a batch evaluator of the given forest */
+    public GBDTForestBatchEvaluator(GBDTForestNode forest) {
+        List<Node> roots = new ArrayList<>();
+        double[] values = forest.values();
+        int pc = 0;
+        while (pc < values.length) {
+            int nextTree = (int)values[pc++];
+            roots.add(decode(values, pc));
+            pc += nextTree;
+        }
+        this.trees = roots.stream().map(GBDTForestBatchEvaluator::toTree).toArray(Tree[]::new);
+        this.variables = variablesOf(roots);
+    }
+
+    /** Creates a batch evaluator of a single tree */
+    public GBDTForestBatchEvaluator(GBDTNode tree) {
+        Node root = decode(tree.values(), 0);
+        this.trees = new Tree[] { toTree(root) };
+        this.variables = variablesOf(List.of(root));
+    }
+
+    /** Returns the indexes of the variables read by this, in increasing order */
+    public int[] variables() { return variables.clone(); }
+
+    /**
+     * Evaluates this for a number of candidates.
+     *
+     * @param features the value of each variable for each candidate, indexed by variable index and candidate.
+     *                 Only the arrays of the variables read by this are accessed, and each must hold at least
+     *                 size values. Values are doubles as returned by Context.getDouble
+     * @param size the number of candidates
+     * @return the value of the forest for each candidate
+     */
+    public double[] evaluate(double[][] features, int size) {
+        double[] result = new double[size];
+        long[] leaves = new long[size];
+        for (Tree tree : trees)
+            tree.addTo(features, size, leaves, result);
+        return result;
+    }
+
+    private static Node decode(double[] values, int pc) {
+        double nextValue = values[pc++];
+        if (nextValue < GBDTNode.MAX_LEAF_VALUE)
+            return new Leaf(nextValue);
+
+        int offset = (int)nextValue - GBDTNode.MAX_LEAF_VALUE;
+        int opcode = Math.min(offset / GBDTNode.MAX_VARIABLES, notLargerOrEqual);
+        double[] constants;
+        if (opcode == in) {
+            constants = new double[(int)values[pc++]];
+            for (int i = 0; i < constants.length; i++)
+                constants[i] = values[pc++];
+        }
+        else {
+            constants = new double[] { values[pc++] };
+        }
+        return new Split(opcode, offset - opcode * GBDTNode.MAX_VARIABLES, constants,
+                         decode(values, pc + 1), decode(values, pc + (int)values[pc]));
+    }
+
+    private static Tree toTree(Node root) {
+        List<Double> leaves = new ArrayList<>();
+        List<Split> splits = new ArrayList<>();
+        List<Long> masks = new ArrayList<>();
+        collect(root, leaves, splits, masks);
+        if (leaves.size() > 64) return new TraversedTree(root);
+        return new BitvectorTree(leaves, splits, masks);
+    }
+
+    /** Collects the leaves of this tree from left to right, and the splits with the mask clearing their true branch */
+    private static void collect(Node node, List<Double> leaves, List<Split> splits, List<Long> masks) {
+        if (node instanceof Leaf leaf) {
+            leaves.add(leaf.value);
+            return;
+        }
+        Split split = (Split)node;
+        int trueStart = leaves.size();
+        int maskIndex = splits.size();
+        splits.add(split);
+        masks.add(0L);
+        collect(split.trueNode, leaves, splits, masks);
+        int trueLeaves = leaves.size() - trueStart;
+        if (trueLeaves < 64)
+            masks.set(maskIndex, ~(((1L << trueLeaves) - 1) << trueStart));
+        collect(split.falseNode, leaves, splits, masks);
+    }
+
+    private static int[] variablesOf(List<Node> roots) {
+        TreeSet<Integer> variables = new TreeSet<>();
+        for (Node root : roots)
+            addVariables(root, variables);
+        return variables.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static void addVariables(Node node, TreeSet<Integer> variables) {
+        if ( ! (node instanceof Split split)) return;
+        variables.add(split.variable);
+        addVariables(split.trueNode, variables);
+        addVariables(split.falseNode, variables);
+    }
+
+    private static boolean isTrue(int opcode, double[] constants, double value) {
+        return switch (opcode) {
+            case less -> value < constants[0];
+            case equal -> value == constants[0];
+            case in -> contains(constants, value);
+            default -> ! (value >= constants[0]);
+        };
+    }
+
+    private static boolean contains(double[] constants, double value) {
+        for (double constant : constants)
+            if (value == constant) return true;
+        return false;
+    }
+
+    private static abstract class Node {}
+
+    private static final class Leaf extends Node {
+
+        final double value;
+
+        Leaf(double value) { this.value = value; }
+
+    }
+
+    private static final class Split extends Node {
+
+        final int opcode;
+        final int variable;
+        final double[] constants;
+        final Node trueNode, falseNode;
+
+        Split(int opcode, int variable, double[] constants, Node trueNode, Node falseNode) {
+            this.opcode = opcode;
+            this.variable = variable;
+            this.constants = constants;
+            this.trueNode = trueNode;
+            this.falseNode = falseNode;
+        }
+
+    }
+
+    private static abstract class Tree {
+
+        /** Adds the value of this tree for each candidate to result, using leaves as scratch space */
+        abstract void addTo(double[][] features, int size, long[] leaves, double[] result);
+
+    }
+
+    /** A tree with at most 64 leaves, evaluated by clearing unreachable leaves in bitvectors */
+    private static final class BitvectorTree extends Tree {
+
+        private final int[] opcodes;
+        private final int[] variables;
+        private final double[][] constants;
+        private final long[] masks;
+        private final double[] leafValues;
+
+        BitvectorTree(List<Double> leaves, List<Split> splits, List<Long> masks) {
+            this.opcodes = splits.stream().mapToInt(split -> split.opcode).toArray();
+            this.variables = splits.stream().mapToInt(split -> split.variable).toArray();
+            this.constants = splits.stream().map(split -> split.constants).toArray(double[][]::new);
+            this.masks = masks.stream().mapToLong(Long::longValue).toArray();
+            this.leafValues = leaves.stream().mapToDouble(Double::doubleValue).toArray();
+        }
+
+        @Override
+        void addTo(double[][] features, int size, long[] leaves, double[] result) {
+            Arrays.fill(leaves, 0, size, -1L);
+            for (int node = 0; node < masks.length; node++) {
+                double[] column = features[variables[node]];
+                long mask = masks[node];
+                double constant = constants[node].length > 0 ? constants[node][0] : 0;
+                switch (opcodes[node]) {
+                    case less -> {
+                        for (int i = 0; i < size; i++)
+                            leaves[i] &= column[i] < constant ? -1L : mask;
+                    }
+                    case equal -> {
+                        for (int i = 0; i < size; i++)
+                            leaves[i] &= column[i] == constant ? -1L : mask;
+                    }
+                    case in -> {
+                        for (int i = 0; i < size; i++)
+                            leaves[i] &= contains(constants[node], column[i]) ? -1L : mask;
+                    }
+                    default -> {
+                        for (int i = 0; i < size; i++)
+                            leaves[i] &= ! (column[i] >= constant) ? -1L : mask;
+                    }
+                }
+            }
+            for (int i = 0; i < size; i++)
+                result[i] += leafValues[Long.numberOfTrailingZeros(leaves[i])];
+        }
+
+    }
+
+    /** A tree too large for a bitvector, traversed for each candidate */
+    private static final class TraversedTree extends Tree {
+
+        private final Node root;
+
+        TraversedTree(Node root) { this.root = root; }
+
+        @Override
+        void addTo(double[][] features, int size, long[] leaves, double[] result) {
+            for (int i = 0; i < size; i++) {
+                Node node = root;
+                while (node instanceof Split split)
+                    node = isTrue(split.opcode, split.constants, features[split.variable][i]) ? split.trueNode
+                                                                                              : split.falseNode;
+                result[i] += ((Leaf)node).value;
+            }
+        }
+
+    }
+
+}
@@ -168,7 +168,7 @@ public class GBDTOptimizer extends Optimizer {
             throw new IllegalArgumentException("Contained a left-hand comparison expression " +
                                                "which was not a feature value but was: " + node);
         }
-        Integer index = context.getIndex(fNode.toString());
+        Integer index = context.indexOf(fNode.toString());
         if (index == null) {
             throw new IllegalStateException("The ranking expression contained feature '" + fNode.getName() +
                                             "', which is not known to " + context + ": The context must be created" +
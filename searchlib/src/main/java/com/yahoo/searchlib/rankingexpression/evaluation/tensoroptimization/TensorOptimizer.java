@@ -6,16 +6,23 @@ import com.yahoo.searchlib.rankingexpression.Reference;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
 import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
 import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
 import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.SerializationContext;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
 import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import com.yahoo.tensor.functions.TensorFunction;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Recognizes and optimizes tensor expressions.
@@ -34,11 +41,13 @@ public class TensorOptimizer extends Optimizer {
         report.note("Tensor expression optimization done");
     }
 
+    /** Optimizes bottom up, such that chains of operations are fused starting from the innermost one */
     private ExpressionNode optimize(ExpressionNode node, ContextIndex context) {
-        node = optimizeReduceJoin(node);
         if (node instanceof CompositeNode) {
-            return optimizeChildren((CompositeNode)node, context);
+            node = optimizeChildren((CompositeNode)node, context);
         }
+        node = optimizeMapMap(node);
+        node = optimizeReduceJoin(node);
         return node;
     }
 
@@ -81,7 +90,125 @@ public class TensorOptimizer extends Optimizer {
             report.incMetric("Replaced reduce->join", 1);
             return new TensorFunctionNode(new ReduceJoin<>((Reduce<Reference>)function, (Join<Reference>)argument));
         }
+        if (argument instanceof Map && singleChildFunction(child) instanceof Join) {
+            // The map is applied to each joined value before it is aggregated
+            Map<Reference> map = (Map<Reference>)argument;
+            Join<Reference> join = (Join<Reference>)singleChildFunction(child);
+            Reduce<Reference> reduce = (Reduce<Reference>)function;
+            report.incMetric("Replaced reduce->map->join", 1);
+            return new TensorFunctionNode(new ReduceJoin<>(join.arguments().get(0),
+                                                           join.arguments().get(1),
+                                                           new MappedCombinator(join.combinator(), map.mapper()),
+                                                           reduce.aggregator(),
+                                                           reduce.dimensions()));
+        }
         return node;
     }
 
+    /**
+     * Recognizes a map followed by a map, and replaces it by a single map
+     * applying both functions, avoiding the cost of a temporary tensor.
+     */
+    @SuppressWarnings("unchecked")
+    private ExpressionNode optimizeMapMap(ExpressionNode node) {
+        if ( ! (node instanceof TensorFunctionNode)) return node;
+        if ( ! (((TensorFunctionNode) node).function() instanceof Map)) return node;
+        if ( ! (singleChildFunction(node) instanceof Map)) return node;
+        Map<Reference> outer = (Map<Reference>)((TensorFunctionNode) node).function();
+        Map<Reference> inner = (Map<Reference>)singleChildFunction(node);
+        report.incMetric("Replaced map->map", 1);
+        return new TensorFunctionNode(new Map<>(inner.argument(), new MappedMapper(inner.mapper(), outer.mapper())));
+    }
+
+    /** Returns the tensor function of the single child of the given node, or null if it does not have one */
+    private TensorFunction<Reference> singleChildFunction(ExpressionNode node) {
+        if ( ! (node instanceof TensorFunctionNode)) return null;
+        List<ExpressionNode> children = ((TensorFunctionNode) node).children();
+        if (children.size() != 1) return null;
+        if ( ! (children.get(0) instanceof TensorFunctionNode)) return null;
+        return ((TensorFunctionNode) children.get(0)).function();
+    }
+
+    /**
+     * Returns the lambda applying the outer function to the result of the inner, on the form f(arguments)(body),
+     * given that both functions render as lambdas, where the outer takes a single argument.
+     * Otherwise, returns a description which cannot be parsed.
+     */
+    static String composedToString(Object outer, Object inner) {
+        Lambda outerLambda = Lambda.from(outer);
+        Lambda innerLambda = Lambda.from(inner);
+        if (outerLambda == null || innerLambda == null || outerLambda.arguments().contains(","))
+            return outer + " of " + inner;
+        try {
+            SerializationContext context = new SerializationContext().withBindings(java.util.Map.of(outerLambda.arguments().trim(),
+                                                                                                    "(" + innerLambda.body() + ")"));
+            StringBuilder body = new RankingExpression(outerLambda.body()).getRoot().toString(new StringBuilder(), context,
+                                                                                               new ArrayDeque<>(), null);
+            return "f(" + innerLambda.arguments() + ")(" + body + ")";
+        }
+        catch (ParseException e) {
+            return outer + " of " + inner;
+        }
+    }
+
+    /** The arguments and body of a function rendered as f(arguments)(body) */
+    private record Lambda(String arguments, String body) {
+
+        /** Returns the arguments and body of the given function, or null if it does not render as a lambda */
+        static Lambda from(Object function) {
+            String lambda = function.toString();
+            int argumentsEnd = lambda.indexOf(")(");
+            if ( ! lambda.startsWith("f(") || ! lambda.endsWith(")") || argumentsEnd < 0) return null;
+            return new Lambda(lambda.substring(2, argumentsEnd), lambda.substring(argumentsEnd + 2, lambda.length() - 1));
+        }
+
+    }
+
+    /** A combinator followed by a mapper */
+    private static class MappedCombinator implements DoubleBinaryOperator {
+
+        private final DoubleBinaryOperator combinator;
+        private final DoubleUnaryOperator mapper;
+
+        MappedCombinator(DoubleBinaryOperator combinator, DoubleUnaryOperator mapper) {
+            this.combinator = combinator;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public double applyAsDouble(double left, double right) {
+            return mapper.applyAsDouble(combinator.applyAsDouble(left, right));
+        }
+
+        @Override
+        public String toString() { return composedToString(mapper, combinator); }
+
+        @Override
+        public int hashCode() { return Objects.hash("mappedCombinator", combinator, mapper); }
+
+    }
+
+    /** A mapper followed by another */
+    private static class MappedMapper implements DoubleUnaryOperator {
+
+        private final DoubleUnaryOperator first, second;
+
+        MappedMapper(DoubleUnaryOperator first, DoubleUnaryOperator second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public double applyAsDouble(double operand) {
+            return second.applyAsDouble(first.applyAsDouble(operand));
+        }
+
+        @Override
+        public String toString() { return composedToString(second, first); }
+
+        @Override
+        public int hashCode() { return Objects.hash("mappedMapper", first, second); }
+
+    }
+
 }
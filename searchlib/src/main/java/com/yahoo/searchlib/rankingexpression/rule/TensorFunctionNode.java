@@ -10,6 +10,7 @@ import com.yahoo.searchlib.rankingexpression.evaluation.Value;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorArena;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.TypeContext;
@@ -396,6 +397,12 @@ public class TensorFunctionNode extends CompositeNode {
             return delegate.getType(name);
         }
 
+        @Override
+        public TensorArena arena() { return delegate.arena(); }
+
+        @Override
+        public boolean parallel() { return delegate.parallel(); }
+
     }
 
 }
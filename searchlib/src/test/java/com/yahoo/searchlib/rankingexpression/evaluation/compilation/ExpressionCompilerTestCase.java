@@ -0,0 +1,108 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.BooleanValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleOnlyArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ExpressionCompilerTestCase {
+
+    private static final double[][] arguments = { { 1, 2, 3 }, { 3, 2, 1 }, { 2, 2, 2 }, { -1.5, 0, 7 }, { Double.NaN, 1, 2 } };
+
+    @Test
+    public void testScalarCompilation() throws ParseException {
+        assertCompiled("a + b * c");
+        assertCompiled("a - b - c + 1");
+        assertCompiled("a / b / c");
+        assertCompiled("a * b + c / 2 - a % 2");
+        assertCompiled("2 ^ b ^ c + a ^ 2");
+        assertCompiled("-a + -(b - c)");
+        assertCompiled("a < b");
+        assertCompiled("a <= b && b < c || !(a == c)");
+        assertCompiled("a != b || a >= c && b > 1");
+        assertCompiled("if (a > b, a, b)");
+        assertCompiled("if (a < b, true, false)");
+        assertCompiled("if (a, b, c)");
+        assertCompiled("max(a, b) + sqrt(c) + log10(c) + atan2(a, b)");
+        assertCompiled("exp(a) * (b + 1) - tanh(c)");
+    }
+
+    @Test
+    public void testNoCompilationOfUnsupportedOperations() throws ParseException {
+        RankingExpression expression = new RankingExpression("a + b ~= c");
+        new ExpressionOptimizer().optimize(expression, new DoubleOnlyArrayContext(expression));
+        assertFalse(expression.getRoot() instanceof CompiledNode);
+        assertEquals(new RankingExpression("a + b ~= c").getRoot().toString(), expression.getRoot().toString());
+    }
+
+    @Test
+    public void testForestCompilation() throws ParseException {
+        String gbdtString =
+                "if (x < 1.5, 0.1, if (y in [1, 2, 3], if (z < 0.5, 0.2, 0.3), if (x == 4, 0.4, 0.5))) + " +
+                "if (!(y >= 2), if (z < 3, 0.01, 0.02), 0.03) + " +
+                "if (z < 2.5, -0.1, if (x < 3, -0.2, -0.3))";
+        RankingExpression compiled = new RankingExpression(gbdtString);
+        ArrayContext context = new ArrayContext(compiled, DoubleValue.NaN);
+        OptimizationReport report = new ExpressionOptimizer().optimize(compiled, context);
+        assertEquals(1, report.getMetric("Number of forests"));
+        assertEquals(1, report.getMetric("Compiled expressions"));
+        assertTrue(compiled.getRoot() instanceof CompiledNode);
+
+        RankingExpression interpreted = new RankingExpression(gbdtString);
+        assertEquals(interpreted.evaluate(new MapContext(DoubleValue.NaN)).asDouble(), compiled.evaluate(context).asDouble(), 1e-9);
+        for (double x : new double[] { 0, 2, 4 }) {
+            for (double y : new double[] { 1, 2, 3, 5 }) {
+                for (double z : new double[] { 0, 1, 3 }) {
+                    MapContext mapContext = new MapContext(DoubleValue.NaN);
+                    mapContext.put("x", x);
+                    mapContext.put("y", y);
+                    mapContext.put("z", z);
+                    context.put("x", x);
+                    context.put("y", y);
+                    context.put("z", z);
+                    assertEquals(interpreted.evaluate(mapContext).asDouble(), compiled.evaluate(context).asDouble(), 1e-9);
+                }
+            }
+        }
+    }
+
+    private void assertCompiled(String expressionString) throws ParseException {
+        RankingExpression compiled = new RankingExpression(expressionString);
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(compiled, true);
+        OptimizationReport report = new ExpressionOptimizer().optimize(compiled, context);
+        assertEquals(expressionString, 1, report.getMetric("Compiled expressions"));
+        assertTrue(expressionString, compiled.getRoot() instanceof CompiledNode);
+        assertEquals(new RankingExpression(expressionString).getRoot().toString(), compiled.getRoot().toString());
+
+        RankingExpression interpreted = new RankingExpression(expressionString);
+        for (double[] values : arguments) {
+            MapContext mapContext = new MapContext();
+            mapContext.put("a", values[0]);
+            mapContext.put("b", values[1]);
+            mapContext.put("c", values[2]);
+            context.put("a", values[0]);
+            context.put("b", values[1]);
+            context.put("c", values[2]);
+            Value expected = interpreted.evaluate(mapContext);
+            Value result = compiled.evaluate(context);
+            assertEquals(expressionString, expected instanceof BooleanValue, result instanceof BooleanValue);
+            assertEquals(expressionString, expected.asDouble(), result.asDouble(), 0);
+        }
+    }
+
+}
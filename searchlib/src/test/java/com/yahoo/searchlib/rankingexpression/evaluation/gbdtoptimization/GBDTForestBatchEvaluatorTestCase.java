@@ -0,0 +1,111 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.ArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.compilation.CompiledNode;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class GBDTForestBatchEvaluatorTestCase {
+
+    private static final String[] variables = { "a", "b", "c", "d" };
+
+    @Test
+    public void testBatchEvaluationOfSmallTrees() throws ParseException {
+        assertBatchEvaluation(20, 5, 1);
+    }
+
+    @Test
+    public void testBatchEvaluationOfTreesTooLargeForBitvectors() throws ParseException {
+        assertBatchEvaluation(4, 8, 2); // up to 256 leaves
+    }
+
+    @Test
+    public void testBatchEvaluationOfSingleTree() throws ParseException {
+        RankingExpression expression = new RankingExpression("if (a < 2, if (b == 1, 3, 4), if (c in [1, 2], 5, 6))");
+        ArrayContext context = new ArrayContext(expression, DoubleValue.NaN);
+        new GBDTOptimizer().optimize(expression, context, new OptimizationReport());
+        GBDTForestBatchEvaluator evaluator = new GBDTForestBatchEvaluator((GBDTNode)expression.getRoot());
+
+        double[][] features = new double[context.size()][];
+        features[context.getIndex("a")] = new double[] { 1, 1, 3, 3, Double.NaN };
+        features[context.getIndex("b")] = new double[] { 1, 0, 1, 1, 1 };
+        features[context.getIndex("c")] = new double[] { 0, 0, 2, 3, 1 };
+        double[] result = evaluator.evaluate(features, 5);
+        assertEquals(3, result[0], 0);
+        assertEquals(4, result[1], 0);
+        assertEquals(5, result[2], 0);
+        assertEquals(6, result[3], 0);
+        assertEquals(5, result[4], 0);
+    }
+
+    private void assertBatchEvaluation(int trees, int depth, long seed) throws ParseException {
+        Random random = new Random(seed);
+        StringBuilder forestString = new StringBuilder();
+        for (int i = 0; i < trees; i++) {
+            if (i > 0)
+                forestString.append(" + ");
+            appendTree(depth, true, random, forestString);
+        }
+        RankingExpression expression = new RankingExpression(forestString.toString());
+        ArrayContext context = new ArrayContext(expression, DoubleValue.NaN);
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(1, report.getMetric("Number of forests"));
+        GBDTForestNode forest = (GBDTForestNode)((CompiledNode)expression.getRoot()).source();
+        GBDTForestBatchEvaluator evaluator = new GBDTForestBatchEvaluator(forest);
+
+        int candidates = 300;
+        double[][] features = new double[context.size()][candidates];
+        for (int i = 0; i < candidates; i++) {
+            for (String variable : variables) {
+                double value = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(8);
+                features[context.getIndex(variable)][i] = value;
+            }
+        }
+        double[] result = evaluator.evaluate(features, candidates);
+
+        RankingExpression interpreted = new RankingExpression(forestString.toString());
+        for (int i = 0; i < candidates; i++) {
+            ArrayContext candidateContext = new ArrayContext(interpreted, DoubleValue.NaN);
+            for (String variable : variables) {
+                double value = features[context.getIndex(variable)][i];
+                if ( ! Double.isNaN(value)) // NaN is missing
+                    candidateContext.put(variable, value);
+            }
+            assertEquals(forest.evaluate(candidateContext).asDouble(), result[i], 0);
+        }
+    }
+
+    private void appendTree(int depth, boolean isRoot, Random random, StringBuilder b) {
+        if (depth == 0 || ( ! isRoot && random.nextInt(8) == 0)) {
+            b.append(random.nextInt(1000) / 100.0);
+            return;
+        }
+        String variable = variables[random.nextInt(variables.length)];
+        int constant = random.nextInt(8);
+        b.append("if (");
+        switch (random.nextInt(4)) {
+            case 0 -> b.append(variable).append(" < ").append(constant + 0.5);
+            case 1 -> b.append(variable).append(" == ").append(constant);
+            case 2 -> b.append(variable).append(" in [").append(constant).append(", ").append((constant + 3) % 8).append("]");
+            default -> b.append("!(").append(variable).append(" >= ").append(constant + 0.5).append(")");
+        }
+        b.append(", ");
+        appendTree(depth - 1, false, random, b);
+        b.append(", ");
+        appendTree(depth - 1, false, random, b);
+        b.append(")");
+    }
+
+}
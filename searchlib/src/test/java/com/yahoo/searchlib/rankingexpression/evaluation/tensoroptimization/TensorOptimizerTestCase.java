@@ -10,6 +10,7 @@ import com.yahoo.searchlib.rankingexpression.parser.ParseException;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import org.junit.Test;
@@ -52,6 +53,47 @@ public class TensorOptimizerTestCase {
         assertCantOptimize("d0[1],d1[2],d2[3]", "d0[1],d1[2],d2[3]", "d1,d2");  // reducing on less then joining on
     }
 
+    @Test
+    public void testMapFusion() throws ParseException {
+        Tensor a = generateRandomTensor("d0[3],d1[2]");
+        Tensor b = generateRandomTensor("d1[2]");
+
+        assertFused("reduce(map(join(a, b, f(a,b)(a - b)), f(x)(x * x)), sum, d1)",
+                    "reduce(join(a, b, f(a,b)((a - b) * (a - b))), sum, d1)",
+                    "Replaced reduce->map->join", ReduceJoin.class, a, b);
+        assertFused("reduce(map(join(a, b, f(a,b)(a - b)), f(x)(x * x)), sum)",
+                    "reduce(join(a, b, f(a,b)((a - b) * (a - b))), sum)",
+                    "Replaced reduce->map->join", ReduceJoin.class, a, b);
+        assertFused("map(map(join(a, b, f(a,b)(a * b)), f(x)(x * 2)), f(x)(x + 1))",
+                    "map(join(a, b, f(a,b)(a * b)), f(x)((x * 2) + 1))",
+                    "Replaced map->map", Map.class, a, b);
+    }
+
+    @Test
+    public void testComposedFunctionsToString() {
+        assertEquals("f(a,b)(exp((max(a, b))))",
+                     TensorOptimizer.composedToString("f(x)(exp(x))", "f(a,b)(max(a, b))"));
+        assertEquals("outer of inner", TensorOptimizer.composedToString("outer", "inner"));
+        assertEquals("f(x,y)(x) of f(a)(a)", TensorOptimizer.composedToString("f(x,y)(x)", "f(a)(a)"));
+    }
+
+    private void assertFused(String expressionString, String expectedOptimized, String metric, Class<?> rootFunctionClass,
+                             Tensor a, Tensor b) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = generateContext(a, b, expression);
+        Tensor result = expression.evaluate(context).asTensor();
+
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(1, report.getMetric(metric));
+        assertEquals(rootFunctionClass, ((TensorFunctionNode)expression.getRoot()).function().getClass());
+        assertEquals(result, expression.evaluate(context).asTensor());
+
+        // The optimized expression can be parsed back to an equivalent expression
+        assertEquals(expectedOptimized, expression.toString());
+        RankingExpression parsed = new RankingExpression(expression.toString());
+        assertEquals(result, parsed.evaluate(generateContext(a, b, parsed)).asTensor());
+    }
+
     private void assertWillOptimize(String aType, String bType) throws ParseException {
         assertWillOptimize(aType, bType, "", "sum");
     }
@@ -0,0 +1,350 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable index of the distinct addresses in the mapped dimensions of a tensor, where each address
+ * is identified by its number in the order it was added. This is used to store tensor cells without
+ * an address instance per cell: Labels are stored once in a label table owned by the tensor and replaced
+ * by int ids, and the ids of addresses with at most two labels are packed into a single long which
+ * is looked up in a hash table of longs. Addresses with more labels are kept as TensorAddress keys.
+ *
+ * @author agent
+ */
+abstract class AddressIndex {
+
+    /** The max number of labels of addresses which are packed into a long */
+    static final int maxPackedRank = 2;
+
+    final int rank;
+
+    private AddressIndex(int rank) {
+        this.rank = rank;
+    }
+
+    /** Returns the number of addresses in this */
+    abstract int size();
+
+    /** Returns the number of the given address, or -1 if it is not present. The address must have the rank of this. */
+    abstract int indexOf(TensorAddress address);
+
+    /**
+     * Returns the number of the address consisting of the labels at the given positions in the given address,
+     * or -1 if it is not present.
+     */
+    abstract int indexOf(TensorAddress address, int[] positions);
+
+    /** Returns the label in the given dimension of the address with the given number */
+    abstract String label(int index, int dimension);
+
+    /** Returns the address with the given number */
+    TensorAddress addressOf(int index) {
+        String[] labels = new String[rank];
+        for (int i = 0; i < rank; i++)
+            labels[i] = label(index, i);
+        return TensorAddress.of(labels);
+    }
+
+    /** Returns the hash code of the address with the given number, without creating the address */
+    int hashOf(int index) {
+        int result = 1;
+        for (int i = 0; i < rank; i++)
+            result = 31 * result + label(index, i).hashCode();
+        return result;
+    }
+
+    /** Returns the positions 0 to rank-1 */
+    static int[] positions(int rank) {
+        int[] positions = new int[rank];
+        for (int i = 0; i < rank; i++)
+            positions[i] = i;
+        return positions;
+    }
+
+    /** Returns a builder of an index of addresses with the given number of labels */
+    static Builder builder(int rank) {
+        return rank <= maxPackedRank ? new PackedIndex.Builder(rank) : new AddressMapIndex.Builder(rank);
+    }
+
+    /** A mutable builder of an address index. Not multithread safe. */
+    abstract static class Builder {
+
+        final int rank;
+
+        private Builder(int rank) {
+            this.rank = rank;
+        }
+
+        /** Returns the number of addresses added to this */
+        abstract int size();
+
+        /** Adds the given address if it is not present, and returns its number */
+        abstract int add(TensorAddress address);
+
+        /** Adds the address consisting of the labels at the given positions of the given address if it is not present, and returns its number */
+        abstract int add(TensorAddress address, int[] positions);
+
+        /** Adds the address consisting of the given labels if it is not present, and returns its number */
+        abstract int add(String[] labels);
+
+        abstract AddressIndex build();
+
+        void requireLabels(int count) {
+            if (count != rank)
+                throw new IllegalArgumentException("Expected an address with " + rank + " labels, but got " + count);
+        }
+
+    }
+
+    /** An index of addresses of at most two labels, where each address is represented by a long packing the label ids */
+    private static final class PackedIndex extends AddressIndex {
+
+        /** The labels of this, indexed by id */
+        private final String[] labels;
+
+        /** The id of each label */
+        private final Map<String, Integer> ids;
+
+        /** The packed key of each address */
+        private final long[] keys;
+
+        /** Open addressing hash table of address number + 1 by key, where 0 is empty. The length is a power of two. */
+        private final int[] table;
+
+        private PackedIndex(int rank, String[] labels, Map<String, Integer> ids, long[] keys, int[] table) {
+            super(rank);
+            this.labels = labels;
+            this.ids = ids;
+            this.keys = keys;
+            this.table = table;
+        }
+
+        @Override
+        int size() { return keys.length; }
+
+        @Override
+        int indexOf(TensorAddress address) {
+            long key = 0;
+            for (int i = 0; i < rank; i++) {
+                Integer id = ids.get(address.label(i));
+                if (id == null) return -1;
+                key = key << 32 | id;
+            }
+            return find(key, keys, table);
+        }
+
+        @Override
+        int indexOf(TensorAddress address, int[] positions) {
+            long key = 0;
+            for (int position : positions) {
+                Integer id = ids.get(address.label(position));
+                if (id == null) return -1;
+                key = key << 32 | id;
+            }
+            return find(key, keys, table);
+        }
+
+        @Override
+        String label(int index, int dimension) {
+            return labels[(int)(keys[index] >>> (32 * (rank - 1 - dimension)))];
+        }
+
+        private static int slotOf(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int)(hash ^ (hash >>> 32)) & mask;
+        }
+
+        /** Returns the number of the address with the given key, or -1 if it is not present */
+        private static int find(long key, long[] keys, int[] table) {
+            int mask = table.length - 1;
+            for (int slot = slotOf(key, mask); table[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[table[slot] - 1] == key)
+                    return table[slot] - 1;
+            }
+            return -1;
+        }
+
+        private static final class Builder extends AddressIndex.Builder {
+
+            private String[] labels = new String[16];
+            private final Map<String, Integer> ids = new HashMap<>();
+            private long[] keys = new long[16];
+            private int[] table = new int[32];
+            private int size = 0;
+
+            private Builder(int rank) {
+                super(rank);
+            }
+
+            @Override
+            int size() { return size; }
+
+            @Override
+            int add(TensorAddress address) {
+                requireLabels(address.size());
+                long key = 0;
+                for (int i = 0; i < rank; i++)
+                    key = key << 32 | idOf(address.label(i));
+                return add(key);
+            }
+
+            @Override
+            int add(TensorAddress address, int[] positions) {
+                long key = 0;
+                for (int position : positions)
+                    key = key << 32 | idOf(address.label(position));
+                return add(key);
+            }
+
+            @Override
+            int add(String[] labels) {
+                requireLabels(labels.length);
+                long key = 0;
+                for (String label : labels)
+                    key = key << 32 | idOf(label);
+                return add(key);
+            }
+
+            private int idOf(String label) {
+                Integer id = ids.get(label);
+                if (id != null) return id;
+
+                if (ids.size() == labels.length)
+                    labels = Arrays.copyOf(labels, labels.length * 2);
+                labels[ids.size()] = label;
+                ids.put(label, ids.size());
+                return ids.size() - 1;
+            }
+
+            private int add(long key) {
+                int existing = find(key, keys, table);
+                if (existing >= 0) return existing;
+
+                if (size == keys.length)
+                    keys = Arrays.copyOf(keys, keys.length * 2);
+                keys[size++] = key;
+                if (size * 2 > table.length)
+                    rehash(table.length * 2);
+                else
+                    insert(size - 1, table);
+                return size - 1;
+            }
+
+            private void insert(int index, int[] table) {
+                int mask = table.length - 1;
+                int slot = slotOf(keys[index], mask);
+                while (table[slot] != 0)
+                    slot = (slot + 1) & mask;
+                table[slot] = index + 1;
+            }
+
+            private void rehash(int capacity) {
+                table = new int[capacity];
+                for (int i = 0; i < size; i++)
+                    insert(i, table);
+            }
+
+            @Override
+            AddressIndex build() {
+                return new PackedIndex(rank, Arrays.copyOf(labels, ids.size()), ids, Arrays.copyOf(keys, size), table);
+            }
+
+        }
+
+    }
+
+    /** An index of addresses of any number of labels, where each address is a TensorAddress */
+    private static final class AddressMapIndex extends AddressIndex {
+
+        private final TensorAddress[] addresses;
+        private final Map<TensorAddress, Integer> indexes;
+
+        private AddressMapIndex(int rank, TensorAddress[] addresses, Map<TensorAddress, Integer> indexes) {
+            super(rank);
+            this.addresses = addresses;
+            this.indexes = indexes;
+        }
+
+        @Override
+        int size() { return addresses.length; }
+
+        @Override
+        int indexOf(TensorAddress address) {
+            return indexes.getOrDefault(address, -1);
+        }
+
+        @Override
+        int indexOf(TensorAddress address, int[] positions) {
+            return indexes.getOrDefault(partialAddress(address, positions), -1);
+        }
+
+        @Override
+        String label(int index, int dimension) { return addresses[index].label(dimension); }
+
+        @Override
+        TensorAddress addressOf(int index) { return addresses[index]; }
+
+        private static TensorAddress partialAddress(TensorAddress address, int[] positions) {
+            String[] labels = new String[positions.length];
+            for (int i = 0; i < positions.length; i++)
+                labels[i] = address.label(positions[i]);
+            return TensorAddress.of(labels);
+        }
+
+        private static final class Builder extends AddressIndex.Builder {
+
+            /** The labels of this, such that a single instance of each distinct label is kept */
+            private final Map<String, String> labels = new HashMap<>();
+            private TensorAddress[] addresses = new TensorAddress[16];
+            private final Map<TensorAddress, Integer> indexes = new HashMap<>();
+
+            private Builder(int rank) {
+                super(rank);
+            }
+
+            @Override
+            int size() { return indexes.size(); }
+
+            @Override
+            int add(TensorAddress address) {
+                requireLabels(address.size());
+                return add(address, positions(rank));
+            }
+
+            @Override
+            int add(TensorAddress address, int[] positions) {
+                String[] labels = new String[positions.length];
+                for (int i = 0; i < positions.length; i++)
+                    labels[i] = address.label(positions[i]);
+                return add(labels);
+            }
+
+            @Override
+            int add(String[] labels) {
+                requireLabels(labels.length);
+                String[] interned = new String[labels.length];
+                for (int i = 0; i < labels.length; i++)
+                    interned[i] = this.labels.computeIfAbsent(labels[i], label -> label);
+                TensorAddress address = TensorAddress.of(interned);
+                Integer existing = indexes.putIfAbsent(address, indexes.size());
+                if (existing != null) return existing;
+
+                if (indexes.size() > addresses.length)
+                    addresses = Arrays.copyOf(addresses, addresses.length * 2);
+                addresses[indexes.size() - 1] = address;
+                return indexes.size() - 1;
+            }
+
+            @Override
+            AddressIndex build() {
+                return new AddressMapIndex(rank, Arrays.copyOf(addresses, indexes.size()), indexes);
+            }
+
+        }
+
+    }
+
+}
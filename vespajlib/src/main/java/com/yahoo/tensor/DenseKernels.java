@@ -0,0 +1,189 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.functions.ScalarFunctions;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Loops over the cell values of dense tensors for the operations which dominate dense tensor evaluation:
+ * Dot products, elementwise joins and reductions of all cells.
+ *
+ * These work directly on the value arrays of the tensors when both tensors hold the same cell type,
+ * such that bfloat16 and int8 tensors are computed without first widening them to double tensors.
+ * The loops are written as simple counted loops over those arrays such that the JIT compiler can unroll
+ * them and use SIMD instructions where the platform supports it. Other tensors are handled by
+ * generic loops over their cell values.
+ *
+ * Sums are accumulated in value order, so results are identical to those of the generic reduce and join
+ * implementations, and max ignores NaN values as reduce does.
+ *
+ * All ranges are given as direct value indexes, i.e. in the standard value order of the tensor.
+ *
+ * @author agent
+ */
+public final class DenseKernels {
+
+    private DenseKernels() {}
+
+    /** Returns the sum of the products of the length values of a starting at offsetA and b starting at offsetB */
+    public static double dotProduct(IndexedTensor a, int offsetA, IndexedTensor b, int offsetB, int length) {
+        if (a instanceof IndexedDoubleTensor da && b instanceof IndexedDoubleTensor db)
+            return dotProduct(da.values(), offsetA, db.values(), offsetB, length);
+        if (a instanceof IndexedFloatTensor fa && b instanceof IndexedFloatTensor fb)
+            return dotProduct(fa.values(), offsetA, fb.values(), offsetB, length);
+        if (a instanceof IndexedBFloat16Tensor ba && b instanceof IndexedBFloat16Tensor bb)
+            return dotProduct(ba.values(), offsetA, bb.values(), offsetB, length);
+        if (a instanceof IndexedInt8Tensor ia && b instanceof IndexedInt8Tensor ib)
+            return dotProduct(ia.values(), offsetA, ib.values(), offsetB, length);
+
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a.get(offsetA + i) * b.get(offsetB + i);
+        return sum;
+    }
+
+    /**
+     * Returns the result of applying the combinator to each of the first length values of a and b, in order.
+     * Combinators which are instances of the add, subtract and multiply scalar functions
+     * are computed by loops specialized to them.
+     */
+    public static double[] join(IndexedTensor a, IndexedTensor b, int length, DoubleBinaryOperator combinator) {
+        return join(a, b, length, combinator, null, false);
+    }
+
+    /**
+     * Returns the result of applying the combinator to each of the first length values of a and b, in order,
+     * in an array taken from the given arena if it is not null.
+     *
+     * @param parallel whether the values may be computed by multiple threads if the tensors are large
+     */
+    public static double[] join(IndexedTensor a, IndexedTensor b, int length, DoubleBinaryOperator combinator,
+                                TensorArena arena, boolean parallel) {
+        double[] result = arena == null ? new double[length] : arena.doubles(length);
+        ParallelLoop.run(parallel, length, 1, (start, end) -> join(a, b, start, end, combinator, result));
+        return result;
+    }
+
+    private static void join(IndexedTensor a, IndexedTensor b, int start, int end, DoubleBinaryOperator combinator,
+                             double[] result) {
+        if (a instanceof IndexedDoubleTensor da && b instanceof IndexedDoubleTensor db) {
+            double[] va = da.values();
+            double[] vb = db.values();
+            if (combinator instanceof ScalarFunctions.Add)
+                for (int i = start; i < end; i++) result[i] = va[i] + vb[i];
+            else if (combinator instanceof ScalarFunctions.Subtract)
+                for (int i = start; i < end; i++) result[i] = va[i] - vb[i];
+            else if (combinator instanceof ScalarFunctions.Multiply)
+                for (int i = start; i < end; i++) result[i] = va[i] * vb[i];
+            else
+                for (int i = start; i < end; i++) result[i] = combinator.applyAsDouble(va[i], vb[i]);
+        }
+        else if (a instanceof IndexedFloatTensor fa && b instanceof IndexedFloatTensor fb) {
+            float[] va = fa.values();
+            float[] vb = fb.values();
+            if (combinator instanceof ScalarFunctions.Add)
+                for (int i = start; i < end; i++) result[i] = (double)va[i] + (double)vb[i];
+            else if (combinator instanceof ScalarFunctions.Subtract)
+                for (int i = start; i < end; i++) result[i] = (double)va[i] - (double)vb[i];
+            else if (combinator instanceof ScalarFunctions.Multiply)
+                for (int i = start; i < end; i++) result[i] = (double)va[i] * (double)vb[i];
+            else
+                for (int i = start; i < end; i++) result[i] = combinator.applyAsDouble(va[i], vb[i]);
+        }
+        else {
+            for (int i = start; i < end; i++)
+                result[i] = combinator.applyAsDouble(a.get(i), b.get(i));
+        }
+    }
+
+    /** Returns the sum of the first length values of the given tensor */
+    public static double sum(IndexedTensor a, int length) {
+        if (a instanceof IndexedDoubleTensor da) {
+            double[] values = da.values();
+            double sum = 0;
+            for (int i = 0; i < length; i++)
+                sum += values[i];
+            return sum;
+        }
+        if (a instanceof IndexedFloatTensor fa) {
+            float[] values = fa.values();
+            double sum = 0;
+            for (int i = 0; i < length; i++)
+                sum += values[i];
+            return sum;
+        }
+        if (a instanceof IndexedInt8Tensor ia) {
+            byte[] values = ia.values();
+            long sum = 0;
+            for (int i = 0; i < length; i++)
+                sum += values[i];
+            return sum;
+        }
+
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a.get(i);
+        return sum;
+    }
+
+    /**
+     * Returns the max of the first length values of the given tensor, ignoring NaN values as reduce does,
+     * or negative infinity if there are no such values.
+     */
+    public static double max(IndexedTensor a, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        if (a instanceof IndexedDoubleTensor da) {
+            double[] values = da.values();
+            for (int i = 0; i < length; i++)
+                if (values[i] > max) max = values[i];
+        }
+        else if (a instanceof IndexedFloatTensor fa) {
+            float[] values = fa.values();
+            for (int i = 0; i < length; i++)
+                if (values[i] > max) max = values[i];
+        }
+        else if (a instanceof IndexedInt8Tensor ia) {
+            byte[] values = ia.values();
+            for (int i = 0; i < length; i++)
+                if (values[i] > max) max = values[i];
+        }
+        else {
+            for (int i = 0; i < length; i++) {
+                double value = a.get(i);
+                if (value > max) max = value;
+            }
+        }
+        return max;
+    }
+
+    private static double dotProduct(double[] a, int offsetA, double[] b, int offsetB, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[offsetA + i] * b[offsetB + i];
+        return sum;
+    }
+
+    private static double dotProduct(float[] a, int offsetA, float[] b, int offsetB, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += (double)a[offsetA + i] * b[offsetB + i];
+        return sum;
+    }
+
+    private static double dotProduct(short[] a, int offsetA, short[] b, int offsetB, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += IndexedBFloat16Tensor.toFloat(a[offsetA + i]) * IndexedBFloat16Tensor.toFloat(b[offsetB + i]);
+        return sum;
+    }
+
+    private static double dotProduct(byte[] a, int offsetA, byte[] b, int offsetB, int length) {
+        // Products of int8 values are exact in integer arithmetic
+        long sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a[offsetA + i] * b[offsetB + i];
+        return sum;
+    }
+
+}
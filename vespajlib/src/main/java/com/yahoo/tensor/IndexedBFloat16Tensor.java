@@ -0,0 +1,132 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+/**
+ * An indexed tensor implementation holding values as bfloat16, stored as the upper 16 bits of a float.
+ * Values are converted to bfloat16 by truncation, as in the binary tensor format.
+ *
+ * @author agent
+ */
+class IndexedBFloat16Tensor extends IndexedTensor {
+
+    private final short[] values;
+
+    IndexedBFloat16Tensor(TensorType type, DimensionSizes dimensionSizes, short[] values) {
+        super(type, dimensionSizes);
+        this.values = values;
+    }
+
+    @Override
+    public long size() {
+        return values.length;
+    }
+
+    @Override
+    public double get(long valueIndex) { return getFloat(valueIndex); }
+
+    @Override
+    public float getFloat(long valueIndex) { return toFloat(values[(int)valueIndex]); }
+
+    /** Returns the values of this as bfloat16 bits. The returned array must not be modified. */
+    short[] values() { return values; }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBFloat16Tensor(type, dimensionSizes(), values);
+    }
+
+    /** Returns the same hash as a float tensor holding the same values */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (short value : values)
+            result = 31 * result + Float.floatToIntBits(toFloat(value));
+        return result;
+    }
+
+    static float toFloat(short bits) {
+        return Float.intBitsToFloat(bits << 16);
+    }
+
+    static short fromFloat(float value) {
+        return (short)(Float.floatToRawIntBits(value) >>> 16);
+    }
+
+    /** A bound builder can create the bfloat16 array directly */
+    public static class BoundBFloat16Builder extends BoundBuilder {
+
+        private short[] values;
+
+        BoundBFloat16Builder(TensorType type, DimensionSizes sizes) {
+            this(type, sizes, new short[(int)sizes.totalSize()]);
+        }
+
+        BoundBFloat16Builder(TensorType type, DimensionSizes sizes, short[] values) {
+            super(type, sizes);
+            this.values = values;
+        }
+
+        @Override
+        public IndexedTensor.BoundBuilder cell(double value, long ... indexes) {
+            return cell((float)value, indexes);
+        }
+
+        @Override
+        public IndexedTensor.BoundBuilder cell(float value, long ... indexes) {
+            values[(int)toValueIndex(indexes, sizes())] = fromFloat(value);
+            return this;
+        }
+
+        @Override
+        public CellBuilder cell() {
+            return new CellBuilder(type, this);
+        }
+
+        @Override
+        public Builder cell(TensorAddress address, double value) {
+            return cell(address, (float)value);
+        }
+
+        @Override
+        public Builder cell(TensorAddress address, float value) {
+            values[(int)toValueIndex(address, sizes(), type)] = fromFloat(value);
+            return this;
+        }
+
+        @Override
+        public IndexedTensor build() {
+            IndexedTensor tensor = new IndexedBFloat16Tensor(type, sizes(), values);
+            // prevent further modification
+            values = null;
+            return tensor;
+        }
+
+        @Override
+        public Builder cell(Cell cell, double value) {
+            return cell(cell, (float)value);
+        }
+
+        @Override
+        public Builder cell(Cell cell, float value) {
+            long directIndex = cell.getDirectIndex();
+            if (directIndex >= 0) // optimization
+                values[(int)directIndex] = fromFloat(value);
+            else
+                super.cell(cell, value);
+            return this;
+        }
+
+        @Override
+        public void cellByDirectIndex(long index, double value) {
+            cellByDirectIndex(index, (float)value);
+        }
+
+        @Override
+        public void cellByDirectIndex(long index, float value) {
+            values[(int)index] = fromFloat(value);
+        }
+
+    }
+
+}
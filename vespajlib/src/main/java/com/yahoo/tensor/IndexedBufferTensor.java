@@ -0,0 +1,83 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An indexed tensor implementation reading its values directly from a byte buffer holding the values
+ * in the standard value order, encoded as the value type of the tensor type, in the byte order of the buffer.
+ * The buffer may be off heap, e.g. a file mapped into memory, such that large tensors can be used
+ * without decoding them into arrays on the heap.
+ *
+ * @author agent
+ */
+class IndexedBufferTensor extends IndexedTensor {
+
+    private final ByteBuffer values;
+    private final long size;
+
+    IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer values) {
+        super(type, dimensionSizes);
+        this.size = dimensionSizes.totalSize();
+        long requiredBytes = size * bytesPerValue(type.valueType());
+        if (values.remaining() < requiredBytes)
+            throw new IllegalArgumentException("A tensor of type " + type + " with sizes " + dimensionSizes +
+                                               " requires " + requiredBytes + " bytes, but the buffer has " +
+                                               values.remaining());
+        this.values = values.asReadOnlyBuffer().slice(values.position(), (int)requiredBytes).order(values.order());
+    }
+
+    @Override
+    public long size() { return size; }
+
+    @Override
+    public double get(long valueIndex) {
+        if (type().valueType() == TensorType.Value.DOUBLE)
+            return values.getDouble((int)valueIndex * Double.BYTES);
+        return getFloat(valueIndex);
+    }
+
+    @Override
+    public float getFloat(long valueIndex) {
+        int index = (int)valueIndex;
+        return switch (type().valueType()) {
+            case DOUBLE -> (float)values.getDouble(index * Double.BYTES);
+            case FLOAT -> values.getFloat(index * Float.BYTES);
+            case BFLOAT16 -> Float.intBitsToFloat(values.getShort(index * Short.BYTES) << 16);
+            case INT8 -> values.get(index);
+        };
+    }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBufferTensor(type, dimensionSizes(), values);
+    }
+
+    /** Returns the same hash as the array backed tensor holding the same values */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        if (type().valueType() == TensorType.Value.DOUBLE) {
+            for (long i = 0; i < size; i++) {
+                long bits = Double.doubleToLongBits(get(i));
+                result = 31 * result + (int)(bits ^ (bits >>> 32));
+            }
+        }
+        else {
+            for (long i = 0; i < size; i++)
+                result = 31 * result + Float.floatToIntBits(getFloat(i));
+        }
+        return result;
+    }
+
+    static int bytesPerValue(TensorType.Value valueType) {
+        return switch (valueType) {
+            case DOUBLE -> Double.BYTES;
+            case FLOAT -> Float.BYTES;
+            case BFLOAT16 -> Short.BYTES;
+            case INT8 -> Byte.BYTES;
+        };
+    }
+
+}
@@ -1,6 +1,7 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
 /**
@@ -28,6 +29,12 @@ class IndexedFloatTensor extends IndexedTensor {
     @Override
     public float getFloat(long valueIndex) { return values[(int)valueIndex]; }
 
+    @Override
+    public void copyTo(FloatBuffer buffer) { buffer.put(values); }
+
+    /** Returns the values of this. The returned array must not be modified. */
+    float[] values() { return values; }
+
     @Override
     public IndexedTensor withType(TensorType type) {
         throwOnIncompatibleType(type);
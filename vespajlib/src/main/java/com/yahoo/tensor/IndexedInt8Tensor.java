@@ -0,0 +1,132 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+/**
+ * An indexed tensor implementation holding values as 8 bit integers.
+ * Values are converted to int8 by narrowing primitive conversion, as in the binary tensor format.
+ *
+ * @author agent
+ */
+class IndexedInt8Tensor extends IndexedTensor {
+
+    private final byte[] values;
+
+    IndexedInt8Tensor(TensorType type, DimensionSizes dimensionSizes, byte[] values) {
+        super(type, dimensionSizes);
+        this.values = values;
+    }
+
+    @Override
+    public long size() {
+        return values.length;
+    }
+
+    @Override
+    public double get(long valueIndex) { return getFloat(valueIndex); }
+
+    @Override
+    public float getFloat(long valueIndex) { return toFloat(values[(int)valueIndex]); }
+
+    /** Returns the values of this as bytes. The returned array must not be modified. */
+    byte[] values() { return values; }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedInt8Tensor(type, dimensionSizes(), values);
+    }
+
+    /** Returns the same hash as a float tensor holding the same values */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (byte value : values)
+            result = 31 * result + Float.floatToIntBits(toFloat(value));
+        return result;
+    }
+
+    static float toFloat(byte value) {
+        return value;
+    }
+
+    static byte fromFloat(float value) {
+        return (byte)value;
+    }
+
+    /** A bound builder can create the byte array directly */
+    public static class BoundInt8Builder extends BoundBuilder {
+
+        private byte[] values;
+
+        BoundInt8Builder(TensorType type, DimensionSizes sizes) {
+            this(type, sizes, new byte[(int)sizes.totalSize()]);
+        }
+
+        BoundInt8Builder(TensorType type, DimensionSizes sizes, byte[] values) {
+            super(type, sizes);
+            this.values = values;
+        }
+
+        @Override
+        public IndexedTensor.BoundBuilder cell(double value, long ... indexes) {
+            return cell((float)value, indexes);
+        }
+
+        @Override
+        public IndexedTensor.BoundBuilder cell(float value, long ... indexes) {
+            values[(int)toValueIndex(indexes, sizes())] = fromFloat(value);
+            return this;
+        }
+
+        @Override
+        public CellBuilder cell() {
+            return new CellBuilder(type, this);
+        }
+
+        @Override
+        public Builder cell(TensorAddress address, double value) {
+            return cell(address, (float)value);
+        }
+
+        @Override
+        public Builder cell(TensorAddress address, float value) {
+            values[(int)toValueIndex(address, sizes(), type)] = fromFloat(value);
+            return this;
+        }
+
+        @Override
+        public IndexedTensor build() {
+            IndexedTensor tensor = new IndexedInt8Tensor(type, sizes(), values);
+            // prevent further modification
+            values = null;
+            return tensor;
+        }
+
+        @Override
+        public Builder cell(Cell cell, double value) {
+            return cell(cell, (float)value);
+        }
+
+        @Override
+        public Builder cell(Cell cell, float value) {
+            long directIndex = cell.getDirectIndex();
+            if (directIndex >= 0) // optimization
+                values[(int)directIndex] = fromFloat(value);
+            else
+                super.cell(cell, value);
+            return this;
+        }
+
+        @Override
+        public void cellByDirectIndex(long index, double value) {
+            cellByDirectIndex(index, (float)value);
+        }
+
+        @Override
+        public void cellByDirectIndex(long index, float value) {
+            values[(int)index] = fromFloat(value);
+        }
+
+    }
+
+}
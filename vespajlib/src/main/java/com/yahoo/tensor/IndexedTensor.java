@@ -3,6 +3,9 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -142,6 +145,18 @@ public abstract class IndexedTensor implements Tensor {
      */
     public abstract float getFloat(long valueIndex);
 
+    /** Copies the values of this in the <i>standard value order</i> into the given buffer, starting at its position */
+    public void copyTo(FloatBuffer buffer) {
+        for (long i = 0; i < size(); i++)
+            buffer.put(getFloat(i));
+    }
+
+    /** Copies the values of this in the <i>standard value order</i> into the given buffer, starting at its position */
+    public void copyTo(DoubleBuffer buffer) {
+        for (long i = 0; i < size(); i++)
+            buffer.put(get(i));
+    }
+
     static long toValueIndex(long[] indexes, DimensionSizes sizes) {
         if (indexes.length == 1) return indexes[0]; // for speed
         if (indexes.length == 0) return 0; // for speed
@@ -188,6 +203,23 @@ public abstract class IndexedTensor implements Tensor {
 
     public DimensionSizes dimensionSizes() { return dimensionSizes; }
 
+    /**
+     * Returns a tensor reading its values directly from the given buffer, without copying them.
+     * This allows large tensors to be used without holding their values on the heap, by passing
+     * a direct buffer or a file mapped into memory.
+     *
+     * @param type the type of the tensor, where the value type determines how values are encoded in the buffer
+     * @param sizes the sizes of the dimensions of the tensor
+     * @param values the values of the tensor in the <i>standard value order</i>, starting at the position
+     *               of the buffer, in the byte order of the buffer. The content of the buffer
+     *               must not be changed while the returned tensor is in use
+     * @throws IllegalArgumentException if the buffer does not contain enough bytes for the given sizes
+     */
+    public static IndexedTensor wrap(TensorType type, DimensionSizes sizes, ByteBuffer values) {
+        Builder.validate(type, sizes);
+        return new IndexedBufferTensor(type, sizes, values);
+    }
+
     public long[] shape() {
         long[] result = new long[dimensionSizes.dimensions()];
         for (int i = 0; i < result.length; ++i) {
@@ -330,13 +362,36 @@ public abstract class IndexedTensor implements Tensor {
             switch (type.valueType()) {
                 case DOUBLE: return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes);
                 case FLOAT: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
-                case BFLOAT16: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
-                case INT8: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes);
+                case BFLOAT16: return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes);
+                case INT8: return new IndexedInt8Tensor.BoundInt8Builder(type, sizes);
                 default:
                     throw new IllegalStateException("Unexpected value type " + type.valueType());
             }
         }
 
+        /**
+         * Creates a builder of a tensor of a type where all dimension sizes are given,
+         * whose values are taken from the given arena if it is not null.
+         */
+        public static Builder of(TensorType type, TensorArena arena) {
+            return of(type, BoundBuilder.dimensionSizesOf(type), arena);
+        }
+
+        /**
+         * Creates a builder with the given dimension sizes, whose values are taken from the given arena
+         * if it is not null and it holds values of the value type of the given type.
+         * The tensor built must not be used after the arena is released, unless it is the result passed to release.
+         */
+        public static Builder of(TensorType type, DimensionSizes sizes, TensorArena arena) {
+            if (arena == null) return of(type, sizes);
+            validate(type, sizes);
+            switch (type.valueType()) {
+                case DOUBLE: return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes, arena.doubles((int)sizes.totalSize()));
+                case FLOAT: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes, arena.floats((int)sizes.totalSize()));
+                default: return of(type, sizes);
+            }
+        }
+
         /**
          * Creates a builder initialized with the given values
          *
@@ -351,8 +406,8 @@ public abstract class IndexedTensor implements Tensor {
             switch (type.valueType()) {
                 case DOUBLE: return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes).fill(values);
                 case FLOAT: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
-                case BFLOAT16: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
-                case INT8: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes, values);
+                case BFLOAT16: return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+                case INT8: return new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
                 default:
                     throw new IllegalStateException("Unexpected value type " + type.valueType());
             }
@@ -372,13 +427,51 @@ public abstract class IndexedTensor implements Tensor {
             switch (type.valueType()) {
                 case DOUBLE: return new IndexedDoubleTensor.BoundDoubleBuilder(type, sizes, values);
                 case FLOAT: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
-                case BFLOAT16: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
-                case INT8: return new IndexedFloatTensor.BoundFloatBuilder(type, sizes).fill(values);
+                case BFLOAT16: return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes).fill(values);
+                case INT8: return new IndexedInt8Tensor.BoundInt8Builder(type, sizes).fill(values);
                 default:
                     throw new IllegalStateException("Unexpected value type " + type.valueType());
             }
         }
 
+        /**
+         * Creates a builder initialized with the given values
+         *
+         * @param type the type of the tensor to build
+         * @param values the initial values of the tensor in the <i>standard value order</i>.
+         *               This <b>transfers ownership</b> of the value array - it
+         *               must not be further mutated by the caller
+         */
+        public static Builder of(TensorType type, DimensionSizes sizes, byte[] values) {
+            validate(type, sizes);
+            validateSizes(sizes, values.length);
+            if (type.valueType() == TensorType.Value.INT8)
+                return new IndexedInt8Tensor.BoundInt8Builder(type, sizes, values);
+            float[] floats = new float[values.length];
+            for (int i = 0; i < values.length; i++)
+                floats[i] = IndexedInt8Tensor.toFloat(values[i]);
+            return of(type, sizes, floats);
+        }
+
+        /**
+         * Creates a builder initialized with the given bfloat16 values
+         *
+         * @param type the type of the tensor to build
+         * @param values the initial values of the tensor in the <i>standard value order</i>, as the 16 bits of
+         *               each bfloat16 value. This <b>transfers ownership</b> of the value array - it
+         *               must not be further mutated by the caller
+         */
+        public static Builder of(TensorType type, DimensionSizes sizes, short[] values) {
+            validate(type, sizes);
+            validateSizes(sizes, values.length);
+            if (type.valueType() == TensorType.Value.BFLOAT16)
+                return new IndexedBFloat16Tensor.BoundBFloat16Builder(type, sizes, values);
+            float[] floats = new float[values.length];
+            for (int i = 0; i < values.length; i++)
+                floats[i] = IndexedBFloat16Tensor.toFloat(values[i]);
+            return of(type, sizes, floats);
+        }
+
         private static void validateSizes(DimensionSizes sizes, int length) {
             if (sizes.totalSize() != length) {
                 throw new IllegalArgumentException("Invalid size(" + length + ") of supplied value vector." +
@@ -485,7 +578,7 @@ public abstract class IndexedTensor implements Tensor {
             DimensionSizes dimensionSizes = findDimensionSizes(firstDimension);
             double[] values = new double[(int)dimensionSizes.totalSize()];
             fillValues(0, 0, firstDimension, dimensionSizes, values);
-            return new IndexedDoubleTensor(type, dimensionSizes, values);
+            return Builder.of(type, dimensionSizes, values).build(); // cast to the cell type of the tensor
         }
 
         private DimensionSizes findDimensionSizes(List<Object> firstDimension) {
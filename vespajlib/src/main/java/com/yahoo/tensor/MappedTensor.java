@@ -3,13 +3,14 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.function.DoubleBinaryOperator;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor backed by an index of the cell addresses and an array of the cell values.
  *
  * @author bratseth
  */
@@ -17,34 +18,76 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    /** The addresses of the cells, numbered in the order of the values */
+    private final AddressIndex index;
+
+    private final double[] values;
 
     /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    private MappedTensor(TensorType type, AddressIndex index, double[] values) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.index = index;
+        this.values = values;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return values.length; }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, 0.0); }
+    public double get(TensorAddress address) {
+        int cell = indexOf(address);
+        return cell < 0 ? 0.0 : values[cell];
+    }
 
     @Override
-    public boolean has(TensorAddress address) { return cells.containsKey(address); }
+    public boolean has(TensorAddress address) { return indexOf(address) >= 0; }
+
+    private int indexOf(TensorAddress address) {
+        if (address.size() != index.rank) return -1;
+        return index.indexOf(address);
+    }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() {
+        return new Iterator<>() {
+            final LazyCell reusedCell = new LazyCell(index);
+            int next = 0;
+            @Override
+            public boolean hasNext() { return next < values.length; }
+            @Override
+            public Cell next() {
+                if ( ! hasNext()) throw new NoSuchElementException("No cell at " + next);
+                reusedCell.index = next;
+                reusedCell.value = values[next++];
+                return reusedCell;
+            }
+        };
+    }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() {
+        return new Iterator<>() {
+            int next = 0;
+            @Override
+            public boolean hasNext() { return next < values.length; }
+            @Override
+            public Double next() {
+                if ( ! hasNext()) throw new NoSuchElementException("No cell at " + next);
+                return values[next++];
+            }
+        };
+    }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() {
+        ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        for (int i = 0; i < values.length; i++)
+            cells.put(index.addressOf(i), values[i]);
+        return cells.build();
+    }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -52,7 +95,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, index, values);
     }
 
     @Override
@@ -69,7 +112,12 @@ public class MappedTensor implements Tensor {
     }
 
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0; // as the hash code of cells()
+        for (int i = 0; i < values.length; i++)
+            hashCode += index.hashOf(i) ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() { return toString(true, true); }
@@ -95,12 +143,14 @@ public class MappedTensor implements Tensor {
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private final AddressIndex.Builder index;
+        private double[] values = new double[16];
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
         private Builder(TensorType type) {
             this.type = type;
+            this.index = AddressIndex.builder(type.rank());
         }
 
         public CellBuilder cell() {
@@ -117,8 +167,8 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
-            return this;
+            int size = index.size();
+            return set(index.add(address), size, value);
         }
 
         @Override
@@ -128,33 +178,58 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
+            return cell(TensorAddress.of(labels), value);
+        }
+
+        /**
+         * Sets the value of the cell having the given labels in the order of the dimensions of the type.
+         * This does not create an address instance for the cell, and does not retain the given array.
+         */
+        public Builder cell(String[] labels, double value) {
+            int size = index.size();
+            return set(index.add(labels), size, value);
+        }
+
+        private Builder set(int cell, int previousSize, double value) {
+            if (cell < previousSize)
+                throw new IllegalArgumentException("Multiple values for the same cell in a tensor of type " + type +
+                                                   ": " + values[cell] + " and " + value);
+            if (cell == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[cell] = value;
             return this;
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            return new MappedTensor(type, index.build(), Arrays.copyOf(values, index.size()));
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    /** A Cell which does not compute its TensorAddress unless it really has to */
+    private static final class LazyCell extends Tensor.Cell {
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
+        private final AddressIndex addresses;
+        private int index;
+        private double value;
 
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
+        private LazyCell(AddressIndex addresses) {
+            super(null, Double.NaN);
+            this.addresses = addresses;
         }
 
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public TensorAddress getKey() { return addresses.addressOf(index); }
 
         @Override
-        public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
-        }
+        public Double getValue() { return value; }
+
+        @Override
+        public double getDoubleValue() { return value; }
+
+        @Override
+        public Cell detach() { return new Cell(getKey(), value); }
 
     }
 
@@ -5,10 +5,12 @@ package com.yahoo.tensor;
 import com.google.common.collect.ImmutableMap;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -27,15 +29,18 @@ public class MixedTensor implements Tensor {
     /** The dimension specification for this tensor */
     private final TensorType type;
 
-    /** The list of cells in the tensor */
-    private final List<Cell> cells;
+    /**
+     * The values of the tensor: The dense subspaces in the order of the index, each in the standard value order.
+     * Cells are created from these on demand, such that creating tensors does not require an address per cell.
+     */
+    private final double[] values;
 
-    /** An index structure over the cell list */
+    /** An index structure over the values */
     private final Index index;
 
-    private MixedTensor(TensorType type, List<Cell> cells, Index index) {
+    private MixedTensor(TensorType type, double[] values, Index index) {
         this.type = type;
-        this.cells = List.copyOf(cells);
+        this.values = values;
         this.index = index;
     }
 
@@ -45,29 +50,21 @@ public class MixedTensor implements Tensor {
 
     /** Returns the size of the tensor measured in number of cells */
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return values.length; }
 
     /** Returns the value at the given address */
     @Override
     public double get(TensorAddress address) {
         long cellIndex = index.indexOf(address);
-        if (cellIndex < 0 || cellIndex >= cells.size())
-            return 0.0;
-        Cell cell = cells.get((int)cellIndex);
-        if ( ! address.equals(cell.getKey()))
+        if (cellIndex < 0 || cellIndex >= values.length)
             return 0.0;
-        return cell.getValue();
+        return values[(int)cellIndex];
     }
 
     @Override
     public boolean has(TensorAddress address) {
         long cellIndex = index.indexOf(address);
-        if (cellIndex < 0 || cellIndex >= cells.size())
-            return false;
-        Cell cell = cells.get((int)cellIndex);
-        if ( ! address.equals(cell.getKey()))
-            return false;
-        return true;
+        return cellIndex >= 0 && cellIndex < values.length;
     }
 
     /**
@@ -75,11 +72,26 @@ public class MixedTensor implements Tensor {
      * Cells are returned in order of increasing indexes in the
      * indexed dimensions, increasing indexes of later dimensions
      * in the dimension type before earlier. No guarantee is
-     * given for the order of sparse dimensions.
+     * given for the order of sparse dimensions, but the cells of each
+     * dense subspace are returned consecutively.
      */
     @Override
     public Iterator<Cell> cellIterator() {
-        return cells.iterator();
+        return new Iterator<>() {
+            final LazyCell reusedCell = new LazyCell(index);
+            int next = 0;
+            @Override
+            public boolean hasNext() {
+                return next < values.length;
+            }
+            @Override
+            public Cell next() {
+                if ( ! hasNext()) throw new NoSuchElementException("No cell at " + next);
+                reusedCell.cellIndex = next;
+                reusedCell.value = values[next++];
+                return reusedCell;
+            }
+        };
     }
 
     /**
@@ -89,14 +101,14 @@ public class MixedTensor implements Tensor {
     @Override
     public Iterator<Double> valueIterator() {
         return new Iterator<>() {
-            final Iterator<Cell> cellIterator = cellIterator();
+            int next = 0;
             @Override
             public boolean hasNext() {
-                return cellIterator.hasNext();
+                return next < values.length;
             }
             @Override
             public Double next() {
-                return cellIterator.next().getValue();
+                return values[next++];
             }
         };
     }
@@ -104,7 +116,8 @@ public class MixedTensor implements Tensor {
     @Override
     public Map<TensorAddress, Double> cells() {
         ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
-        for (Cell cell : cells) {
+        for (Iterator<Cell> i = cellIterator(); i.hasNext(); ) {
+            Cell cell = i.next();
             builder.put(cell.getKey(), cell.getValue());
         }
         return builder.build();
@@ -116,7 +129,7 @@ public class MixedTensor implements Tensor {
             throw new IllegalArgumentException("MixedTensor.withType: types are not compatible. Current type: '" +
                                                this.type + "', requested type: '" + type + "'");
         }
-        return new MixedTensor(other, cells, index);
+        return new MixedTensor(other, values, index);
     }
 
     @Override
@@ -124,13 +137,12 @@ public class MixedTensor implements Tensor {
         Tensor.Builder builder = Tensor.Builder.of(type());
 
         // iterate through all sparse addresses referencing a dense subspace
-        for (Map.Entry<TensorAddress, Long> entry : index.sparseMap.entrySet()) {
-            TensorAddress sparsePartialAddress = entry.getKey();
+        for (int subspace = 0; subspace < index.sparseIndex.size(); subspace++) {
+            TensorAddress sparsePartialAddress = index.sparseIndex.addressOf(subspace);
             if ( ! addresses.contains(sparsePartialAddress)) {  // assumption: addresses only contain the sparse part
-                long offset = entry.getValue();
+                long offset = subspace * index.denseSubspaceSize();
                 for (int i = 0; i < index.denseSubspaceSize; ++i) {
-                    Cell cell = cells.get((int)offset + i);
-                    builder.cell(cell.getKey(), cell.getValue());
+                    builder.cell(index.addressOf((int)offset + i), values[(int)offset + i]);
                 }
             }
         }
@@ -138,7 +150,12 @@ public class MixedTensor implements Tensor {
     }
 
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 1;
+        for (Iterator<Cell> i = cellIterator(); i.hasNext(); )
+            hashCode = 31 * hashCode + i.next().hashCode();
+        return hashCode;
+    }
 
     @Override
     public String toString() {
@@ -230,8 +247,8 @@ public class MixedTensor implements Tensor {
      */
     public static class BoundBuilder extends Builder {
 
-        /** For each sparse partial address, hold a dense subspace */
-        private final Map<TensorAddress, double[]> denseSubspaceMap = new HashMap<>();
+        /** The dense subspaces, in the order of the sparse partial addresses in the index builder */
+        private final List<double[]> denseSubspaces = new ArrayList<>();
         private final Index.Builder indexBuilder;
         private final Index index;
         private final TensorType denseSubtype;
@@ -248,16 +265,33 @@ public class MixedTensor implements Tensor {
             return index.denseSubspaceSize();
         }
 
-        private double[] denseSubspace(TensorAddress sparseAddress) {
-            if (!denseSubspaceMap.containsKey(sparseAddress)) {
-                denseSubspaceMap.put(sparseAddress, new double[(int)denseSubspaceSize()]);
-            }
-            return denseSubspaceMap.get(sparseAddress);
+        /** Returns the dense subspace with the given number, creating it if it is new */
+        private double[] denseSubspace(int subspace) {
+            if (subspace == denseSubspaces.size())
+                denseSubspaces.add(new double[(int)denseSubspaceSize()]);
+            return denseSubspaces.get(subspace);
         }
 
+        /** Returns a builder which replaces the dense subspace of the given sparse partial address */
         public IndexedTensor.DirectIndexBuilder denseSubspaceBuilder(TensorAddress sparseAddress) {
+            return denseSubspaceBuilder(indexBuilder.sparseIndex().add(sparseAddress));
+        }
+
+        /**
+         * Returns a builder which replaces the dense subspace of the given labels of the mapped dimensions,
+         * in the order of the dimensions of the type. This does not create an address instance for the subspace,
+         * and does not retain the given array.
+         */
+        public IndexedTensor.DirectIndexBuilder denseSubspaceBuilder(String[] sparseLabels) {
+            return denseSubspaceBuilder(indexBuilder.sparseIndex().add(sparseLabels));
+        }
+
+        private IndexedTensor.DirectIndexBuilder denseSubspaceBuilder(int subspace) {
             double[] values = new double[(int)denseSubspaceSize()];
-            denseSubspaceMap.put(sparseAddress, values);
+            if (subspace == denseSubspaces.size())
+                denseSubspaces.add(values);
+            else
+                denseSubspaces.set(subspace, values);
             return new DenseSubspaceBuilder(denseSubtype, values);
         }
 
@@ -268,9 +302,10 @@ public class MixedTensor implements Tensor {
 
         @Override
         public Tensor.Builder cell(TensorAddress address, double value) {
-            TensorAddress sparsePart = index.sparsePartialAddress(address);
-            long denseOffset = index.denseOffset(address);
-            double[] denseSubspace = denseSubspace(sparsePart);
+            index.requireRank(address);
+            int subspace = indexBuilder.sparseIndex().add(address, index.mappedPositions);
+            long denseOffset = index.denseOffset(address, false);
+            double[] denseSubspace = denseSubspace(subspace);
             denseSubspace[(int)denseOffset] = value;
             return this;
         }
@@ -280,29 +315,21 @@ public class MixedTensor implements Tensor {
             if (values.length < denseSubspaceSize)
                 throw new IllegalArgumentException("Block should have " + denseSubspaceSize +
                                                    " values, but has only " + values.length);
-            double[] denseSubspace = denseSubspace(sparsePart);
+            double[] denseSubspace = denseSubspace(indexBuilder.sparseIndex().add(sparsePart));
             System.arraycopy(values, 0, denseSubspace, 0, denseSubspaceSize);
             return this;
         }
 
         @Override
         public MixedTensor build() {
-            long count = 0;
-            List<Cell> builder = new ArrayList<>();
-
-            for (Map.Entry<TensorAddress, double[]> entry : denseSubspaceMap.entrySet()) {
-                TensorAddress sparsePart = entry.getKey();
-                indexBuilder.put(sparsePart, count);
-
-                double[] denseSubspace = entry.getValue();
-                for (long offset = 0; offset < denseSubspace.length; ++offset) {
-                    TensorAddress cellAddress = index.addressOf(sparsePart, offset);
-                    double value = denseSubspace[(int)offset];
-                    builder.add(new Cell(cellAddress, value));
-                    count++;
-                }
+            int denseSubspaceSize = (int)denseSubspaceSize();
+            double[] values = new double[denseSubspaces.size() * denseSubspaceSize];
+            int count = 0;
+            for (double[] denseSubspace : denseSubspaces) {
+                System.arraycopy(denseSubspace, 0, values, count, denseSubspaceSize);
+                count += denseSubspaceSize;
             }
-            return new MixedTensor(type, builder, indexBuilder.build());
+            return new MixedTensor(type, values, indexBuilder.build());
         }
 
     }
@@ -382,48 +409,62 @@ public class MixedTensor implements Tensor {
     private static class Index {
 
         private final TensorType type;
-        private final TensorType sparseType;
         private final TensorType denseType;
         private final List<TensorType.Dimension> mappedDimensions;
         private final List<TensorType.Dimension> indexedDimensions;
 
-        private ImmutableMap<TensorAddress, Long> sparseMap;
+        /** The positions of the mapped dimensions in the type */
+        private final int[] mappedPositions;
+
+        /** The sparse partial addresses of the dense subspaces, numbered in the order of the subspaces */
+        private AddressIndex sparseIndex;
         private long denseSubspaceSize = -1;
 
         private Index(TensorType type) {
             this.type = type;
             this.mappedDimensions = type.dimensions().stream().filter(d -> !d.isIndexed()).toList();
             this.indexedDimensions = type.dimensions().stream().filter(TensorType.Dimension::isIndexed).toList();
-            this.sparseType = createPartialType(type.valueType(), mappedDimensions);
             this.denseType = createPartialType(type.valueType(), indexedDimensions);
+            this.mappedPositions = new int[mappedDimensions.size()];
+            for (int i = 0, mapped = 0; i < type.dimensions().size(); i++) {
+                if ( ! type.dimensions().get(i).isIndexed())
+                    mappedPositions[mapped++] = i;
+            }
         }
 
         /** Returns the index of the given address, or -1 if it is not present */
         public long indexOf(TensorAddress address) {
-            TensorAddress sparsePart = sparsePartialAddress(address);
-            if ( ! sparseMap.containsKey(sparsePart))
+            requireRank(address);
+            int subspace = sparseIndex.indexOf(address, mappedPositions);
+            if (subspace < 0)
+                return -1;
+            long offset = denseOffset(address, true);
+            if (offset < 0)
                 return -1;
-            long base = sparseMap.get(sparsePart);
-            long offset = denseOffset(address);
-            return base + offset;
+            return subspace * denseSubspaceSize() + offset;
+        }
+
+        private void requireRank(TensorAddress address) {
+            if (type.dimensions().size() != address.size())
+                throw new IllegalArgumentException("Tensor type of " + this + " is not the same size as " + address);
         }
 
         public static class Builder {
 
             private final Index index;
-            private final ImmutableMap.Builder<TensorAddress, Long> builder;
+            private final AddressIndex.Builder sparseIndex;
 
             public Builder(TensorType type) {
                 index = new Index(type);
-                builder = new ImmutableMap.Builder<>();
+                sparseIndex = AddressIndex.builder(index.mappedDimensions.size());
             }
 
-            public void put(TensorAddress address, long index) {
-                builder.put(address, index);
+            AddressIndex.Builder sparseIndex() {
+                return sparseIndex;
             }
 
             public Index build() {
-                index.sparseMap = builder.build();
+                index.sparseIndex = sparseIndex.build();
                 return index;
             }
 
@@ -446,66 +487,45 @@ public class MixedTensor implements Tensor {
             return denseSubspaceSize;
         }
 
-        private TensorAddress sparsePartialAddress(TensorAddress address) {
-            if (type.dimensions().size() != address.size())
-                throw new IllegalArgumentException("Tensor type of " + this + " is not the same size as " + address);
-            TensorAddress.Builder builder = new TensorAddress.Builder(sparseType);
-            for (int i = 0; i < type.dimensions().size(); ++i) {
-                TensorType.Dimension dimension = type.dimensions().get(i);
-                if ( ! dimension.isIndexed())
-                    builder.add(dimension.name(), address.label(i));
-            }
-            return builder.build();
-        }
-
-        private long denseOffset(TensorAddress address) {
+        /**
+         * Returns the offset of the given address in its dense subspace.
+         *
+         * @param checkBounds whether to return -1 if the address is outside the subspace
+         */
+        private long denseOffset(TensorAddress address, boolean checkBounds) {
             long innerSize = 1;
             long offset = 0;
             for (int i = type.dimensions().size(); --i >= 0; ) {
                 TensorType.Dimension dimension = type.dimensions().get(i);
                 if (dimension.isIndexed()) {
                     long label = address.numericLabel(i);
-                    offset += label * innerSize;
-                    innerSize *= dimension.size().orElseThrow(() ->
+                    long size = dimension.size().orElseThrow(() ->
                             new IllegalArgumentException("Unknown size of indexed dimension."));
+                    if (checkBounds && (label < 0 || label >= size))
+                        return -1;
+                    offset += label * innerSize;
+                    innerSize *= size;
                 }
             }
             return offset;
         }
 
-        private TensorAddress denseOffsetToAddress(long denseOffset) {
-            if (denseOffset < 0 || denseOffset > denseSubspaceSize) {
-                throw new IllegalArgumentException("Offset out of bounds");
-            }
-
-            long restSize = denseOffset;
-            long innerSize = denseSubspaceSize;
-            long[] labels = new long[indexedDimensions.size()];
-
-            for (int i = 0; i < labels.length; ++i) {
-                TensorType.Dimension dimension = indexedDimensions.get(i);
-                long dimensionSize = dimension.size().orElseThrow(() ->
-                        new IllegalArgumentException("Unknown size of indexed dimension."));
-
-                innerSize /= dimensionSize;
-                labels[i] = restSize / innerSize;
-                restSize %= innerSize;
-            }
-            return TensorAddress.of(labels);
-        }
-
-        private TensorAddress addressOf(TensorAddress sparsePart, long denseOffset) {
-            TensorAddress densePart = denseOffsetToAddress(denseOffset);
+        /** Returns the address of the cell at the given index in the values */
+        private TensorAddress addressOf(int cellIndex) {
+            int subspace = (int)(cellIndex / denseSubspaceSize());
+            long restSize = cellIndex % denseSubspaceSize();
+            long innerSize = denseSubspaceSize();
             String[] labels = new String[type.dimensions().size()];
             int mappedIndex = 0;
-            int indexedIndex = 0;
-            for (TensorType.Dimension d : type.dimensions()) {
-                if (d.isIndexed()) {
-                    labels[mappedIndex + indexedIndex] = densePart.label(indexedIndex);
-                    indexedIndex++;
-                } else {
-                    labels[mappedIndex + indexedIndex] = sparsePart.label(mappedIndex);
-                    mappedIndex++;
+            for (int i = 0; i < labels.length; i++) {
+                TensorType.Dimension dimension = type.dimensions().get(i);
+                if (dimension.isIndexed()) {
+                    innerSize /= dimension.size().get();
+                    labels[i] = TensorAddress.asString(restSize / innerSize);
+                    restSize %= innerSize;
+                }
+                else {
+                    labels[i] = sparseIndex.label(subspace, mappedIndex++);
                 }
             }
             return TensorAddress.of(labels);
@@ -528,15 +548,17 @@ public class MixedTensor implements Tensor {
 
             // Exactly 1 mapped dimension
             StringBuilder b = new StringBuilder("{");
-            var cellEntries = new ArrayList<>(sparseMap.entrySet());
-            cellEntries.sort(Map.Entry.comparingByKey());
+            List<Integer> subspaces = new ArrayList<>(sparseIndex.size());
+            for (int subspace = 0; subspace < sparseIndex.size(); subspace++)
+                subspaces.add(subspace);
+            subspaces.sort(Comparator.comparing(subspace -> sparseIndex.label(subspace, 0)));
             int cellsWritten = 0;
-            for (int index = 0; index < cellEntries.size() && cellsWritten < maxCells; index++) {
+            for (int index = 0; index < subspaces.size() && cellsWritten < maxCells; index++) {
                 if (index > 0)
                     b.append(", ");
-                b.append(TensorAddress.labelToString(cellEntries.get(index).getKey().label(0 )));
+                b.append(TensorAddress.labelToString(sparseIndex.label(subspaces.get(index), 0)));
                 b.append(":");
-                cellsWritten += denseSubspaceToString(tensor, cellEntries.get(index).getValue(), maxCells - cellsWritten, b);
+                cellsWritten += denseSubspaceToString(tensor, subspaces.get(index) * denseSubspaceSize(), maxCells - cellsWritten, b);
             }
             if (cellsWritten >= maxCells && cellsWritten < tensor.size())
                 b.append(", ...");
@@ -583,9 +605,35 @@ public class MixedTensor implements Tensor {
         }
 
         private double getDouble(long indexedSubspaceIndex, long indexInIndexedSubspace, MixedTensor tensor) {
-            return tensor.cells.get((int)(indexedSubspaceIndex + indexInIndexedSubspace)).getDoubleValue();
+            return tensor.values[(int)(indexedSubspaceIndex + indexInIndexedSubspace)];
+        }
+
+    }
+
+    /** A Cell which does not compute its TensorAddress unless it really has to */
+    private static final class LazyCell extends Tensor.Cell {
+
+        private final Index index;
+        private int cellIndex;
+        private double value;
+
+        private LazyCell(Index index) {
+            super(null, Double.NaN);
+            this.index = index;
         }
 
+        @Override
+        public TensorAddress getKey() { return index.addressOf(cellIndex); }
+
+        @Override
+        public Double getValue() { return value; }
+
+        @Override
+        public double getDoubleValue() { return value; }
+
+        @Override
+        public Cell detach() { return new Cell(getKey(), value); }
+
     }
 
     private static class DenseSubspaceBuilder implements IndexedTensor.DirectIndexBuilder {
@@ -0,0 +1,54 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the loop over the outermost dimension of a large tensor operation in ranges
+ * on the common fork-join pool, when parallel evaluation is requested.
+ *
+ * The body of the loop must compute each index independently of the others, writing only
+ * to the cells of that index. The result is then the same regardless of how the loop is split.
+ *
+ * @author agent
+ */
+public final class ParallelLoop {
+
+    /** The minimal number of scalar operations in a loop for it to be split */
+    public static final long minimumParallelWork = 1 << 17;
+
+    private ParallelLoop() {}
+
+    /** The body of a loop */
+    @FunctionalInterface
+    public interface Range {
+
+        /** Runs the loop body for each index from start (inclusive) to end (exclusive) */
+        void run(int start, int end);
+
+    }
+
+    /**
+     * Runs the given loop body over the indexes from 0 to size.
+     *
+     * @param parallel whether the loop may be split over multiple threads
+     * @param size the number of indexes to loop over
+     * @param workPerIndex the approximate number of scalar operations done for each index
+     * @param body the loop body
+     */
+    public static void run(boolean parallel, int size, long workPerIndex, Range body) {
+        long work = size * workPerIndex;
+        int threads = ForkJoinPool.getCommonPoolParallelism();
+        if ( ! parallel || size < 2 || threads < 2 || work < minimumParallelWork) {
+            body.run(0, size);
+            return;
+        }
+
+        int ranges = (int)Math.min(size, Math.min(threads * 4L, work / minimumParallelWork));
+        int rangeSize = (size + ranges - 1) / ranges;
+        IntStream.range(0, ranges).parallel().forEach(range -> body.run(range * rangeSize,
+                                                                        Math.min(size, (range + 1) * rangeSize)));
+    }
+
+}
@@ -515,7 +515,7 @@ public interface Tensor {
             return getKey().hashCode() ^ getValue().hashCode(); // by Map.Entry spec
         }
 
-        public String toString(TensorType type) { return address.toString(type) + ":" + value; }
+        public String toString(TensorType type) { return getKey().toString(type) + ":" + getValue(); }
 
         /**
          * Return a copy of this tensor cell which is valid beyond the lifetime of any iterator state which supplied it.
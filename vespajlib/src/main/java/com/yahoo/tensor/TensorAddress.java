@@ -25,7 +25,7 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
     private static String asString(int index) {
         return (index < SMALL_INDEXES.length) ? SMALL_INDEXES[index] : String.valueOf(index);
     }
-    private static String asString(long index) {
+    static String asString(long index) {
         return (index < SMALL_INDEXES.length) ? SMALL_INDEXES[(int)index] : String.valueOf(index);
     }
 
@@ -119,10 +119,31 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
 
         private final String[] labels;
 
+        /** The hash of this, or 0 if not computed yet. Addresses are hashed on every cell lookup. */
+        private int hash = 0;
+
         private StringTensorAddress(String ... labels) {
             this.labels = Arrays.copyOf(labels, labels.length);
         }
 
+        @Override
+        public int hashCode() {
+            int hash = this.hash;
+            if (hash == 0)
+                this.hash = hash = super.hashCode();
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (o instanceof StringTensorAddress other) {
+                if (hash != 0 && other.hash != 0 && hash != other.hash) return false;
+                return Arrays.equals(labels, other.labels);
+            }
+            return super.equals(o);
+        }
+
         @Override
         public int size() { return labels.length; }
 
@@ -158,10 +179,29 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
 
         private final long[] labels;
 
+        /** The hash of this, or 0 if not computed yet */
+        private int hash = 0;
+
         private NumericTensorAddress(long[] labels) {
             this.labels = Arrays.copyOf(labels, labels.length);
         }
 
+        @Override
+        public int hashCode() {
+            int hash = this.hash;
+            if (hash == 0)
+                this.hash = hash = super.hashCode();
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (o instanceof NumericTensorAddress other)
+                return Arrays.equals(labels, other.labels);
+            return super.equals(o);
+        }
+
         @Override
         public int size() { return labels.length; }
 
@@ -0,0 +1,136 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pool of value arrays which are reused by the intermediate tensors of repeated evaluations
+ * of the same tensor functions, such that evaluations in steady state allocate (nearly) no new arrays.
+ *
+ * Arrays are taken from this by builders created by {@link IndexedTensor.Builder#of(TensorType, DimensionSizes, TensorArena)}
+ * during an evaluation, and returned to it by {@link #release} when the evaluation is complete.
+ * As tensors are immutable this is only correct if no tensor created during the evaluation is used after release,
+ * except the result passed to release, whose values are never reused.
+ *
+ * The arrays kept for reuse are bounded both in number per array length and in total size, such that an arena
+ * which sees many different tensor shapes does not keep all of them alive. Released arrays beyond these bounds
+ * are left to the garbage collector.
+ *
+ * This is not thread safe. An arena should be owned by a single thread, e.g. by being held in a ThreadLocal,
+ * and all evaluations using it must take place in that thread.
+ *
+ * @author agent
+ */
+public final class TensorArena {
+
+    /** The default max number of arrays of each length and type kept for reuse */
+    public static final int defaultMaxArraysPerLength = 16;
+
+    /** The default max total size in bytes of the arrays kept for reuse */
+    public static final long defaultMaxBytes = 64L * 1024 * 1024;
+
+    private final int maxArraysPerLength;
+    private final long maxBytes;
+
+    /** The total size in bytes of the arrays currently available for reuse */
+    private long freeBytes = 0;
+
+    /** The arrays available for reuse, by length */
+    private final Map<Integer, ArrayDeque<double[]>> freeDoubles = new HashMap<>();
+    private final Map<Integer, ArrayDeque<float[]>> freeFloats = new HashMap<>();
+
+    /** The arrays handed out since the last release */
+    private final List<double[]> usedDoubles = new ArrayList<>();
+    private final List<float[]> usedFloats = new ArrayList<>();
+
+    /** Creates an arena with the default bounds on the arrays kept for reuse */
+    public TensorArena() {
+        this(defaultMaxArraysPerLength, defaultMaxBytes);
+    }
+
+    /**
+     * Creates an arena with the given bounds on the arrays kept for reuse
+     *
+     * @param maxArraysPerLength the max number of arrays of each length and value type kept
+     * @param maxBytes the max total size in bytes of all the arrays kept
+     */
+    public TensorArena(int maxArraysPerLength, long maxBytes) {
+        if (maxArraysPerLength < 0) throw new IllegalArgumentException("maxArraysPerLength cannot be negative");
+        if (maxBytes < 0) throw new IllegalArgumentException("maxBytes cannot be negative");
+        this.maxArraysPerLength = maxArraysPerLength;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns an array of zeros of the given length, which is owned by this */
+    double[] doubles(int length) {
+        ArrayDeque<double[]> free = freeDoubles.get(length);
+        double[] values = free == null ? null : free.poll();
+        if (values == null) {
+            values = new double[length];
+        }
+        else {
+            freeBytes -= (long)length * Double.BYTES;
+            Arrays.fill(values, 0);
+        }
+        usedDoubles.add(values);
+        return values;
+    }
+
+    /** Returns an array of zeros of the given length, which is owned by this */
+    float[] floats(int length) {
+        ArrayDeque<float[]> free = freeFloats.get(length);
+        float[] values = free == null ? null : free.poll();
+        if (values == null) {
+            values = new float[length];
+        }
+        else {
+            freeBytes -= (long)length * Float.BYTES;
+            Arrays.fill(values, 0);
+        }
+        usedFloats.add(values);
+        return values;
+    }
+
+    /**
+     * Makes the arrays of all tensors created from this since the last release available for reuse,
+     * except the values of the given result, which escape the evaluation.
+     *
+     * @param result the result of the evaluation, or null if there is none, e.g. because evaluation failed
+     */
+    public void release(Tensor result) {
+        Object escaping = valuesOf(result);
+        for (double[] values : usedDoubles) {
+            if (values != escaping)
+                keep(freeDoubles, values, values.length, (long)values.length * Double.BYTES);
+        }
+        for (float[] values : usedFloats) {
+            if (values != escaping)
+                keep(freeFloats, values, values.length, (long)values.length * Float.BYTES);
+        }
+        usedDoubles.clear();
+        usedFloats.clear();
+    }
+
+    /** Returns the total size in bytes of the arrays currently kept for reuse by this */
+    public long freeBytes() { return freeBytes; }
+
+    private <T> void keep(Map<Integer, ArrayDeque<T>> free, T values, int length, long bytes) {
+        if (freeBytes + bytes > maxBytes) return;
+        ArrayDeque<T> ofLength = free.computeIfAbsent(length, __ -> new ArrayDeque<>());
+        if (ofLength.size() >= maxArraysPerLength) return;
+        ofLength.push(values);
+        freeBytes += bytes;
+    }
+
+    private static Object valuesOf(Tensor tensor) {
+        if (tensor instanceof IndexedDoubleTensor doubleTensor) return doubleTensor.values();
+        if (tensor instanceof IndexedFloatTensor floatTensor) return floatTensor.values();
+        return null;
+    }
+
+}
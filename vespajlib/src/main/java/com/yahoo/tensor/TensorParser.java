@@ -1,6 +1,8 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
+import com.yahoo.text.DoubleParser;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -247,24 +249,40 @@ class TensorParser {
         }
 
         protected Number consumeNumber(TensorType.Value cellValueType) {
+            if (cellValueType == TensorType.Value.DOUBLE)
+                return consumeDouble();
+            else
+                return consumeFloat(cellValueType);
+        }
+
+        /** Parses the next number directly from the string */
+        protected double consumeDouble() {
             skipSpace();
 
             int nextNumberEnd = nextStopCharIndex(position, string);
             try {
-                String cellValueString = string.substring(position, nextNumberEnd);
-                try {
-                    switch (cellValueType) {
-                        case DOUBLE:   return Double.parseDouble(cellValueString);
-                        case FLOAT:    return Float.parseFloat(cellValueString);
-                        case BFLOAT16: return Float.parseFloat(cellValueString);
-                        case INT8:     return Float.parseFloat(cellValueString);
-                        default:
-                            throw new IllegalArgumentException(cellValueType + " is not supported");
-                    }
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("At value position " + position + ": '" +
-                                                       cellValueString + "' is not a valid " + cellValueType);
-                }
+                return DoubleParser.parseDouble(string, position, nextNumberEnd);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("At value position " + position + ": '" +
+                                                   string.substring(position, nextNumberEnd) + "' is not a valid " +
+                                                   TensorType.Value.DOUBLE);
+            }
+            finally {
+                position = nextNumberEnd;
+            }
+        }
+
+        /** Parses the next number directly from the string */
+        protected float consumeFloat(TensorType.Value cellValueType) {
+            skipSpace();
+
+            int nextNumberEnd = nextStopCharIndex(position, string);
+            try {
+                return DoubleParser.parseFloat(string, position, nextNumberEnd);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("At value position " + position + ": '" +
+                                                   string.substring(position, nextNumberEnd) + "' is not a valid " +
+                                                   cellValueType);
             }
             finally {
                 position = nextNumberEnd;
@@ -344,13 +362,11 @@ class TensorParser {
         }
 
         protected void consumeNumber() {
-            Number number = consumeNumber(builder.type().valueType());
-            switch (builder.type().valueType()) {
-                case DOUBLE:   builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Double)number); break;
-                case FLOAT:    builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Float)number); break;
-                case BFLOAT16: builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Float)number); break;
-                case INT8:     builder.cellByDirectIndex(indexes.toSourceValueIndex(), (Float)number); break;
-            }
+            TensorType.Value valueType = builder.type().valueType();
+            if (valueType == TensorType.Value.DOUBLE)
+                builder.cellByDirectIndex(indexes.toSourceValueIndex(), consumeDouble());
+            else
+                builder.cellByDirectIndex(indexes.toSourceValueIndex(), consumeFloat(valueType));
         }
     }
 
@@ -507,10 +523,10 @@ class TensorParser {
                 String cellValueString = string.substring(position, valueEnd).trim();
                 try {
                     switch (cellValueType) {
-                        case DOUBLE:   builder.cell(address, Double.parseDouble(cellValueString)); break;
-                        case FLOAT:    builder.cell(address, Float.parseFloat(cellValueString)); break;
-                        case BFLOAT16: builder.cell(address, Float.parseFloat(cellValueString)); break;
-                        case INT8:     builder.cell(address, Float.parseFloat(cellValueString)); break;
+                        case DOUBLE:   builder.cell(address, DoubleParser.parseDouble(cellValueString)); break;
+                        case FLOAT:    builder.cell(address, DoubleParser.parseFloat(cellValueString)); break;
+                        case BFLOAT16: builder.cell(address, DoubleParser.parseFloat(cellValueString)); break;
+                        case INT8:     builder.cell(address, DoubleParser.parseFloat(cellValueString)); break;
                         default:
                             throw new IllegalArgumentException(cellValueType + " is not supported");
                     }
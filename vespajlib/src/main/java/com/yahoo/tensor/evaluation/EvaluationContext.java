@@ -2,6 +2,7 @@
 package com.yahoo.tensor.evaluation;
 
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorArena;
 
 /**
  * An evaluation context which is passed down to all nested functions during evaluation.
@@ -13,4 +14,16 @@ public interface EvaluationContext<NAMETYPE extends Name> extends TypeContext<NA
     /** Returns the tensor bound to this name, or null if none */
     Tensor getTensor(String name);
 
+    /**
+     * Returns the arena the values of intermediate tensors should be taken from during this evaluation,
+     * or null (default) to allocate them normally.
+     */
+    default TensorArena arena() { return null; }
+
+    /**
+     * Returns whether the outermost dimension of large dense tensor operations may be evaluated in parallel
+     * on the common fork-join pool. This does not change the result of any operation. Default is false.
+     */
+    default boolean parallel() { return false; }
+
 }
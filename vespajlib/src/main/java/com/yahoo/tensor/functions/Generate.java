@@ -4,6 +4,7 @@ package com.yahoo.tensor.functions;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorArena;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
@@ -183,6 +184,12 @@ public class Generate<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAM
                 return context.getType(name);
         }
 
+        @Override
+        public TensorArena arena() { return context.arena(); }
+
+        @Override
+        public boolean parallel() { return context.parallel(); }
+
     }
 
     /** A context which adds the bindings of the generate dimension names to the given context. */
@@ -2,11 +2,14 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.Sets;
+import com.yahoo.tensor.DenseKernels;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.ParallelLoop;
 import com.yahoo.tensor.PartialAddress;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorArena;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.TypeResolver;
 import com.yahoo.tensor.evaluation.EvaluationContext;
@@ -14,6 +17,7 @@ import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -90,19 +94,28 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         Tensor a = argumentA.evaluate(context);
         Tensor b = argumentB.evaluate(context);
         TensorType joinedType = outputType(a.type(), b.type());
-        return evaluate(a, b, joinedType, combinator);
+        return evaluate(a, b, joinedType, combinator, context.arena(), context.parallel());
     }
 
     static Tensor evaluate(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        return evaluate(a, b, joinedType, combinator, null, false);
+    }
+
+    /**
+     * Evaluates this join, taking the values of indexed results from the given arena if it is not null,
+     * and evaluating large indexed joins in parallel if parallel is true.
+     */
+    static Tensor evaluate(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator,
+                           TensorArena arena, boolean parallel) {
         // Choose join algorithm
         if (hasSingleIndexedDimension(a) && hasSingleIndexedDimension(b) && a.type().dimensions().get(0).name().equals(b.type().dimensions().get(0).name()))
-            return indexedVectorJoin((IndexedTensor)a, (IndexedTensor)b, joinedType, combinator);
+            return indexedVectorJoin((IndexedTensor)a, (IndexedTensor)b, joinedType, combinator, arena, parallel);
         else if (joinedType.dimensions().size() == a.type().dimensions().size() && joinedType.dimensions().size() == b.type().dimensions().size())
             return singleSpaceJoin(a, b, joinedType, combinator);
         else if (a.type().dimensions().containsAll(b.type().dimensions()))
-            return subspaceJoin(b, a, joinedType, true, combinator);
+            return subspaceJoin(b, a, joinedType, true, combinator, arena, parallel);
         else if (b.type().dimensions().containsAll(a.type().dimensions()))
-            return subspaceJoin(a, b, joinedType, false, combinator);
+            return subspaceJoin(a, b, joinedType, false, combinator, arena, parallel);
         else
             return generalJoin(a, b, joinedType, combinator);
 
@@ -112,49 +125,68 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         return tensor.type().dimensions().size() == 1 && tensor.type().dimensions().get(0).isIndexed();
     }
 
-    private static Tensor indexedVectorJoin(IndexedTensor a, IndexedTensor b, TensorType type, DoubleBinaryOperator combinator) {
+    private static Tensor indexedVectorJoin(IndexedTensor a, IndexedTensor b, TensorType type,
+                                            DoubleBinaryOperator combinator, TensorArena arena, boolean parallel) {
         long joinedRank = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
-        Iterator<Double> aIterator = a.valueIterator();
-        Iterator<Double> bIterator = b.valueIterator();
-        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
-        for (int i = 0; i < joinedRank; i++)
-            builder.cell(combinator.applyAsDouble(aIterator.next(), bIterator.next()), i);
-        return builder.build();
+        DimensionSizes joinedSizes = new DimensionSizes.Builder(1).set(0, joinedRank).build();
+        double[] values = DenseKernels.join(a, b, (int)joinedRank, combinator, arena, parallel);
+        return IndexedTensor.Builder.of(type, joinedSizes, values).build();
     }
 
-    /** When both tensors have the same dimensions, at most one cell matches a cell in the other tensor */
+    /**
+     * When both tensors have the same dimensions, at most one cell matches a cell in the other tensor.
+     * This iterates over the smaller tensor and looks up each of its cells in the larger.
+     */
     private static Tensor singleSpaceJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        boolean swapTensors = a.size() > b.size();
+        Tensor iterated = swapTensors ? b : a;
+        Tensor lookedUp = swapTensors ? a : b;
         Tensor.Builder builder = Tensor.Builder.of(joinedType);
-        for (Iterator<Tensor.Cell> i = a.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> aCell = i.next();
-            var key = aCell.getKey();
-            if (b.has(key)) {
-                builder.cell(key, combinator.applyAsDouble(aCell.getValue(), b.get(key)));
+        for (Iterator<Tensor.Cell> i = iterated.cellIterator(); i.hasNext(); ) {
+            Map.Entry<TensorAddress, Double> cell = i.next();
+            var key = cell.getKey();
+            if (lookedUp.has(key)) {
+                builder.cell(key, swapTensors ? combinator.applyAsDouble(lookedUp.get(key), cell.getValue())
+                                              : combinator.applyAsDouble(cell.getValue(), lookedUp.get(key)));
             }
         }
         return builder.build();
     }
 
     /** Join a tensor into a superspace */
-    private static Tensor subspaceJoin(Tensor subspace, Tensor superspace, TensorType joinedType, boolean reversedArgumentOrder, DoubleBinaryOperator combinator) {
+    private static Tensor subspaceJoin(Tensor subspace, Tensor superspace, TensorType joinedType, boolean reversedArgumentOrder,
+                                       DoubleBinaryOperator combinator, TensorArena arena, boolean parallel) {
         if (subspace instanceof IndexedTensor && superspace instanceof IndexedTensor)
-            return indexedSubspaceJoin((IndexedTensor) subspace, (IndexedTensor) superspace, joinedType, reversedArgumentOrder, combinator);
+            return indexedSubspaceJoin((IndexedTensor) subspace, (IndexedTensor) superspace, joinedType, reversedArgumentOrder, combinator, arena, parallel);
         else
             return generalSubspaceJoin(subspace, superspace, joinedType, reversedArgumentOrder, combinator);
     }
 
-    private static Tensor indexedSubspaceJoin(IndexedTensor subspace, IndexedTensor superspace, TensorType joinedType, boolean reversedArgumentOrder, DoubleBinaryOperator combinator) {
+    private static Tensor indexedSubspaceJoin(IndexedTensor subspace, IndexedTensor superspace, TensorType joinedType, boolean reversedArgumentOrder,
+                                              DoubleBinaryOperator combinator, TensorArena arena, boolean parallel) {
         if (subspace.size() == 0 || superspace.size() == 0) // special case empty here to avoid doing it when finding sizes
             return Tensor.Builder.of(joinedType, new DimensionSizes.Builder(joinedType.dimensions().size()).build()).build();
 
         DimensionSizes joinedSizes = joinedSize(joinedType, subspace, superspace);
 
-        IndexedTensor.Builder builder = (IndexedTensor.Builder)Tensor.Builder.of(joinedType, joinedSizes);
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(joinedType, joinedSizes, arena);
 
         // Find dimensions which are only in the supertype
         Set<String> superDimensionNames = new HashSet<>(superspace.type().dimensionNames());
         superDimensionNames.removeAll(subspace.type().dimensionNames());
 
+        if (parallel) { // join each subspace of the superspace independently
+            List<IndexedTensor.SubspaceIterator> subspacesInSuper = new ArrayList<>();
+            superspace.subspaceIterator(superDimensionNames, joinedSizes).forEachRemaining(subspacesInSuper::add);
+            ParallelLoop.run(true, subspacesInSuper.size(), subspace.size(), (start, end) -> {
+                for (int i = start; i < end; i++)
+                    joinSubspaces(subspace.valueIterator(), subspace.size(),
+                                  subspacesInSuper.get(i), subspacesInSuper.get(i).size(),
+                                  reversedArgumentOrder, builder, combinator);
+            });
+            return builder.build();
+        }
+
         for (Iterator<IndexedTensor.SubspaceIterator> i = superspace.subspaceIterator(superDimensionNames, joinedSizes); i.hasNext(); ) {
             IndexedTensor.SubspaceIterator subspaceInSuper = i.next();
             joinSubspaces(subspace.valueIterator(), subspace.size(),
@@ -230,10 +262,16 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         return TensorAddress.of(subspaceLabels);
     }
 
-    /** Slow join which works for any two tensors */
+    /**
+     * Join which works for any two tensors having dimensions not present in the other:
+     * Tensors without dimensions in common are joined by expanding to all combinations of cells,
+     * others by a hash join on the labels of the dimensions in common.
+     */
     private static Tensor generalJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
         if (a instanceof IndexedTensor && b instanceof IndexedTensor)
             return indexedGeneralJoin((IndexedTensor) a, (IndexedTensor) b, joinedType, combinator);
+        else if (Collections.disjoint(a.type().dimensionNames(), b.type().dimensionNames()))
+            return cartesianJoin(a, b, joinedType, combinator);
         else
             return mappedHashJoin(a, b, joinedType, combinator);
     }
@@ -310,6 +348,37 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         return builder.build();
     }
 
+    /** Joins two tensors without dimensions in common, where every pair of cells produces a cell */
+    private static Tensor cartesianJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        int[] aToIndexes = mapIndexes(a.type(), joinedType);
+        int[] bToIndexes = mapIndexes(b.type(), joinedType);
+        // Cell instances may be reused by iterators, so keep the content of b's cells instead
+        List<TensorAddress> bAddresses = new ArrayList<>((int)b.size());
+        double[] bValues = new double[(int)b.size()];
+        for (Iterator<Tensor.Cell> bIterator = b.cellIterator(); bIterator.hasNext(); ) {
+            Tensor.Cell bCell = bIterator.next();
+            bValues[bAddresses.size()] = bCell.getDoubleValue();
+            bAddresses.add(bCell.getKey());
+        }
+
+        Tensor.Builder builder = Tensor.Builder.of(joinedType);
+        String[] joinedLabels = new String[joinedType.dimensions().size()];
+        for (Iterator<Tensor.Cell> aIterator = a.cellIterator(); aIterator.hasNext(); ) {
+            Tensor.Cell aCell = aIterator.next();
+            TensorAddress aAddress = aCell.getKey();
+            double aValue = aCell.getDoubleValue();
+            for (int i = 0; i < aToIndexes.length; i++)
+                joinedLabels[aToIndexes[i]] = aAddress.label(i);
+            for (int j = 0; j < bValues.length; j++) {
+                TensorAddress bAddress = bAddresses.get(j);
+                for (int i = 0; i < bToIndexes.length; i++)
+                    joinedLabels[bToIndexes[i]] = bAddress.label(i);
+                builder.cell(TensorAddress.of(joinedLabels), combinator.applyAsDouble(aValue, bValues[j]));
+            }
+        }
+        return builder.build();
+    }
+
     private static Tensor mappedHashJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
         TensorType commonDimensionType = commonDimensions(a, b);
         if (commonDimensionType.dimensions().isEmpty()) {
@@ -334,8 +403,7 @@ public class Join<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYP
         for (Iterator<Tensor.Cell> cellIterator = a.cellIterator(); cellIterator.hasNext(); ) {
             Tensor.Cell aCell = cellIterator.next();
             TensorAddress partialCommonAddress = partialCommonAddress(aCell, aIndexesInCommon);
-            aCellsByCommonAddress.putIfAbsent(partialCommonAddress, new ArrayList<>());
-            aCellsByCommonAddress.get(partialCommonAddress).add(aCell);
+            aCellsByCommonAddress.computeIfAbsent(partialCommonAddress, __ -> new ArrayList<>()).add(aCell.detach());
         }
 
         // Iterate once through the larger tensor and use the hash map to find joinable cells
@@ -1,8 +1,11 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.ParallelLoop;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorArena;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.TypeResolver;
 import com.yahoo.tensor.evaluation.EvaluationContext;
@@ -62,6 +65,8 @@ public class Map<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYPE
     @Override
     public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
         Tensor input = argument().evaluate(context);
+        if (input instanceof IndexedTensor indexed)
+            return mapIndexed(indexed, context.arena(), context.parallel());
         Tensor.Builder builder = Tensor.Builder.of(outputType(input.type()));
         for (Iterator<Tensor.Cell> i = input.cellIterator(); i.hasNext(); ) {
             java.util.Map.Entry<TensorAddress, Double> cell = i.next();
@@ -70,6 +75,15 @@ public class Map<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMETYPE
         return builder.build();
     }
 
+    private Tensor mapIndexed(IndexedTensor input, TensorArena arena, boolean parallel) {
+        var builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(outputType(input.type()), input.dimensionSizes(), arena);
+        ParallelLoop.run(parallel, (int)input.size(), 1, (start, end) -> {
+            for (int i = start; i < end; i++)
+                builder.cellByDirectIndex(i, mapper.applyAsDouble(input.get(i)));
+        });
+        return builder.build();
+    }
+
     @Override
     public String toString(ToStringContext<NAMETYPE> context) {
         return "map(" + argument.toString(context) + ", " + mapper + ")";
@@ -1,6 +1,7 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.DenseKernels;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -65,9 +66,9 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
 
     public TensorFunction<NAMETYPE> argument() { return argument; }
 
-    Aggregator aggregator() { return aggregator; }
+    public Aggregator aggregator() { return aggregator; }
 
-    List<String> dimensions() { return dimensions; }
+    public List<String> dimensions() { return dimensions; }
 
     @Override
     public List<TensorFunction<NAMETYPE>> arguments() { return List.of(argument); }
@@ -164,6 +165,12 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     }
 
     private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
+        int size = (int)argument.dimensionSizes().size(0);
+        if (aggregator == Aggregator.sum)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.sum(argument, size)).build();
+        if (aggregator == Aggregator.max)
+            return Tensor.Builder.of(TensorType.empty).cell(DenseKernels.max(argument, size)).build();
+
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         for (int i = 0; i < argument.dimensionSizes().size(0); i++)
             valueAggregator.aggregate(argument.get(i));
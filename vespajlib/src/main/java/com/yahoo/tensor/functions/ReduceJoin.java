@@ -1,14 +1,20 @@
 // Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.DenseKernels;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.MixedTensor;
+import com.yahoo.tensor.ParallelLoop;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorArena;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.DoubleBinaryOperator;
@@ -22,7 +28,10 @@ import java.util.stream.Collectors;
  * This implementation optimizes the case where the reduce is done on the same
  * dimensions as the join. A particularly efficient evaluation is done if there
  * is one common dimension that is joined and reduced on, which is a common
- * case as it covers vector and matrix like multiplications.
+ * case as it covers vector and matrix like multiplications. Sparse and mixed tensors
+ * are handled without creating the joined tensor when the reduce is over all dimensions
+ * of two tensors of the same type, or over the dense subspaces of a mixed tensor joined with
+ * a dense tensor of that subspace type.
  *
  * @author lesters
  */
@@ -74,9 +83,95 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         TensorType joinedType = new TensorType.Builder(a.type(), b.type()).build();
 
         if (canOptimize(a, b)) {
-            return evaluate((IndexedTensor)a, (IndexedTensor)b, joinedType);
+            return evaluate((IndexedTensor)a, (IndexedTensor)b, joinedType, context.arena(), context.parallel());
         }
-        return Reduce.evaluate(Join.evaluate(a, b, joinedType, combinator), dimensions, aggregator);
+        if (isSparseInnerProduct(a, b)) {
+            return sparseInnerProduct(a, b);
+        }
+        if (isMixedDenseProduct(a, b)) {
+            return mixedDenseProduct((MixedTensor)a, (IndexedTensor)b, joinedType, false);
+        }
+        if (isMixedDenseProduct(b, a)) {
+            return mixedDenseProduct((MixedTensor)b, (IndexedTensor)a, joinedType, true);
+        }
+        return Reduce.evaluate(Join.evaluate(a, b, joinedType, combinator, context.arena(), context.parallel()), dimensions, aggregator);
+    }
+
+    /**
+     * Returns whether both tensors have the same dimensions, not all indexed, and all of them are reduced,
+     * as when computing the sum of products of query and document token weights.
+     */
+    private boolean isSparseInnerProduct(Tensor a, Tensor b) {
+        if (a instanceof IndexedTensor && b instanceof IndexedTensor) return false;
+        if (a.type().dimensions().isEmpty()) return false;
+        if ( ! a.type().dimensions().equals(b.type().dimensions())) return false;
+        return dimensions.isEmpty() || dimensions.containsAll(a.type().dimensionNames());
+    }
+
+    /** Iterates over the smaller tensor and looks up the matching cell of the larger to aggregate directly */
+    private Tensor sparseInnerProduct(Tensor a, Tensor b) {
+        boolean swapped = a.size() > b.size();
+        Tensor iterated = swapped ? b : a;
+        Tensor lookedUp = swapped ? a : b;
+        Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
+        boolean empty = true;
+        for (Iterator<Tensor.Cell> i = iterated.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            if ( ! lookedUp.has(cell.getKey())) continue;
+            double other = lookedUp.get(cell.getKey());
+            agg.aggregate(swapped ? combinator.applyAsDouble(other, cell.getValue())
+                                  : combinator.applyAsDouble(cell.getValue(), other));
+            empty = false;
+        }
+        if (empty) return Tensor.from(0.0); // as when reducing an empty join
+        return Tensor.Builder.of(TensorType.empty).cell(agg.aggregatedValue()).build();
+    }
+
+    /**
+     * Returns whether a is a mixed tensor whose dense subspaces have the same type as b,
+     * and b's dimensions are exactly those reduced, as when computing the similarity of each
+     * embedding in a tensor(doc{},x[N]) to the embedding in a tensor(x[N]).
+     */
+    private boolean isMixedDenseProduct(Tensor a, Tensor b) {
+        if ( ! (a instanceof MixedTensor)) return false;
+        if ( ! (b instanceof IndexedTensor)) return false;
+        if (b.type().dimensions().isEmpty()) return false;
+        if ( ! b.type().dimensions().stream().allMatch(d -> d.type() == TensorType.Dimension.Type.indexedBound)) return false;
+        if (a.type().dimensions().stream().allMatch(d -> d.isIndexed())) return false;
+        if ( ! a.type().dimensions().stream().filter(d -> d.isIndexed()).toList().equals(b.type().dimensions())) return false;
+        return dimensions.size() == b.type().dimensions().size() && b.type().dimensionNames().containsAll(dimensions);
+    }
+
+    /**
+     * Reduces each dense subspace of a joined with b to a single cell.
+     * This relies on the cells of each dense subspace being iterated consecutively in the standard value order.
+     */
+    private Tensor mixedDenseProduct(MixedTensor a, IndexedTensor b, TensorType joinedType, boolean swapped) {
+        TensorType reducedType = Reduce.outputType(joinedType, dimensions);
+        int[] reducedToA = Join.mapIndexes(reducedType, a.type());
+        long subspaceSize = a.denseSubspaceSize();
+        boolean dotProduct = isDotProduct();
+        Tensor.Builder builder = Tensor.Builder.of(reducedType);
+        Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
+        String[] labels = new String[reducedToA.length];
+        for (Iterator<Tensor.Cell> cells = a.cellIterator(); cells.hasNext(); ) {
+            double sum = 0;
+            agg.reset();
+            for (long i = 0; i < subspaceSize; i++) {
+                Tensor.Cell cell = cells.next();
+                if (i == 0) {
+                    for (int j = 0; j < labels.length; j++)
+                        labels[j] = cell.getKey().label(reducedToA[j]);
+                }
+                if (dotProduct)
+                    sum += cell.getDoubleValue() * b.get(i);
+                else
+                    agg.aggregate(swapped ? combinator.applyAsDouble(b.get(i), cell.getDoubleValue())
+                                          : combinator.applyAsDouble(cell.getDoubleValue(), b.get(i)));
+            }
+            builder.cell(TensorAddress.of(labels), dotProduct ? sum : agg.aggregatedValue());
+        }
+        return builder.build();
     }
 
     /**
@@ -119,32 +214,36 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
      * Evaluates the reduce-join. Special handling for common cases where the
      * reduce dimension is the innermost dimension in both tensors.
      */
-    private Tensor evaluate(IndexedTensor a, IndexedTensor b, TensorType joinedType) {
+    private Tensor evaluate(IndexedTensor a, IndexedTensor b, TensorType joinedType, TensorArena arena, boolean parallel) {
         TensorType reducedType = Reduce.outputType(joinedType, dimensions);
 
         if (reduceDimensionIsInnermost(a, b)) {
             if (a.type().dimensions().size() == 1 && b.type().dimensions().size() == 1) {
-                return vectorVectorProduct(a, b, reducedType);
+                return vectorVectorProduct(a, b, reducedType, arena);
             }
             if (a.type().dimensions().size() == 1 && b.type().dimensions().size() == 2) {
-                return vectorMatrixProduct(a, b, reducedType, false);
+                return vectorMatrixProduct(a, b, reducedType, false, arena, parallel);
             }
             if (a.type().dimensions().size() == 2 && b.type().dimensions().size() == 1) {
-                return vectorMatrixProduct(b, a, reducedType, true);
+                return vectorMatrixProduct(b, a, reducedType, true, arena, parallel);
             }
             if (a.type().dimensions().size() == 2 && b.type().dimensions().size() == 2) {
-                return matrixMatrixProduct(a, b, reducedType);
+                return matrixMatrixProduct(a, b, reducedType, arena, parallel);
             }
         }
-        return evaluateGeneral(a, b, reducedType);
+        return evaluateGeneral(a, b, reducedType, arena);
     }
 
-    private Tensor vectorVectorProduct(IndexedTensor a, IndexedTensor b, TensorType reducedType) {
+    private Tensor vectorVectorProduct(IndexedTensor a, IndexedTensor b, TensorType reducedType, TensorArena arena) {
         if ( a.type().dimensions().size() != 1 || b.type().dimensions().size() != 1) {
             throw new IllegalArgumentException("Wrong dimension sizes for tensors for vector-vector product");
         }
-        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType, arena);
         long commonSize = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
+        if (isDotProduct()) {
+            builder.cellByDirectIndex(0, DenseKernels.dotProduct(a, 0, b, 0, (int)commonSize));
+            return builder.build();
+        }
 
         Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
         for (int ic = 0; ic < commonSize; ++ic) {
@@ -156,57 +255,89 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         return builder.build();
     }
 
-    private Tensor vectorMatrixProduct(IndexedTensor a, IndexedTensor b, TensorType reducedType, boolean swapped) {
+    private Tensor vectorMatrixProduct(IndexedTensor a, IndexedTensor b, TensorType reducedType, boolean swapped,
+                                       TensorArena arena, boolean parallel) {
         if ( a.type().dimensions().size() != 1 || b.type().dimensions().size() != 2) {
             throw new IllegalArgumentException("Wrong dimension sizes for tensors for vector-matrix product");
         }
-        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType, arena);
         DimensionSizes sizesA = a.dimensionSizes();
         DimensionSizes sizesB = b.dimensionSizes();
+        int commonSize = (int)Math.min(sizesA.size(0), sizesB.size(1));
+        if (isDotProduct()) {
+            ParallelLoop.run(parallel, (int)sizesB.size(0), commonSize, (start, end) -> {
+                for (int ib = start; ib < end; ++ib)
+                    builder.cellByDirectIndex(ib, DenseKernels.dotProduct(a, 0, b, (int)(ib * sizesB.size(1)), commonSize));
+            });
+            return builder.build();
+        }
 
-        Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
-        for (int ib = 0; ib < sizesB.size(0); ++ib) {
-            agg.reset();
-            for (int ic = 0; ic < Math.min(sizesA.size(0), sizesB.size(1)); ++ic) {
-                double va = a.get(ic);
-                double vb = b.get(ib * sizesB.size(1) + ic);
-                double result = swapped ? combinator.applyAsDouble(vb, va) : combinator.applyAsDouble(va, vb);
-                agg.aggregate(result);
+        ParallelLoop.run(parallel, (int)sizesB.size(0), commonSize, (start, end) -> {
+            Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
+            for (int ib = start; ib < end; ++ib) {
+                agg.reset();
+                for (int ic = 0; ic < commonSize; ++ic) {
+                    double va = a.get(ic);
+                    double vb = b.get(ib * sizesB.size(1) + ic);
+                    double result = swapped ? combinator.applyAsDouble(vb, va) : combinator.applyAsDouble(va, vb);
+                    agg.aggregate(result);
+                }
+                builder.cellByDirectIndex(ib, agg.aggregatedValue());
             }
-            builder.cellByDirectIndex(ib, agg.aggregatedValue());
-        }
+        });
         return builder.build();
     }
 
-    private Tensor matrixMatrixProduct(IndexedTensor a, IndexedTensor b, TensorType reducedType) {
+    private Tensor matrixMatrixProduct(IndexedTensor a, IndexedTensor b, TensorType reducedType,
+                                       TensorArena arena, boolean parallel) {
         if ( a.type().dimensions().size() != 2 || b.type().dimensions().size() != 2) {
             throw new IllegalArgumentException("Wrong dimension sizes for tensors for matrix-matrix product");
         }
-        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType, arena);
         DimensionSizes sizesA = a.dimensionSizes();
         DimensionSizes sizesB = b.dimensionSizes();
         int iaToReduced = reducedType.indexOfDimension(a.type().dimensions().get(0).name()).get();
         int ibToReduced = reducedType.indexOfDimension(b.type().dimensions().get(0).name()).get();
         long strideA = iaToReduced < ibToReduced ? sizesB.size(0) : 1;
         long strideB = ibToReduced < iaToReduced ? sizesA.size(0) : 1;
+        int commonSize = (int)Math.min(sizesA.size(1), sizesB.size(1));
+        long workPerRow = sizesB.size(0) * commonSize;
+        if (isDotProduct()) {
+            ParallelLoop.run(parallel, (int)sizesA.size(0), workPerRow, (start, end) -> {
+                for (int ia = start; ia < end; ++ia) {
+                    for (int ib = 0; ib < sizesB.size(0); ++ib) {
+                        double product = DenseKernels.dotProduct(a, (int)(ia * sizesA.size(1)), b, (int)(ib * sizesB.size(1)), commonSize);
+                        builder.cellByDirectIndex(ia * strideA + ib * strideB, product);
+                    }
+                }
+            });
+            return builder.build();
+        }
 
-        Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
-        for (int ia = 0; ia < sizesA.size(0); ++ia) {
-            for (int ib = 0; ib < sizesB.size(0); ++ib) {
-                agg.reset();
-                for (int ic = 0; ic < Math.min(sizesA.size(1), sizesB.size(1)); ++ic) {
-                    double va = a.get(ia * sizesA.size(1) + ic);
-                    double vb = b.get(ib * sizesB.size(1) + ic);
-                    agg.aggregate(combinator.applyAsDouble(va, vb));
+        ParallelLoop.run(parallel, (int)sizesA.size(0), workPerRow, (start, end) -> {
+            Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
+            for (int ia = start; ia < end; ++ia) {
+                for (int ib = 0; ib < sizesB.size(0); ++ib) {
+                    agg.reset();
+                    for (int ic = 0; ic < commonSize; ++ic) {
+                        double va = a.get(ia * sizesA.size(1) + ic);
+                        double vb = b.get(ib * sizesB.size(1) + ic);
+                        agg.aggregate(combinator.applyAsDouble(va, vb));
+                    }
+                    builder.cellByDirectIndex(ia * strideA + ib * strideB, agg.aggregatedValue());
                 }
-                builder.cellByDirectIndex(ia * strideA + ib * strideB, agg.aggregatedValue());
             }
-        }
+        });
         return builder.build();
     }
 
-    private Tensor evaluateGeneral(IndexedTensor a, IndexedTensor b, TensorType reducedType) {
-        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
+    /** Returns whether this is a sum of products, which can be computed by a dedicated kernel */
+    private boolean isDotProduct() {
+        return aggregator == Reduce.Aggregator.sum && combinator instanceof ScalarFunctions.Multiply;
+    }
+
+    private Tensor evaluateGeneral(IndexedTensor a, IndexedTensor b, TensorType reducedType, TensorArena arena) {
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType, arena);
         TensorType onlyInA = Reduce.outputType(a.type(), dimensions);
         TensorType onlyInB = Reduce.outputType(b.type(), dimensions);
         TensorType common = dimensionsInCommon(a, b);
@@ -77,10 +77,24 @@ public class DenseBinaryFormat implements BinaryFormat {
 
     @Override
     public Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
-        TensorType type;
-        DimensionSizes sizes;
+        TypeAndSizes typeAndSizes = decodeTypeAndSizes(optionalType, buffer);
+        return decodeCells(typeAndSizes.type(), typeAndSizes.sizes(), buffer);
+    }
+
+    /**
+     * Decodes a tensor which reads its cell values directly from the buffer instead of copying them.
+     * The buffer is positioned after the tensor data on return.
+     */
+    IndexedTensor decodeWithoutCopying(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        TypeAndSizes typeAndSizes = decodeTypeAndSizes(optionalType, buffer);
+        IndexedTensor tensor = IndexedTensor.wrap(typeAndSizes.type(), typeAndSizes.sizes(), buffer.getByteBuffer());
+        buffer.position(buffer.position() + (int)(tensor.size() * bytesPerValue()));
+        return tensor;
+    }
+
+    private TypeAndSizes decodeTypeAndSizes(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
         if (optionalType.isPresent()) {
-            type = optionalType.get();
+            TensorType type = optionalType.get();
             if (type.valueType() != this.serializationValueType) {
                 throw new IllegalArgumentException("Tensor value type mismatch. Value type " + type.valueType() +
                                                    " is not " + this.serializationValueType);
@@ -89,15 +103,21 @@ public class DenseBinaryFormat implements BinaryFormat {
             if ( ! serializedType.isAssignableTo(type))
                 throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
                                                    " cannot be assigned to type " + type);
-            sizes = sizesFromType(serializedType);
+            return new TypeAndSizes(type, sizesFromType(serializedType));
         }
         else {
-            type = decodeType(buffer);
-            sizes = sizesFromType(type);
+            TensorType type = decodeType(buffer);
+            return new TypeAndSizes(type, sizesFromType(type));
         }
-        Tensor.Builder builder = Tensor.Builder.of(type, sizes);
-        decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
-        return builder.build();
+    }
+
+    private int bytesPerValue() {
+        return switch (serializationValueType) {
+            case DOUBLE -> Double.BYTES;
+            case FLOAT -> Float.BYTES;
+            case BFLOAT16 -> Short.BYTES;
+            case INT8 -> Byte.BYTES;
+        };
     }
 
     private TensorType decodeType(GrowableByteBuffer buffer) {
@@ -116,35 +136,44 @@ public class DenseBinaryFormat implements BinaryFormat {
         return builder.build();
     }
 
-    private void decodeCells(DimensionSizes sizes, GrowableByteBuffer buffer, IndexedTensor.BoundBuilder builder) {
-        switch (serializationValueType) {
-            case DOUBLE: decodeDoubleCells(sizes, builder, buffer); break;
-            case FLOAT: decodeFloatCells(sizes, builder, buffer); break;
-            case BFLOAT16: decodeBFloat16Cells(sizes, builder, buffer); break;
-            case INT8: decodeInt8Cells(sizes, builder, buffer); break;
-        }
+    /** Decodes the cell values directly into the array which becomes the storage of the returned tensor */
+    private Tensor decodeCells(TensorType type, DimensionSizes sizes, GrowableByteBuffer buffer) {
+        int size = (int)sizes.totalSize(); // XXX: Size truncation
+        return switch (serializationValueType) {
+            case DOUBLE -> IndexedTensor.Builder.of(type, sizes, decodeDoubleCells(size, buffer)).build();
+            case FLOAT -> IndexedTensor.Builder.of(type, sizes, decodeFloatCells(size, buffer)).build();
+            case BFLOAT16 -> IndexedTensor.Builder.of(type, sizes, decodeBFloat16Cells(size, buffer)).build();
+            case INT8 -> IndexedTensor.Builder.of(type, sizes, decodeInt8Cells(size, buffer)).build();
+        };
     }
 
-    private void decodeDoubleCells(DimensionSizes sizes, IndexedTensor.BoundBuilder builder, GrowableByteBuffer buffer) {
-        for (long i = 0; i < sizes.totalSize(); i++)
-            builder.cellByDirectIndex(i, buffer.getDouble());
+    private double[] decodeDoubleCells(int size, GrowableByteBuffer buffer) {
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++)
+            values[i] = buffer.getDouble();
+        return values;
     }
 
-    private void decodeFloatCells(DimensionSizes sizes, IndexedTensor.BoundBuilder builder, GrowableByteBuffer buffer) {
-        for (long i = 0; i < sizes.totalSize(); i++)
-            builder.cellByDirectIndex(i, buffer.getFloat());
+    private float[] decodeFloatCells(int size, GrowableByteBuffer buffer) {
+        float[] values = new float[size];
+        for (int i = 0; i < size; i++)
+            values[i] = buffer.getFloat();
+        return values;
     }
 
-    private void decodeBFloat16Cells(DimensionSizes sizes, IndexedTensor.BoundBuilder builder, GrowableByteBuffer buffer) {
-        for (long i = 0; i < sizes.totalSize(); i++) {
-            builder.cellByDirectIndex(i, TypedBinaryFormat.floatFromBFloat16Bits(buffer.getShort()));
-        }
+    private short[] decodeBFloat16Cells(int size, GrowableByteBuffer buffer) {
+        short[] values = new short[size];
+        for (int i = 0; i < size; i++)
+            values[i] = buffer.getShort();
+        return values;
     }
 
-    private void decodeInt8Cells(DimensionSizes sizes, IndexedTensor.BoundBuilder builder, GrowableByteBuffer buffer) {
-        for (long i = 0; i < sizes.totalSize(); i++) {
-            builder.cellByDirectIndex(i, (float) buffer.get());
-        }
+    private byte[] decodeInt8Cells(int size, GrowableByteBuffer buffer) {
+        byte[] values = new byte[size];
+        buffer.get(values);
+        return values;
     }
 
+    private record TypeAndSizes(TensorType type, DimensionSizes sizes) {}
+
 }
@@ -99,7 +99,10 @@ public class JsonFormat {
         Cursor cells = cursor.setObject("cells");
         if (tensor.type().dimensions().size() > 1)
             throw new IllegalStateException("JSON encode of mapped tensor can only contain a single dimension");
-        tensor.cells().forEach((k,v) -> cells.setDouble(k.label(0), v));
+        for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
+            Tensor.Cell cell = i.next();
+            cells.setDouble(cell.getKey().label(0), cell.getValue());
+        }
     }
 
     private static void encodeAddress(TensorType type, TensorAddress address, Cursor addressObject) {
@@ -217,12 +220,8 @@ public class JsonFormat {
                                                "Use 'cells' or 'blocks' instead");
         IndexedTensor.BoundBuilder indexedBuilder = (IndexedTensor.BoundBuilder)builder;
         if (values.type() == Type.STRING) {
-            double[] decoded = decodeHexString(values.asString(), builder.type().valueType());
-            if (decoded.length == 0)
+            if (decodeHexString(values.asString(), indexedBuilder) == 0)
                 throw new IllegalArgumentException("The 'values' string does not contain any values");
-            for (int i = 0; i < decoded.length; i++) {
-                indexedBuilder.cellByDirectIndex(i, decoded[i]);
-            }
             return;
         }
         if (values.type() != Type.ARRAY)
@@ -267,30 +266,35 @@ public class JsonFormat {
                            decodeValues(value, mixedBuilder));
     }
 
-    private static byte decodeHex(String input, int index) {
-        int d = Character.digit(input.charAt(index), 16);
+    /** The values of the hex digits '0'-'9', 'a'-'f' and 'A'-'F', and -1 for other ascii characters */
+    private static final byte[] hexDigits = new byte[128];
+    static {
+        for (int c = 0; c < hexDigits.length; c++)
+            hexDigits[c] = (byte)Character.digit(c, 16);
+    }
+
+    private static int decodeHex(String input, int index) {
+        char c = input.charAt(index);
+        int d = c < hexDigits.length ? hexDigits[c] : Character.digit(c, 16);
         if (d < 0) {
             throw new IllegalArgumentException("Invalid digit '"+input.charAt(index)+"' at index "+index+" in input "+input);
         }
-        return (byte)d;
+        return d;
     }
 
-    private static double[] decodeHexStringAsBytes(String input) {
+    private static void decodeHexStringAsBytes(String input, ValueReceiver values) {
         int l = input.length() / 2;
-        double[] result = new double[l];
         int idx = 0;
         for (int i = 0; i < l; i++) {
-            byte v = decodeHex(input, idx++);
+            int v = decodeHex(input, idx++);
             v <<= 4;
             v += decodeHex(input, idx++);
-            result[i] = v;
+            values.set(i, (byte)v);
         }
-        return result;
     }
 
-    private static double[] decodeHexStringAsBFloat16s(String input) {
+    private static void decodeHexStringAsBFloat16s(String input, ValueReceiver values) {
         int l = input.length() / 4;
-        double[] result = new double[l];
         int idx = 0;
         for (int i = 0; i < l; i++) {
             int v = decodeHex(input, idx++);
@@ -298,14 +302,12 @@ public class JsonFormat {
             v <<= 4; v += decodeHex(input, idx++);
             v <<= 4; v += decodeHex(input, idx++);
             v <<= 16;
-            result[i] = Float.intBitsToFloat(v);
+            values.set(i, Float.intBitsToFloat(v));
         }
-        return result;
     }
 
-    private static double[] decodeHexStringAsFloats(String input) {
+    private static void decodeHexStringAsFloats(String input, ValueReceiver values) {
         int l = input.length() / 8;
-        double[] result = new double[l];
         int idx = 0;
         for (int i = 0; i < l; i++) {
             int v = 0;
@@ -313,14 +315,12 @@ public class JsonFormat {
                 v <<= 4;
                 v += decodeHex(input, idx++);
             }
-            result[i] = Float.intBitsToFloat(v);
+            values.set(i, Float.intBitsToFloat(v));
         }
-        return result;
     }
 
-    private static double[] decodeHexStringAsDoubles(String input) {
+    private static void decodeHexStringAsDoubles(String input, ValueReceiver values) {
         int l = input.length() / 16;
-        double[] result = new double[l];
         int idx = 0;
         for (int i = 0; i < l; i++) {
             long v = 0;
@@ -328,26 +328,58 @@ public class JsonFormat {
                 v <<= 4;
                 v += decodeHex(input, idx++);
             }
-            result[i] = Double.longBitsToDouble(v);
+            values.set(i, Double.longBitsToDouble(v));
         }
-        return result;
     }
 
-    public static double[] decodeHexString(String input, TensorType.Value valueType) {
+    private static void decodeHexString(String input, TensorType.Value valueType, ValueReceiver values) {
         switch(valueType) {
             case INT8:
-                return decodeHexStringAsBytes(input);
+                decodeHexStringAsBytes(input, values); break;
             case BFLOAT16:
-                return decodeHexStringAsBFloat16s(input);
+                decodeHexStringAsBFloat16s(input, values); break;
             case FLOAT:
-                return decodeHexStringAsFloats(input);
+                decodeHexStringAsFloats(input, values); break;
             case DOUBLE:
-                return decodeHexStringAsDoubles(input);
+                decodeHexStringAsDoubles(input, values); break;
             default:
                 throw new IllegalArgumentException("Cannot handle value type: "+valueType);
         }
     }
 
+    private static int hexValueCount(String input, TensorType.Value valueType) {
+        return switch (valueType) {
+            case INT8 -> input.length() / 2;
+            case BFLOAT16 -> input.length() / 4;
+            case FLOAT -> input.length() / 8;
+            case DOUBLE -> input.length() / 16;
+        };
+    }
+
+    public static double[] decodeHexString(String input, TensorType.Value valueType) {
+        double[] result = new double[hexValueCount(input, valueType)];
+        decodeHexString(input, valueType, (index, value) -> result[index] = value);
+        return result;
+    }
+
+    /**
+     * Decodes a hex string of values of the cell type of the given builder directly into the builder,
+     * in the standard value order.
+     *
+     * @return the number of values decoded
+     */
+    public static int decodeHexString(String input, IndexedTensor.DirectIndexBuilder builder) {
+        decodeHexString(input, builder.type().valueType(), builder::cellByDirectIndex);
+        return hexValueCount(input, builder.type().valueType());
+    }
+
+    /** Receives decoded values by their index */
+    private interface ValueReceiver {
+
+        void set(int index, double value);
+
+    }
+
     private static double[] decodeValues(Inspector valuesField, MixedTensor.BoundBuilder mixedBuilder) {
         double[] values = new double[(int)mixedBuilder.denseSubspaceSize()];
         if (valuesField.type() == Type.ARRAY) {
@@ -3,16 +3,16 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
-import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
+import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
 
 /**
@@ -136,9 +136,8 @@ class MixedBinaryFormat implements BinaryFormat {
         }
     }
 
-    private void decodeCells(GrowableByteBuffer buffer, MixedTensor.BoundBuilder builder, TensorType type, Supplier<Double> supplier) {
+    private void decodeCells(GrowableByteBuffer buffer, MixedTensor.BoundBuilder builder, TensorType type, DoubleSupplier supplier) {
         List<TensorType.Dimension> sparseDimensions = type.dimensions().stream().filter(d -> !d.isIndexed()).toList();
-        TensorType sparseType = MixedTensor.createPartialType(type.valueType(), sparseDimensions);
         long denseSubspaceSize = builder.denseSubspaceSize();
 
         int numBlocks = 1;
@@ -146,16 +145,16 @@ class MixedBinaryFormat implements BinaryFormat {
             numBlocks = buffer.getInt1_4Bytes();
         }
 
-        double[] denseSubspace = new double[(int)denseSubspaceSize];
+        String[] sparseAddress = new String[sparseDimensions.size()];
         for (int i = 0; i < numBlocks; ++i) {
-            TensorAddress.Builder sparseAddress = new TensorAddress.Builder(sparseType);
-            for (TensorType.Dimension sparseDimension : sparseDimensions) {
-                sparseAddress.add(sparseDimension.name(), buffer.getUtf8String());
+            for (int j = 0; j < sparseAddress.length; j++) {
+                sparseAddress[j] = buffer.getUtf8String();
             }
+            // Decode directly into the value array held by the builder for this subspace
+            IndexedTensor.DirectIndexBuilder denseSubspace = builder.denseSubspaceBuilder(sparseAddress);
             for (long denseOffset = 0; denseOffset < denseSubspaceSize; denseOffset++) {
-                denseSubspace[(int)denseOffset] = supplier.get();
+                denseSubspace.cellByDirectIndex(denseOffset, supplier.getAsDouble());
             }
-            builder.block(sparseAddress.build(), denseSubspace);
         }
     }
 
@@ -2,6 +2,7 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.MappedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
@@ -10,7 +11,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
+import java.util.function.DoubleSupplier;
 
 /**
  * Implementation of a sparse binary format for a tensor on the form:
@@ -111,22 +112,36 @@ class SparseBinaryFormat implements BinaryFormat {
         }
     }
 
-    private void decodeCells(GrowableByteBuffer buffer, Tensor.Builder builder, TensorType type, Supplier<Double> supplier) {
+    private void decodeCells(GrowableByteBuffer buffer, Tensor.Builder builder, TensorType type, DoubleSupplier supplier) {
         long numCells = buffer.getInt1_4Bytes(); // XXX: Size truncation
+        String[] address = new String[type.dimensions().size()];
         for (long i = 0; i < numCells; ++i) {
-            Tensor.Builder.CellBuilder cellBuilder = builder.cell();
-            decodeAddress(buffer, cellBuilder, type);
-            cellBuilder.value(supplier.get());
+            if ( ! decodeAddress(buffer, address))
+                addWithUnspecifiedLabels(address, builder.cell(), type).value(supplier.getAsDouble());
+            else if (builder instanceof MappedTensor.Builder mappedBuilder) // the tensor keeps the labels, not the address
+                mappedBuilder.cell(address, supplier.getAsDouble());
+            else
+                builder.cell(TensorAddress.of(address), supplier.getAsDouble());
         }
     }
 
-    private void decodeAddress(GrowableByteBuffer buffer, Tensor.Builder.CellBuilder builder, TensorType type) {
-        for (TensorType.Dimension dimension : type.dimensions()) {
-            String label = buffer.getUtf8String();
-            if ( ! label.isEmpty()) {
-                builder.label(dimension.name(), label);
-            }
+    /** Decodes the labels of an address in the order of the dimensions and returns whether all are specified */
+    private boolean decodeAddress(GrowableByteBuffer buffer, String[] address) {
+        boolean allSpecified = true;
+        for (int i = 0; i < address.length; i++) {
+            address[i] = buffer.getUtf8String();
+            if (address[i].isEmpty())
+                allSpecified = false;
+        }
+        return allSpecified;
+    }
+
+    private Tensor.Builder.CellBuilder addWithUnspecifiedLabels(String[] address, Tensor.Builder.CellBuilder builder, TensorType type) {
+        for (int i = 0; i < address.length; i++) {
+            if ( ! address[i].isEmpty())
+                builder.label(type.dimensions().get(i).name(), address[i]);
         }
+        return builder;
     }
 
 }
@@ -6,6 +6,7 @@ import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
@@ -54,6 +55,24 @@ public class TypedBinaryFormat {
         return decoder.decode(type, buffer);
     }
 
+    /**
+     * Decodes some data to a tensor, where dense tensors read their cell values directly from the given buffer
+     * instead of copying them. This is useful for large tensors, as the buffer may be off heap, e.g. a file
+     * mapped into memory. Other tensors are decoded as by {@link #decode}.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param buffer the buffer containing the data, which must not be changed while the returned tensor is in use
+     * @return the resulting tensor
+     * @throws IllegalArgumentException if the tensor data was invalid
+     */
+    public static Tensor decodeWithoutCopying(Optional<TensorType> type, ByteBuffer buffer) {
+        GrowableByteBuffer growableBuffer = new GrowableByteBuffer(buffer);
+        BinaryFormat decoder = getFormatDecoder(growableBuffer);
+        if (decoder instanceof DenseBinaryFormat dense)
+            return dense.decodeWithoutCopying(type, growableBuffer);
+        return decoder.decode(type, growableBuffer);
+    }
+
     private static BinaryFormat getFormatEncoder(GrowableByteBuffer buffer, Tensor tensor) {
         boolean hasMappedDimensions = tensor.type().dimensions().stream().anyMatch(TensorType.Dimension::isMapped);
         boolean hasIndexedDimensions = tensor.type().dimensions().stream().anyMatch(TensorType.Dimension::isIndexed);
@@ -0,0 +1,153 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.text;
+
+/**
+ * Utility class parsing decimal numbers into doubles and floats, giving the same result as
+ * Double.parseDouble and Float.parseFloat in the Java API, but faster for the common case of numbers
+ * with few significant digits, and without requiring the number to be a separate string.
+ *
+ * Numbers on the form [sign] digits [. digits] [e|E [sign] digits] whose digits fit in a double and whose
+ * decimal exponent is small are computed by a single exact multiplication or division, which is correctly rounded.
+ * Any other input is delegated to the Java API parsers.
+ *
+ * @author agent
+ */
+public class DoubleParser {
+
+    /** Powers of ten which are exactly representable as doubles */
+    private static final double[] powersOfTen = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** The largest integer such that all smaller integers are exactly representable as doubles */
+    private static final long maxExactMantissa = 1L << 53;
+
+    private DoubleParser() {}
+
+    /**
+     * Returns the double value of the given string.
+     *
+     * @throws NumberFormatException if the string is not a number, as Double.parseDouble
+     */
+    public static double parseDouble(String s) {
+        return parseDouble(s, 0, s.length());
+    }
+
+    /**
+     * Returns the double value of the characters in the given range of a character sequence.
+     *
+     * @param start the index of the first character of the number
+     * @param end the index after the last character of the number
+     * @throws NumberFormatException if the characters are not a number, as Double.parseDouble
+     */
+    public static double parseDouble(CharSequence s, int start, int end) {
+        double value = fastParse(s, start, end);
+        if ( ! Double.isNaN(value)) return value;
+        return Double.parseDouble(s.subSequence(start, end).toString());
+    }
+
+    /**
+     * Returns the float value of the given string.
+     *
+     * @throws NumberFormatException if the string is not a number, as Float.parseFloat
+     */
+    public static float parseFloat(String s) {
+        return parseFloat(s, 0, s.length());
+    }
+
+    /**
+     * Returns the float value of the characters in the given range of a character sequence.
+     *
+     * @param start the index of the first character of the number
+     * @param end the index after the last character of the number
+     * @throws NumberFormatException if the characters are not a number, as Float.parseFloat
+     */
+    public static float parseFloat(CharSequence s, int start, int end) {
+        double value = fastParse(s, start, end);
+        // Rounding the correctly rounded double to float is correct unless the double is exactly
+        // halfway between two floats, or outside the range of normal floats
+        if ( ! Double.isNaN(value) && (value == 0 || isNormalFloat(value)) && ! isHalfwayBetweenFloats(value))
+            return (float)value;
+        return Float.parseFloat(s.subSequence(start, end).toString());
+    }
+
+    /**
+     * Returns the value of the given number if it can be computed exactly by the fast path,
+     * and NaN otherwise (NaN is never the result of parsing a number by this).
+     */
+    private static double fastParse(CharSequence s, int start, int end) {
+        int i = start;
+        if (i == end) return Double.NaN;
+
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            if (++i == end) return Double.NaN;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        for (; i < end && isDigit(c = s.charAt(i)); i++, digits++) {
+            if (significantDigits > 0 || c != '0') significantDigits++;
+            mantissa = mantissa * 10 + (c - '0');
+        }
+        if (i < end && c == '.') {
+            for (i++; i < end && isDigit(c = s.charAt(i)); i++, digits++) {
+                if (significantDigits > 0 || c != '0') significantDigits++;
+                mantissa = mantissa * 10 + (c - '0');
+                exponent--;
+            }
+        }
+        if (digits == 0 || significantDigits > 18) return Double.NaN; // no number, or mantissa may overflow
+
+        if (i < end && (c == 'e' || c == 'E')) {
+            if (++i == end) return Double.NaN;
+            boolean negativeExponent = false;
+            c = s.charAt(i);
+            if (c == '-' || c == '+') {
+                negativeExponent = c == '-';
+                if (++i == end) return Double.NaN;
+            }
+            int explicitExponent = 0;
+            int exponentStart = i;
+            for (; i < end && isDigit(c = s.charAt(i)); i++) {
+                explicitExponent = explicitExponent * 10 + (c - '0');
+                if (explicitExponent > 1000) return Double.NaN;
+            }
+            if (i == exponentStart) return Double.NaN;
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != end) return Double.NaN; // trailing characters, which Double.parseDouble may accept or reject
+
+        if (mantissa > maxExactMantissa) return Double.NaN;
+        double value = mantissa;
+        if (exponent < 0) {
+            if (exponent < -22) return Double.NaN;
+            value /= powersOfTen[-exponent];
+        }
+        else if (exponent > 0) {
+            if (exponent > 22) return Double.NaN;
+            value *= powersOfTen[exponent];
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNormalFloat(double value) {
+        double magnitude = Math.abs(value);
+        return magnitude >= Float.MIN_NORMAL && magnitude <= Float.MAX_VALUE;
+    }
+
+    /** Returns whether the 29 bits of the double mantissa which are not in a float are exactly 100...0 */
+    private static boolean isHalfwayBetweenFloats(double value) {
+        return (Double.doubleToRawLongBits(value) & 0x1FFFFFFFL) == 0x10000000L;
+    }
+
+}
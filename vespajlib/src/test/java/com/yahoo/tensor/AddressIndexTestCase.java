@@ -0,0 +1,103 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class AddressIndexTestCase {
+
+    @Test
+    public void testPackedAddresses() {
+        assertIndexes(1);
+        assertIndexes(2);
+    }
+
+    @Test
+    public void testUnpackedAddresses() {
+        assertIndexes(3);
+    }
+
+    @Test
+    public void testEmptyAddress() {
+        AddressIndex.Builder builder = AddressIndex.builder(0);
+        assertEquals(0, builder.add(TensorAddress.of(new String[0])));
+        assertEquals(0, builder.add(new String[0]));
+        AddressIndex index = builder.build();
+        assertEquals(1, index.size());
+        assertEquals(0, index.indexOf(TensorAddress.of(new String[0])));
+    }
+
+    @Test
+    public void testLabelsAreShared() {
+        AddressIndex.Builder builder = AddressIndex.builder(2);
+        builder.add(new String[] { new String("a"), new String("b") });
+        builder.add(new String[] { new String("b"), new String("a") });
+        AddressIndex index = builder.build();
+        assertSame(index.label(0, 0), index.label(1, 1));
+        assertSame(index.label(0, 1), index.label(1, 0));
+    }
+
+    @Test
+    public void testPartialAddresses() {
+        int[] positions = new int[] { 0, 2 };
+        AddressIndex.Builder builder = AddressIndex.builder(2);
+        assertEquals(0, builder.add(TensorAddress.ofLabels("a", "0", "b"), positions));
+        assertEquals(0, builder.add(TensorAddress.ofLabels("a", "1", "b"), positions));
+        assertEquals(1, builder.add(TensorAddress.ofLabels("b", "1", "a"), positions));
+        AddressIndex index = builder.build();
+        assertEquals(TensorAddress.ofLabels("b", "a"), index.addressOf(1));
+        assertEquals(1, index.indexOf(TensorAddress.ofLabels("b", "7", "a"), positions));
+        assertEquals(-1, index.indexOf(TensorAddress.ofLabels("b", "7", "b"), positions));
+    }
+
+    @Test
+    public void testWrongRank() {
+        try {
+            AddressIndex.builder(2).add(TensorAddress.ofLabels("a"));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Expected an address with 2 labels, but got 1", e.getMessage());
+        }
+    }
+
+    /** Adds enough addresses to grow the builders, and checks that all can be found */
+    private void assertIndexes(int rank) {
+        int count = 1000;
+        AddressIndex.Builder builder = AddressIndex.builder(rank);
+        for (int i = 0; i < count; i++)
+            assertEquals(i, builder.add(addressOf(i, rank)));
+        for (int i = 0; i < count; i++)
+            assertEquals(i, builder.add(labelsOf(i, rank)));
+        assertEquals(count, builder.size());
+
+        AddressIndex index = builder.build();
+        assertEquals(count, index.size());
+        for (int i = 0; i < count; i++) {
+            TensorAddress address = addressOf(i, rank);
+            assertEquals(i, index.indexOf(address));
+            assertEquals(address, index.addressOf(i));
+            assertEquals(address.hashCode(), index.hashOf(i));
+        }
+        assertEquals(-1, index.indexOf(addressOf(count, rank)));
+    }
+
+    private TensorAddress addressOf(int i, int rank) {
+        return TensorAddress.of(labelsOf(i, rank));
+    }
+
+    /** Returns distinct labels for each i, where labels are also shared between addresses */
+    private String[] labelsOf(int i, int rank) {
+        String[] labels = new String[rank];
+        for (int d = 0; d < rank; d++)
+            labels[d] = "label" + (d == rank - 1 ? i : i % 7);
+        return labels;
+    }
+
+}
@@ -0,0 +1,78 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.ConstantTensor;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.TensorFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Microbenchmark of dot products between a query embedding and document embeddings,
+ * as done when reranking by embedding similarity in the container.
+ *
+ * @author agent
+ */
+public class DenseDotProductBenchmark {
+
+    private final static Random random = new Random();
+
+    public double benchmark(int iterations, String cellType, int size, boolean primitive) {
+        Tensor query = vectors(1, cellType, size).get(0);
+        List<Tensor> documents = vectors(400, cellType, size);
+        TensorFunction<Name> dotProduct = new ReduceJoin<>(new ConstantTensor<>(query),
+                                                           new VariableTensor<>("argument"),
+                                                           ScalarFunctions.multiply(),
+                                                           Reduce.Aggregator.sum,
+                                                           List.of("x"));
+        if (primitive)
+            dotProduct = dotProduct.toPrimitive();
+        dotProduct(dotProduct, documents, Math.max(iterations/10, 10)); // warmup
+        System.gc();
+        long startTime = System.currentTimeMillis();
+        dotProduct(dotProduct, documents, iterations);
+        long totalTime = System.currentTimeMillis() - startTime;
+        return (double)totalTime / (double)iterations;
+    }
+
+    private double dotProduct(TensorFunction<Name> dotProduct, List<Tensor> documents, int iterations) {
+        double largest = Double.NEGATIVE_INFINITY;
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        for (int i = 0 ; i < iterations; i++) {
+            for (Tensor document : documents) {
+                context.put("argument", document);
+                largest = Math.max(largest, dotProduct.evaluate(context).asDouble());
+            }
+        }
+        return largest;
+    }
+
+    private static List<Tensor> vectors(int count, String cellType, int size) {
+        TensorType type = TensorType.fromSpec("tensor<" + cellType + ">(x[" + size + "])");
+        List<Tensor> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            IndexedTensor.Builder builder = IndexedTensor.Builder.of(type);
+            for (int j = 0; j < size; j++)
+                builder.cell(random.nextDouble(), j);
+            vectors.add(builder.build());
+        }
+        return vectors;
+    }
+
+    public static void main(String[] args) {
+        for (String cellType : new String[] { "double", "float" }) {
+            double time = new DenseDotProductBenchmark().benchmark(2000, cellType, 768, false);
+            System.out.printf("400 %-6s dot products, reduce-join:  %8.3f ms\n", cellType, time);
+            time = new DenseDotProductBenchmark().benchmark(2000, cellType, 768, true);
+            System.out.printf("400 %-6s dot products, join, reduce: %8.3f ms\n", cellType, time);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.functions.ScalarFunctions;
+import org.junit.Test;
+
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class DenseKernelsTestCase {
+
+    private static final double delta = 0.000001;
+
+    @Test
+    public void testKernelsAgreeWithGenericEvaluation() {
+        for (String cellType : new String[] { "double", "float", "bfloat16", "int8" }) {
+            for (int size : new int[] { 1, 3, 4, 7, 768 }) {
+                IndexedTensor a = vector(cellType, size, 1);
+                IndexedTensor b = vector("double".equals(cellType) ? "float" : cellType, size, 2);
+                assertKernels(a, a);
+                assertKernels(a, b);
+            }
+        }
+    }
+
+    @Test
+    public void testDotProductWithOffsets() {
+        IndexedTensor matrix = (IndexedTensor)Tensor.from("tensor(i[2],x[3]):[[1,2,3],[4,5,6]]");
+        IndexedTensor vector = (IndexedTensor)Tensor.from("tensor(x[3]):[1,0,2]");
+        assertEquals(7.0, DenseKernels.dotProduct(vector, 0, matrix, 0, 3), delta);
+        assertEquals(16.0, DenseKernels.dotProduct(vector, 0, matrix, 3, 3), delta);
+        assertEquals(Tensor.from("tensor(i[2]):[7,16]"),
+                     matrix.multiply(vector).sum("x"));
+    }
+
+    @Test
+    public void testMaxIgnoresNaNAsReduce() {
+        Tensor vector = Tensor.from("tensor(x[3]):[1,NaN,2]");
+        Tensor matrix = Tensor.from("tensor(x[3],y[1]):[[1],[NaN],[2]]");
+        assertEquals(2.0, DenseKernels.max((IndexedTensor)vector, 3), delta);
+        assertEquals(2.0, vector.max().asDouble(), delta);
+        assertEquals(matrix.max().asDouble(), vector.max().asDouble(), delta);
+        assertEquals(Double.NEGATIVE_INFINITY, DenseKernels.max((IndexedTensor)vector, 0), delta);
+    }
+
+    @Test
+    public void testSumIsSequential() {
+        double[] values = { 1e16, 1, -1e16, 1 };
+        IndexedTensor vector = IndexedTensor.Builder.of(TensorType.fromSpec("tensor(x[4])"), values).build();
+        assertEquals(((1e16 + 1) - 1e16) + 1, DenseKernels.sum(vector, 4), 0);
+        assertEquals(((1e16 + 1) - 1e16) + 1, DenseKernels.dotProduct(vector, 0, (IndexedTensor)Tensor.from("tensor(x[4]):[1,1,1,1]"), 0, 4), 0);
+    }
+
+    private void assertKernels(IndexedTensor a, IndexedTensor b) {
+        int size = (int)a.size();
+        double expectedDotProduct = 0;
+        for (int i = 0; i < size; i++)
+            expectedDotProduct += a.get(i) * b.get(i);
+        assertEquals(expectedDotProduct, DenseKernels.dotProduct(a, 0, b, 0, size), delta * size);
+
+        assertJoin(a, b, ScalarFunctions.add());
+        assertJoin(a, b, ScalarFunctions.subtract());
+        assertJoin(a, b, ScalarFunctions.multiply());
+        assertJoin(a, b, ScalarFunctions.max());
+
+        double expectedSum = 0;
+        double expectedMax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            expectedSum += a.get(i);
+            expectedMax = Math.max(expectedMax, a.get(i));
+        }
+        assertEquals(expectedSum, DenseKernels.sum(a, size), delta * size);
+        assertEquals(expectedMax, DenseKernels.max(a, size), delta);
+    }
+
+    private void assertJoin(IndexedTensor a, IndexedTensor b, DoubleBinaryOperator combinator) {
+        int size = (int)a.size();
+        double[] expected = new double[size];
+        for (int i = 0; i < size; i++)
+            expected[i] = combinator.applyAsDouble(a.get(i), b.get(i));
+        assertArrayEquals(expected, DenseKernels.join(a, b, size, combinator), delta);
+    }
+
+    private IndexedTensor vector(String cellType, int size, int seed) {
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(TensorType.fromSpec("tensor<" + cellType + ">(x[" + size + "])"));
+        for (int i = 0; i < size; i++)
+            builder.cell((i * seed % 17) - 8.5, i);
+        return builder.build();
+    }
+
+}
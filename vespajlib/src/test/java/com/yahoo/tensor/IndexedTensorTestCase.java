@@ -3,11 +3,16 @@ package com.yahoo.tensor;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -74,6 +79,28 @@ public class IndexedTensorTestCase {
         }
     }
     
+    @Test
+    public void testInt8HandoverBuilding() {
+        byte[] values = { 1, -2, 3 };
+        DimensionSizes sizes = DimensionSizes.of(TensorType.fromSpec("tensor<int8>(x[3])"));
+        Tensor int8 = IndexedTensor.Builder.of(TensorType.fromSpec("tensor<int8>(x[3])"), sizes, values).build();
+        assertTrue(int8 instanceof IndexedInt8Tensor);
+        assertEquals(Tensor.from("tensor<int8>(x[3]):[1,-2,3]"), int8);
+        assertEquals(Tensor.from("tensor<float>(x[3]):[1,-2,3]"),
+                     IndexedTensor.Builder.of(TensorType.fromSpec("tensor<float>(x[3])"), sizes, values).build());
+    }
+
+    @Test
+    public void testBFloat16HandoverBuilding() {
+        short[] values = { 0x3f80, (short)0xc000, 0x4040 }; // The bfloat16 bits of 1, -2 and 3
+        DimensionSizes sizes = DimensionSizes.of(TensorType.fromSpec("tensor<bfloat16>(x[3])"));
+        Tensor bfloat16 = IndexedTensor.Builder.of(TensorType.fromSpec("tensor<bfloat16>(x[3])"), sizes, values).build();
+        assertTrue(bfloat16 instanceof IndexedBFloat16Tensor);
+        assertEquals(Tensor.from("tensor<bfloat16>(x[3]):[1,-2,3]"), bfloat16);
+        assertEquals(Tensor.from("tensor<float>(x[3]):[1,-2,3]"),
+                     IndexedTensor.Builder.of(TensorType.fromSpec("tensor<float>(x[3])"), sizes, values).build());
+    }
+
     @Test
     public void testBoundBuilding() {
         TensorType type = new TensorType.Builder().indexed("v", vSize)
@@ -161,6 +188,34 @@ public class IndexedTensorTestCase {
 
     }
 
+    @Test
+    public void testCopyToBuffers() {
+        for (String typeSpec : new String[] { "tensor(x[2],y[3])", "tensor<float>(x[2],y[3])", "tensor<int8>(x[2],y[3])" }) {
+            IndexedTensor tensor = (IndexedTensor)Tensor.from(typeSpec + ":[[1,2,3],[4,5,6]]");
+            FloatBuffer floats = FloatBuffer.allocate(7);
+            floats.put(-1);
+            tensor.copyTo(floats);
+            assertArrayEquals(new float[] { -1, 1, 2, 3, 4, 5, 6 }, floats.array(), 0);
+            DoubleBuffer doubles = DoubleBuffer.allocate(6);
+            tensor.copyTo(doubles);
+            assertArrayEquals(new double[] { 1, 2, 3, 4, 5, 6 }, doubles.array(), 0);
+        }
+    }
+
+    @Test
+    public void testWrappedBufferIsLimitedToTheTensorValues() {
+        TensorType type = TensorType.fromSpec("tensor<float>(x[3])");
+        DimensionSizes sizes = new DimensionSizes.Builder(1).set(0, 3).build();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(5 * Float.BYTES).order(ByteOrder.nativeOrder());
+        buffer.asFloatBuffer().put(new float[] { 0, 1, 2, 3, 4 });
+        buffer.position(Float.BYTES);
+        IndexedTensor tensor = IndexedTensor.wrap(type, sizes, buffer);
+        assertEquals(Tensor.from("tensor<float>(x[3]):[1,2,3]"), tensor);
+        FloatBuffer floats = FloatBuffer.allocate(3);
+        tensor.copyTo(floats);
+        assertArrayEquals(new float[] { 1, 2, 3 }, floats.array(), 0);
+    }
+
     /** Returns a unique value for some given cell indexes */
     private int value(int v, int w, int x, int y, int z) {
         return v + 3 * w + 7 * x + 11 * y + 13 * z;
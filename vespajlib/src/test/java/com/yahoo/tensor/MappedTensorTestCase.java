@@ -6,7 +6,9 @@ import org.junit.Test;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Basic tensor tests. Tensor operations are tested in EvaluationTestCase
@@ -29,6 +31,35 @@ public class MappedTensorTestCase {
         assertEquals(empty, emptyFromString);
     }
 
+    @Test
+    public void testCellsFromLabels() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        MappedTensor.Builder builder = MappedTensor.Builder.of(type);
+        String[] labels = new String[2];
+        labels[0] = "a"; labels[1] = "b";
+        builder.cell(labels, 1.0);
+        labels[0] = "b"; labels[1] = "a";
+        builder.cell(labels, 2.0);
+        Tensor tensor = builder.build();
+        assertEquals(Tensor.from("tensor(x{},y{}):{{x:a,y:b}:1.0,{x:b,y:a}:2.0}"), tensor);
+        assertEquals(2.0, tensor.get(TensorAddress.ofLabels("b", "a")), 0.0);
+        assertEquals(0.0, tensor.get(TensorAddress.ofLabels("a", "a")), 0.0);
+        assertFalse(tensor.has(TensorAddress.ofLabels("a")));
+        assertEquals(Tensor.from("tensor(x{},y{}):{{x:a,y:b}:1.0,{x:b,y:a}:2.0}").hashCode(), tensor.hashCode());
+    }
+
+    @Test
+    public void testMultipleValuesForCell() {
+        try {
+            Tensor.Builder.of(TensorType.fromSpec("tensor(x{})")).cell().label("x", "a").value(1.0)
+                                                                 .cell().label("x", "a").value(2.0);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Multiple values for the same cell in a tensor of type tensor(x{}): 1.0 and 2.0", e.getMessage());
+        }
+    }
+
     @Test
     public void testOneDimensionalBuilding() {
         TensorType type = new TensorType.Builder().mapped("x").build();
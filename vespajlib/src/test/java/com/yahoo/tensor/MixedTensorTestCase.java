@@ -4,7 +4,11 @@ package com.yahoo.tensor;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -62,6 +66,20 @@ public class MixedTensorTestCase {
                      tensor.toString());
     }
 
+    @Test
+    public void testCellIteration() {
+        Tensor tensor = Tensor.from("tensor(x{},y[2]):{a:[1,2], b:[3,4]}");
+        List<Tensor.Cell> cells = new ArrayList<>();
+        for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); )
+            cells.add(i.next().detach());
+        assertEquals(4, cells.size());
+        for (Tensor.Cell cell : cells)
+            assertEquals(tensor.get(cell.getKey()), cell.getValue(), 0.0);
+        assertEquals(Set.of(TensorAddress.ofLabels("a", "0"), TensorAddress.ofLabels("a", "1"),
+                            TensorAddress.ofLabels("b", "0"), TensorAddress.ofLabels("b", "1")),
+                     cells.stream().map(Tensor.Cell::getKey).collect(Collectors.toSet()));
+    }
+
     @Test
     public void testOneMappedBuilding() {
         TensorType type = new TensorType.Builder().mapped("x").build();
@@ -0,0 +1,101 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Map;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.TensorFunction;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class TensorArenaTestCase {
+
+    @Test
+    public void testArenaEvaluation() {
+        // relu(x * w + b), reduced over x
+        TensorFunction<Name> function =
+                new Map<>(new Join<>(new ReduceJoin<>(new VariableTensor<>("x"), new VariableTensor<>("w"),
+                                                      ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of("x")),
+                                     new VariableTensor<>("b"),
+                                     ScalarFunctions.add()),
+                          ScalarFunctions.relu());
+        MapEvaluationContext<Name> plainContext = new MapEvaluationContext<>();
+        ArenaContext arenaContext = new ArenaContext();
+        for (var context : List.of(plainContext, arenaContext)) {
+            context.put("w", Tensor.from("tensor(x[3],y[2]):[[1, -1], [2, -2], [3, -3]]"));
+            context.put("b", Tensor.from("tensor(y[2]):[0.5, 0.5]"));
+        }
+
+        Tensor previousResult = null;
+        for (int i = 0; i < 5; i++) {
+            Tensor x = Tensor.from("tensor(x[3]):[" + i + ", 1, 2]");
+            plainContext.put("x", x);
+            arenaContext.put("x", x);
+            Tensor expected = function.evaluate(plainContext);
+            Tensor result = function.evaluate(arenaContext);
+            arenaContext.arena().release(result);
+            assertEquals(expected, result);
+            if (previousResult != null) // the result of the previous evaluation escaped and must not be changed
+                assertEquals(Tensor.from("tensor(y[2]):[" + (i + 7.5) + ", 0]"), previousResult);
+            previousResult = result;
+        }
+    }
+
+    @Test
+    public void testArraysAreReusedUnlessEscaping() {
+        TensorArena arena = new TensorArena();
+        double[] first = arena.doubles(3);
+        first[1] = 1;
+        double[] second = arena.doubles(3);
+        Tensor result = IndexedTensor.Builder.of(TensorType.fromSpec("tensor(x[3])"), second).build();
+        arena.release(result);
+
+        double[] reused = arena.doubles(3);
+        assertSame(first, reused);
+        assertEquals(0, reused[1], 0); // cleared
+        assertNotSame(second, arena.doubles(3));
+        assertNotSame(first, arena.doubles(4));
+    }
+
+    @Test
+    public void testReusedArraysAreBounded() {
+        TensorArena arena = new TensorArena(2, 10 * Double.BYTES);
+        double[] a = arena.doubles(3);
+        double[] b = arena.doubles(3);
+        double[] c = arena.doubles(3);
+        double[] d = arena.doubles(5);
+        arena.release(null);
+        assertEquals(2 * 3 * Double.BYTES, arena.freeBytes()); // max 2 of each length, and 5 more does not fit
+        assertNotSame(d, arena.doubles(5));
+
+        double[] first = arena.doubles(3);
+        double[] second = arena.doubles(3);
+        assertTrue(first == a || first == b || first == c);
+        assertTrue(second == a || second == b || second == c);
+        assertEquals(0, arena.freeBytes());
+    }
+
+    private static class ArenaContext extends MapEvaluationContext<Name> {
+
+        private final TensorArena arena = new TensorArena();
+
+        @Override
+        public TensorArena arena() { return arena; }
+
+    }
+
+}
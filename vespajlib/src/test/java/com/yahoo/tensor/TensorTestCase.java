@@ -100,13 +100,28 @@ public class TensorTestCase {
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<float>(x[1])")).cell(5.0, 0).build().getClass(),
                      IndexedFloatTensor.class);
 
-        assertEquals(Tensor.from("tensor<bfloat16>(x[1]):[5]").getClass(), IndexedFloatTensor.class);
+        assertEquals(Tensor.from("tensor<bfloat16>(x[1]):[5]").getClass(), IndexedBFloat16Tensor.class);
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<bfloat16>(x[1])")).cell(5.0, 0).build().getClass(),
-                IndexedFloatTensor.class);
+                IndexedBFloat16Tensor.class);
 
-        assertEquals(Tensor.from("tensor<int8>(x[1]):[5]").getClass(), IndexedFloatTensor.class);
+        assertEquals(Tensor.from("tensor<int8>(x[1]):[5]").getClass(), IndexedInt8Tensor.class);
         assertEquals(Tensor.Builder.of(TensorType.fromSpec("tensor<int8>(x[1])")).cell(5.0, 0).build().getClass(),
-                IndexedFloatTensor.class);
+                IndexedInt8Tensor.class);
+    }
+
+    @Test
+    public void testCellCasts() {
+        // bfloat16 keeps the upper 16 bits of the float value
+        assertEquals(Tensor.from("tensor<bfloat16>(x[3]):[1.0, -2.5, 3.0]"),
+                     Tensor.from("tensor<bfloat16>(x[3]):[1.001, -2.501, 3.01]"));
+        assertEquals(1.0, Tensor.from("tensor<bfloat16>(x[1]):[1.001]").valueIterator().next(), 0);
+        // int8 truncates towards zero and wraps around outside the range of a byte
+        assertEquals(Tensor.from("tensor<int8>(x[4]):[5, -5, 127, -128]"),
+                     Tensor.from("tensor<int8>(x[4]):[5.7, -5.7, 127.9, 128]"));
+        assertEquals(Tensor.from("tensor<int8>(x[2]):[5, 1]"),
+                     Tensor.from("tensor(x[2]):[5.7, 1.001]").cellCast(TensorType.Value.INT8));
+        assertEquals(Tensor.from("tensor<bfloat16>(x[2]):[5.7, 1]"),
+                     Tensor.from("tensor(x[2]):[5.7, 1.001]").cellCast(TensorType.Value.BFLOAT16));
     }
 
     @Test
@@ -46,4 +46,25 @@ public class JoinTestCase {
                              .divide(Tensor.from("tensor(y[],z[]):{ {y:0,z:0}:2, {y:1,z:0}:4, {y:2,z:0}:6 }")));
     }
 
+    @Test
+    public void testMappedJoinsByDimensionOverlap() {
+        // Full overlap, where the smaller argument is iterated
+        assertEquals(Tensor.from("tensor(x{}):{ {x:a}:-1 }"),
+                     Tensor.from("tensor(x{}):{ {x:a}:1, {x:b}:2, {x:c}:3 }")
+                           .subtract(Tensor.from("tensor(x{}):{ {x:a}:2, {x:d}:4 }")));
+
+        // Partial overlap
+        assertEquals(Tensor.from("tensor(x{},y{},z{}):{ {x:a,y:1,z:p}:3, {x:a,y:1,z:q}:1, {x:b,y:2,z:p}:5 }"),
+                     Tensor.from("tensor(x{},y{}):{ {x:a,y:1}:4, {x:b,y:2}:6, {x:c,y:3}:8 }")
+                           .subtract(Tensor.from("tensor(y{},z{}):{ {y:1,z:p}:1, {y:1,z:q}:3, {y:2,z:p}:1 }")));
+
+        // No overlap
+        assertEquals(Tensor.from("tensor(x{},y{}):{ {x:a,y:1}:0, {x:a,y:2}:-1, {x:b,y:1}:1, {x:b,y:2}:0 }"),
+                     Tensor.from("tensor(x{}):{ {x:a}:1, {x:b}:2 }")
+                           .subtract(Tensor.from("tensor(y{}):{ {y:1}:1, {y:2}:2 }")));
+        assertEquals(Tensor.from("tensor(x{},y[2]):{ {x:a,y:0}:0, {x:a,y:1}:-1, {x:b,y:0}:1, {x:b,y:1}:0 }"),
+                     Tensor.from("tensor(x{}):{ {x:a}:1, {x:b}:2 }")
+                           .subtract(Tensor.from("tensor(y[2]):[1, 2]")));
+    }
+
 }
@@ -0,0 +1,103 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class ReduceJoinTestCase {
+
+    @Test
+    public void testSparseInnerProduct() {
+        String query = "tensor(token{}):{ {token:a}:1, {token:b}:2, {token:c}:3 }";
+        String document = "tensor(token{}):{ {token:b}:4, {token:c}:5, {token:d}:6, {token:e}:7 }";
+        assertReduceJoin(Tensor.from("23"), query, document, ScalarFunctions.multiply(), Reduce.Aggregator.sum);
+        assertReduceJoin(Tensor.from("23"), query, document, ScalarFunctions.multiply(), Reduce.Aggregator.sum, "token");
+        assertReduceJoin(Tensor.from("-2"), query, document, ScalarFunctions.subtract(), Reduce.Aggregator.max);
+        assertReduceJoin(Tensor.from("2"), document, query, ScalarFunctions.subtract(), Reduce.Aggregator.min);
+        assertReduceJoin(Tensor.from("0"), query, "tensor(token{}):{ {token:x}:1 }",
+                         ScalarFunctions.multiply(), Reduce.Aggregator.sum);
+        assertReduceJoin(Tensor.from("4"), "tensor(token{},x[2]):{ {token:a,x:0}:1, {token:a,x:1}:2 }",
+                         "tensor(token{},x[2]):{ {token:a,x:1}:1, {token:b,x:0}:1 }",
+                         ScalarFunctions.add(), Reduce.Aggregator.sum);
+    }
+
+    @Test
+    public void testMixedDenseProduct() {
+        String documents = "tensor(doc{},x[3]):{ a:[1, 2, 3], b:[4, 5, 6] }";
+        String query = "tensor(x[3]):[1, 0, 2]";
+        assertReduceJoin(Tensor.from("tensor(doc{}):{ a:7, b:16 }"),
+                         documents, query, ScalarFunctions.multiply(), Reduce.Aggregator.sum, "x");
+        assertReduceJoin(Tensor.from("tensor(doc{}):{ a:7, b:16 }"),
+                         query, documents, ScalarFunctions.multiply(), Reduce.Aggregator.sum, "x");
+        assertReduceJoin(Tensor.from("tensor(doc{}):{ a:2, b:5 }"),
+                         documents, query, ScalarFunctions.subtract(), Reduce.Aggregator.max, "x");
+        assertReduceJoin(Tensor.from("tensor(doc{}):{ a:-2, b:-5 }"),
+                         query, documents, ScalarFunctions.subtract(), Reduce.Aggregator.min, "x");
+        assertReduceJoin(Tensor.from("tensor(doc{},y{}):{ {doc:a,y:p}:7, {doc:b,y:q}:16 }"),
+                         "tensor(doc{},x[3],y{}):{ {doc:a,x:0,y:p}:1, {doc:a,x:1,y:p}:2, {doc:a,x:2,y:p}:3, " +
+                         "{doc:b,x:0,y:q}:4, {doc:b,x:1,y:q}:5, {doc:b,x:2,y:q}:6 }",
+                         query, ScalarFunctions.multiply(), Reduce.Aggregator.sum, "x");
+    }
+
+    @Test
+    public void testParallelEvaluation() {
+        Tensor a = Tensor.random(TensorType.fromSpec("tensor(i[512],k[256])"));
+        Tensor b = Tensor.random(TensorType.fromSpec("tensor(j[48],k[256])"));
+        Tensor v = Tensor.random(TensorType.fromSpec("tensor(k[256])"));
+        Tensor w = Tensor.random(TensorType.fromSpec("tensor(k[256])"));
+        for (String bindings : List.of("a,b", "v,a", "a,v", "v,w")) {
+            MapEvaluationContext<Name> sequential = new MapEvaluationContext<>();
+            ParallelContext parallel = new ParallelContext();
+            for (MapEvaluationContext<Name> context : List.of(sequential, parallel)) {
+                context.put("a", a);
+                context.put("b", b);
+                context.put("v", v);
+                context.put("w", w);
+            }
+            String[] names = bindings.split(",");
+            for (var aggregator : List.of(Reduce.Aggregator.sum, Reduce.Aggregator.max)) {
+                ReduceJoin<Name> product = new ReduceJoin<>(new VariableTensor<>(names[0]), new VariableTensor<>(names[1]),
+                                                            ScalarFunctions.multiply(), aggregator, List.of("k"));
+                assertEquals(product.evaluate(sequential), product.evaluate(parallel));
+            }
+            if ( ! bindings.equals("a,b")) {
+                Join<Name> join = new Join<>(new VariableTensor<>(names[0]), new VariableTensor<>(names[1]), ScalarFunctions.add());
+                assertEquals(join.evaluate(sequential), join.evaluate(parallel));
+            }
+            Map<Name> map = new Map<>(new VariableTensor<>(names[0]), ScalarFunctions.exp());
+            assertEquals(map.evaluate(sequential), map.evaluate(parallel));
+        }
+    }
+
+    private void assertReduceJoin(Tensor expected, String a, String b,
+                                  DoubleBinaryOperator combinator, Reduce.Aggregator aggregator, String ... dimensions) {
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        context.put("a", Tensor.from(a));
+        context.put("b", Tensor.from(b));
+        ReduceJoin<Name> reduceJoin = new ReduceJoin<>(new VariableTensor<>("a"), new VariableTensor<>("b"),
+                                                       combinator, aggregator, List.of(dimensions));
+        Tensor result = reduceJoin.evaluate(context);
+        assertEquals(expected, result);
+        assertEquals(reduceJoin.toPrimitive().evaluate(context), result);
+    }
+
+    private static class ParallelContext extends MapEvaluationContext<Name> {
+
+        @Override
+        public boolean parallel() { return true; }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.serialization;
+
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Microbenchmark of decoding tensors from the binary format, as done for every tensor
+ * in summaries and match features returned to the container.
+ *
+ * @author agent
+ */
+public class BinaryDecodingBenchmark {
+
+    private final static Random random = new Random();
+
+    public double benchmark(int iterations, String typeSpec) {
+        byte[] data = TypedBinaryFormat.encode(tensor(TensorType.fromSpec(typeSpec)));
+        decode(data, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        decode(data, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        return (double)totalTime / 1000.0 / iterations;
+    }
+
+    private long decode(byte[] data, int iterations) {
+        long cellCount = 0;
+        for (int i = 0; i < iterations; i++)
+            cellCount += TypedBinaryFormat.decode(Optional.empty(), GrowableByteBuffer.wrap(data)).size();
+        return cellCount;
+    }
+
+    /** Returns a tensor of the given type with 768 values in each dense subspace and 100 sparse subspaces */
+    private static Tensor tensor(TensorType type) {
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        boolean sparse = type.dimensions().stream().anyMatch(d -> ! d.isIndexed());
+        boolean dense = type.dimensions().stream().anyMatch(d -> d.isIndexed());
+        for (int subspace = 0; subspace < (sparse ? 100 : 1); subspace++) {
+            for (int i = 0; i < (dense ? 768 : 1); i++) {
+                Tensor.Builder.CellBuilder cell = builder.cell();
+                if (sparse)
+                    cell.label("key", "label" + subspace);
+                if (dense)
+                    cell.label("x", i);
+                cell.value(random.nextInt(100) - 50);
+            }
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) {
+        for (String cellType : new String[] { "double", "float", "bfloat16", "int8" }) {
+            for (String dimensions : new String[] { "x[768]", "key{}", "key{},x[768]" }) {
+                String type = "tensor<" + cellType + ">(" + dimensions + ")";
+                double time = new BinaryDecodingBenchmark().benchmark(2000, type);
+                System.out.printf("Decoding %-32s %10.3f microseconds\n", type, time);
+            }
+        }
+    }
+
+}
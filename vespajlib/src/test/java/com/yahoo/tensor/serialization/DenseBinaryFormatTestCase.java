@@ -6,6 +6,7 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -40,6 +41,24 @@ public class DenseBinaryFormatTestCase {
         }
     }
 
+    @Test
+    public void testDecodingWithoutCopying() {
+        for (String cellType : new String[] { "double", "float", "bfloat16", "int8" }) {
+            Tensor tensor = Tensor.from("tensor<" + cellType + ">(x[2],y[3]):[[1, 2, 3], [-4, 5.5, 6]]");
+            byte[] encoded = TypedBinaryFormat.encode(tensor);
+            Tensor expected = TypedBinaryFormat.decode(Optional.of(tensor.type()), GrowableByteBuffer.wrap(encoded));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length);
+            buffer.put(encoded).flip();
+            Tensor decoded = TypedBinaryFormat.decodeWithoutCopying(Optional.of(tensor.type()), buffer);
+            assertEquals(expected, decoded);
+            assertEquals(expected.hashCode(), decoded.hashCode());
+            assertEquals(expected.multiply(expected), decoded.multiply(decoded));
+        }
+        Tensor sparse = Tensor.from("tensor(x{}):{a:1, b:2}");
+        assertEquals(sparse, TypedBinaryFormat.decodeWithoutCopying(Optional.empty(),
+                                                                    ByteBuffer.wrap(TypedBinaryFormat.encode(sparse))));
+    }
+
     @Test
     public void requireThatDefaultSerializationFormatDoesNotChange() {
         byte[] encodedTensor = new byte[]{2, // binary format type
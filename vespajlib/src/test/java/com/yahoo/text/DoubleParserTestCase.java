@@ -0,0 +1,77 @@
+// Copyright Yahoo. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.text;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class DoubleParserTestCase {
+
+    @Test
+    public void testParsingAgreesWithJava() {
+        String[] numbers = { "0", "-0", "+0", "0.0", "-0.0", "1", "-1", "1.5", ".5", "5.", "0.1", "0.2", "0.3",
+                             "3.141592653589793", "2.718281828459045", "123456789012345678", "1234567890123456789",
+                             "9007199254740993", "0.000000000000000000000001", "1e22", "1e23", "1e-22", "1e-23",
+                             "1.7976931348623157e308", "4.9e-324", "1e400", "1e-400", "12.5E+3", "12.5e-3",
+                             "0.30000001192092896", "16777217", "3.4028235e38", "1.17549435e-38", "1e-45",
+                             "NaN", "-Infinity", "0x1p3", "1d", "1f", " 1", "1 " };
+        for (String number : numbers)
+            assertParsing(number);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            assertParsing(String.valueOf(random.nextDouble()));
+            assertParsing(String.valueOf(random.nextFloat()));
+            assertParsing(String.valueOf((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20)));
+            assertParsing(String.format("%.6f", random.nextGaussian()));
+        }
+    }
+
+    @Test
+    public void testParsingRange() {
+        assertEquals(1.5, DoubleParser.parseDouble("[1.5, 2]", 1, 4), 0);
+        assertEquals(2.0f, DoubleParser.parseFloat("[1.5, 2]", 6, 7), 0);
+    }
+
+    @Test
+    public void testIllegalNumbers() {
+        for (String illegal : new String[] { "", "-", ".", "e5", "1e", "1e+", "1.2.3", "one", "--1" }) {
+            assertIllegal(illegal);
+        }
+    }
+
+    private void assertParsing(String number) {
+        boolean legal = true;
+        double expectedDouble = 0;
+        float expectedFloat = 0;
+        try {
+            expectedDouble = Double.parseDouble(number);
+            expectedFloat = Float.parseFloat(number);
+        }
+        catch (NumberFormatException e) {
+            legal = false;
+        }
+        if ( ! legal) {
+            assertIllegal(number);
+            return;
+        }
+        assertEquals(number, Double.doubleToRawLongBits(expectedDouble), Double.doubleToRawLongBits(DoubleParser.parseDouble(number)));
+        assertEquals(number, Float.floatToRawIntBits(expectedFloat), Float.floatToRawIntBits(DoubleParser.parseFloat(number)));
+    }
+
+    private void assertIllegal(String number) {
+        try {
+            DoubleParser.parseDouble(number);
+            fail("Expected '" + number + "' to be rejected");
+        }
+        catch (NumberFormatException expected) {
+        }
+    }
+
+}